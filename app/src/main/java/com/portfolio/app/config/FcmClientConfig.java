@@ -2,26 +2,31 @@ package com.portfolio.app.config;
 
 import com.portfolio.fcm.FcmClient;
 import com.portfolio.fcm.FcmConfig;
+import com.portfolio.fcm.FcmHttp2RequestFactory;
 import com.portfolio.oauth2.awt.core.AssertionTokenClient;
 import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.client.RestClient;
 
 @Configuration
 @EnableConfigurationProperties(FcmConfig.class)
 public class FcmClientConfig {
 
+    /** Multiplexes FCM sends over {@code fcm.transport.connections} HTTP/2 connections. */
+    @Bean
+    @ConditionalOnBean(name = "googleAssertionTokenClient")
+    public FcmHttp2RequestFactory fcmRequestFactory(FcmConfig fcmConfig) {
+        return new FcmHttp2RequestFactory(fcmConfig.transport());
+    }
+
     @Bean
     @ConditionalOnBean(name = "googleAssertionTokenClient")
     public FcmClient fcmClient(FcmConfig fcmConfig,
                                AssertionTokenClient googleAssertionTokenClient,
+                               FcmHttp2RequestFactory fcmRequestFactory,
                                MeterRegistry meterRegistry) {
-        RestClient restClient = RestClient.builder()
-                .defaultHeader("Accept", "application/json")
-                .build();
-        return new FcmClient(fcmConfig, googleAssertionTokenClient, restClient, meterRegistry);
+        return new FcmClient(fcmConfig, googleAssertionTokenClient, fcmRequestFactory, meterRegistry);
     }
 }
@@ -0,0 +1,31 @@
+package com.portfolio.app.config;
+
+import com.portfolio.app.push.PushOutboxDispatcher;
+import com.portfolio.app.push.PushOutboxProperties;
+import com.portfolio.app.push.PushOutboxRepository;
+import com.portfolio.fcm.FcmClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Optional;
+
+@Configuration
+@EnableConfigurationProperties(PushOutboxProperties.class)
+public class PushOutboxConfig {
+
+    /** Sends {@code push_outbox} rows on this replica; idle where FCM is not configured. */
+    @Bean
+    @ConditionalOnProperty(prefix = "app.push.outbox", name = "enabled", matchIfMissing = true)
+    public PushOutboxDispatcher pushOutboxDispatcher(Optional<FcmClient> fcmClient,
+                                                     PushOutboxRepository pushOutboxRepository,
+                                                     PlatformTransactionManager transactionManager,
+                                                     PushOutboxProperties pushOutboxProperties,
+                                                     MeterRegistry meterRegistry) {
+        return new PushOutboxDispatcher(fcmClient, pushOutboxRepository, transactionManager,
+                pushOutboxProperties, meterRegistry);
+    }
+}
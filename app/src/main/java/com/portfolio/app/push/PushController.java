@@ -17,7 +17,7 @@ public class PushController {
     }
 
     @PostMapping("/test")
-    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @ResponseStatus(HttpStatus.ACCEPTED)
     @PreAuthorize("hasAnyRole('WRITER', 'ADMIN')")
     public void sendTestPush(@Valid @RequestBody PushRequest request) {
         pushService.sendPush(request);
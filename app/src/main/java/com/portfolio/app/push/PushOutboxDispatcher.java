@@ -0,0 +1,240 @@
+package com.portfolio.app.push;
+
+import com.portfolio.fcm.FcmClient;
+import com.portfolio.fcm.FcmSendResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sends the pushes {@link PushService} left in {@code push_outbox}.
+ * <p>
+ * Each worker claims a batch of due rows with {@code SELECT ... FOR UPDATE SKIP LOCKED}, pushes
+ * their next attempt past {@link PushOutboxProperties#claimTimeout()} and commits, so rows are
+ * not locked while FCM is called and workers on every replica take disjoint batches. The batch
+ * goes out through {@link FcmClient#sendAll}; a second transaction then deletes the rows FCM
+ * accepted, schedules transient failures for a retry with backoff, and dead-letters the rest.
+ * Delivery is at least once: a row whose dispatcher dies mid-batch is claimed again once its
+ * claim runs out. Each write in that second transaction is conditional on the row's
+ * {@code version} from the claim, so a batch that outlives its claim leaves the rows another
+ * dispatcher has claimed since to that dispatcher rather than overwriting or deleting them.
+ * <p>
+ * Shutdown stops claiming and waits up to {@link PushOutboxProperties#shutdownTimeout()} for the
+ * batches in flight, so their results are recorded before FCM and the database go away.
+ */
+public class PushOutboxDispatcher implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(PushOutboxDispatcher.class);
+
+    /** Error codes a later attempt cannot fix: the token or the message itself is bad. */
+    private static final Set<String> PERMANENT_ERRORS =
+            Set.of("UNREGISTERED", "INVALID_ARGUMENT", "SENDER_ID_MISMATCH", "NOT_FOUND", "PERMISSION_DENIED");
+
+    private final Optional<FcmClient> fcmClient;
+    private final PushOutboxRepository repository;
+    private final TransactionTemplate transactions;
+    private final PushOutboxProperties properties;
+    private final Counter sent;
+    private final Counter retried;
+    private final Counter deadLettered;
+    private final Counter claimsLost;
+    private final Object idle = new Object();
+
+    private volatile boolean running;
+    private List<Thread> workers = List.of();
+
+    public PushOutboxDispatcher(Optional<FcmClient> fcmClient,
+                                PushOutboxRepository repository,
+                                PlatformTransactionManager transactionManager,
+                                PushOutboxProperties properties,
+                                MeterRegistry meterRegistry) {
+        this.fcmClient = fcmClient;
+        this.repository = repository;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+        this.sent = outcomeCounter(meterRegistry, "sent");
+        this.retried = outcomeCounter(meterRegistry, "retried");
+        this.deadLettered = outcomeCounter(meterRegistry, "dead");
+        this.claimsLost = outcomeCounter(meterRegistry, "claim_lost");
+    }
+
+    private static Counter outcomeCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("push.outbox.dispatched")
+                .description("Outbox pushes by dispatch outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /** Without an FCM client the rows stay put until a replica that has one sends them. */
+    @Override
+    public boolean isAutoStartup() {
+        return fcmClient.isPresent();
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        List<Thread> started = new ArrayList<>(properties.workers());
+        for (int i = 1; i <= properties.workers(); i++) {
+            Thread worker = new Thread(this::work, "push-outbox-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            started.add(worker);
+        }
+        workers = started;
+        log.info("Push outbox dispatcher started with {} workers", started.size());
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        synchronized (idle) {
+            idle.notifyAll();
+        }
+        long deadline = System.nanoTime() + properties.shutdownTimeout().toNanos();
+        for (Thread worker : workers) {
+            try {
+                worker.join(Math.max(1, Duration.ofNanos(deadline - System.nanoTime()).toMillis()));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        for (Thread worker : workers) {
+            if (worker.isAlive()) {
+                // Its batch is sent again once the claim runs out
+                log.warn("Push outbox worker {} still busy after {}, interrupting", worker.getName(), properties.shutdownTimeout());
+                worker.interrupt();
+            }
+        }
+        workers = List.of();
+        log.info("Push outbox dispatcher stopped");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void work() {
+        while (running) {
+            int dispatched;
+            try {
+                dispatched = dispatchBatch();
+            } catch (RuntimeException ex) {
+                log.warn("Push outbox dispatch failed: {}", ex.getMessage(), ex);
+                dispatched = 0;
+            }
+            if (dispatched < properties.batchSize() && !pause()) {
+                return;
+            }
+        }
+    }
+
+    /** Waits out the poll interval, or until stopped; {@code false} if interrupted. */
+    private boolean pause() {
+        synchronized (idle) {
+            if (!running) {
+                return true;
+            }
+            try {
+                idle.wait(properties.pollInterval().toMillis());
+                return true;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Claims, sends and records one batch.
+     *
+     * @return the number of rows in the batch
+     */
+    int dispatchBatch() {
+        List<PushOutboxMessage> batch = transactions.execute(status -> claim());
+        if (batch == null || batch.isEmpty()) {
+            return 0;
+        }
+        List<FcmSendResult> results = fcmClient.orElseThrow()
+                .sendAll(batch.stream().map(PushOutboxMessage::toFcmMessage).toList());
+        transactions.executeWithoutResult(status -> record(batch, results));
+        return batch.size();
+    }
+
+    private List<PushOutboxMessage> claim() {
+        LocalDateTime now = LocalDateTime.now();
+        List<PushOutboxMessage> due = repository.lockDue(now, properties.batchSize());
+        LocalDateTime claimedUntil = now.plus(properties.claimTimeout());
+        due.forEach(message -> message.claim(claimedUntil));
+        return due;
+    }
+
+    private void record(List<PushOutboxMessage> batch, List<FcmSendResult> results) {
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < batch.size(); i++) {
+            PushOutboxMessage message = batch.get(i);
+            FcmSendResult result = results.get(i);
+            if (result.success()) {
+                if (repository.deleteClaimed(message.getId(), message.getVersion()) == 1) {
+                    sent.increment();
+                } else {
+                    claimLost(message);
+                }
+                continue;
+            }
+            String error = result.errorCode() + ": " + result.errorMessage();
+            boolean dead = PERMANENT_ERRORS.contains(result.errorCode()) || message.getAttempts() >= properties.maxAttempts();
+            if (dead) {
+                message.deadLetter(error);
+            } else {
+                message.retryAt(now.plus(backoff(message.getAttempts())), error);
+            }
+            if (repository.updateClaimed(message.getId(), message.getVersion(), message.getStatus(),
+                    message.getNextAttemptAt(), message.getLastError()) != 1) {
+                claimLost(message);
+            } else if (dead) {
+                log.warn("Dead-lettering push {} after {} attempts: {}", message.getId(), message.getAttempts(), error);
+                deadLettered.increment();
+            } else {
+                retried.increment();
+            }
+        }
+    }
+
+    /**
+     * The batch outlived {@link PushOutboxProperties#claimTimeout()} and another dispatcher claimed
+     * the row since; that one now owns its outcome, so this one leaves the row alone.
+     */
+    private void claimLost(PushOutboxMessage message) {
+        log.warn("Claim on push {} ran out before its result was recorded, leaving it to the dispatcher that claimed it since",
+                message.getId());
+        claimsLost.increment();
+    }
+
+    /** Full jitter: uniformly random up to the exponential cap, so retries of one outage spread out. */
+    Duration backoff(int attempts) {
+        long initial = properties.initialBackoff().toMillis();
+        long cap = Math.min(properties.maxBackoff().toMillis(), initial << Math.min(attempts - 1, 30));
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(cap + 1));
+    }
+}
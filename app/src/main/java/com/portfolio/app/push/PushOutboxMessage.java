@@ -0,0 +1,94 @@
+package com.portfolio.app.push;
+
+import com.portfolio.fcm.FcmMessage;
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A push waiting in {@code push_outbox} to be sent by {@link PushOutboxDispatcher}.
+ */
+@Entity
+@Table(name = "push_outbox")
+public class PushOutboxMessage {
+
+    public enum Status { PENDING, DEAD }
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "device_token", nullable = false, length = 512)
+    private String deviceToken;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String title;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String body;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status = Status.PENDING;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt = LocalDateTime.now();
+
+    @Column(name = "last_error", length = MAX_ERROR_LENGTH)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    /** Bumped by every write, so a dispatcher can tell whether its claim on the row still holds. */
+    @Version
+    @Column(nullable = false)
+    private long version;
+
+    protected PushOutboxMessage() {}
+
+    public PushOutboxMessage(String deviceToken, String title, String body) {
+        this.deviceToken = deviceToken;
+        this.title = title;
+        this.body = body;
+    }
+
+    /** Counts an attempt and hides the row from other dispatchers until {@code until}. */
+    public void claim(LocalDateTime until) {
+        this.attempts++;
+        this.nextAttemptAt = until;
+    }
+
+    public void retryAt(LocalDateTime at, String error) {
+        this.nextAttemptAt = at;
+        this.lastError = truncate(error);
+    }
+
+    public void deadLetter(String error) {
+        this.status = Status.DEAD;
+        this.lastError = truncate(error);
+    }
+
+    public FcmMessage toFcmMessage() {
+        return new FcmMessage(deviceToken, title, body, null);
+    }
+
+    private static String truncate(String error) {
+        return error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+
+    public Long getId() { return id; }
+    public String getDeviceToken() { return deviceToken; }
+    public String getTitle() { return title; }
+    public String getBody() { return body; }
+    public Status getStatus() { return status; }
+    public int getAttempts() { return attempts; }
+    public LocalDateTime getNextAttemptAt() { return nextAttemptAt; }
+    public String getLastError() { return lastError; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public long getVersion() { return version; }
+}
@@ -0,0 +1,39 @@
+package com.portfolio.app.push;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * @param workers         dispatcher threads per replica, each sending one batch at a time
+ * @param batchSize       rows a worker claims per round trip; sent with {@code fcm.max-concurrent-sends} in flight
+ * @param pollInterval    how long an idle worker waits before looking for due rows again
+ * @param claimTimeout    how long a claimed row stays hidden from other dispatchers; a row whose
+ *                        dispatcher died is sent again after this
+ * @param maxAttempts     sends before a row is dead-lettered
+ * @param initialBackoff  delay before the first retry, doubled per attempt with full jitter
+ * @param maxBackoff      cap on the retry delay
+ * @param shutdownTimeout how long shutdown waits for batches in flight
+ */
+@ConfigurationProperties(prefix = "app.push.outbox")
+public record PushOutboxProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("2") int workers,
+        @DefaultValue("100") int batchSize,
+        @DefaultValue("1s") Duration pollInterval,
+        @DefaultValue("5m") Duration claimTimeout,
+        @DefaultValue("8") int maxAttempts,
+        @DefaultValue("5s") Duration initialBackoff,
+        @DefaultValue("10m") Duration maxBackoff,
+        @DefaultValue("20s") Duration shutdownTimeout
+) {
+    public PushOutboxProperties {
+        if (workers < 1 || batchSize < 1 || maxAttempts < 1) {
+            throw new IllegalArgumentException("workers, batchSize and maxAttempts must be at least 1");
+        }
+        if (initialBackoff.compareTo(maxBackoff) > 0) {
+            throw new IllegalArgumentException("initialBackoff must not exceed maxBackoff");
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.portfolio.app.push;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface PushOutboxRepository extends JpaRepository<PushOutboxMessage, Long> {
+
+    /**
+     * Locks up to {@code limit} pending rows due by {@code now}, oldest first. Rows locked by
+     * another transaction are skipped rather than waited for, so concurrent dispatchers claim
+     * disjoint batches. Supported by MariaDB 10.6+ and PostgreSQL 9.5+.
+     */
+    @Query(value = "SELECT * FROM push_outbox WHERE status = 'PENDING' AND next_attempt_at <= :now"
+            + " ORDER BY next_attempt_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<PushOutboxMessage> lockDue(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    /**
+     * Deletes the row if it is still at {@code version}, i.e. no other dispatcher has claimed it
+     * since.
+     *
+     * @return 1 if deleted, 0 if the claim was lost
+     */
+    @Modifying
+    @Query("DELETE FROM PushOutboxMessage m WHERE m.id = :id AND m.version = :version")
+    int deleteClaimed(@Param("id") Long id, @Param("version") long version);
+
+    /**
+     * Writes the outcome of a failed attempt if the row is still at {@code version}, i.e. no
+     * other dispatcher has claimed it since.
+     *
+     * @return 1 if updated, 0 if the claim was lost
+     */
+    @Modifying
+    @Query("UPDATE PushOutboxMessage m SET m.status = :status, m.nextAttemptAt = :nextAttemptAt,"
+            + " m.lastError = :lastError, m.version = m.version + 1"
+            + " WHERE m.id = :id AND m.version = :version")
+    int updateClaimed(@Param("id") Long id,
+                      @Param("version") long version,
+                      @Param("status") PushOutboxMessage.Status status,
+                      @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                      @Param("lastError") String lastError);
+}
@@ -2,8 +2,8 @@ package com.portfolio.app.push;
 
 import com.portfolio.app.push.dto.PushRequest;
 import com.portfolio.fcm.FcmClient;
-import com.portfolio.fcm.FcmMessage;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
@@ -11,20 +11,21 @@ import java.util.Optional;
 public class PushService {
 
     private final Optional<FcmClient> fcmClient;
+    private final PushOutboxRepository pushOutboxRepository;
 
-    public PushService(Optional<FcmClient> fcmClient) {
+    public PushService(Optional<FcmClient> fcmClient, PushOutboxRepository pushOutboxRepository) {
         this.fcmClient = fcmClient;
+        this.pushOutboxRepository = pushOutboxRepository;
     }
 
+    /**
+     * Queues the push in {@code push_outbox}, joining the caller's transaction if there is one,
+     * for {@link PushOutboxDispatcher} to send; FCM is not called here.
+     */
+    @Transactional
     public void sendPush(PushRequest request) {
-        FcmClient client = fcmClient.orElseThrow(() ->
+        fcmClient.orElseThrow(() ->
                 new IllegalStateException("FCM client not configured. Set GOOGLE_SERVICE_ACCOUNT_KEY_PATH."));
-        FcmMessage message = new FcmMessage(
-                request.deviceToken(),
-                request.title(),
-                request.body(),
-                null
-        );
-        client.send(message);
+        pushOutboxRepository.save(new PushOutboxMessage(request.deviceToken(), request.title(), request.body()));
     }
 }
@@ -1,9 +1,10 @@
 package com.portfolio.app.push.dto;
 
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
 
 public record PushRequest(
-        @NotBlank String deviceToken,
+        @NotBlank @Size(max = 512) String deviceToken,
         @NotBlank String title,
         @NotBlank String body
 ) {}
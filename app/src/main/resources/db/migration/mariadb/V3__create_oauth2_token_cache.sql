@@ -0,0 +1,11 @@
+-- Access tokens shared by all replicas, plus the lease electing the replica that refreshes them
+-- (see JdbcTokenStore). Times are epoch milliseconds from the application clock.
+CREATE TABLE oauth2_token_cache (
+    cache_key    VARCHAR(64)  NOT NULL,
+    access_token TEXT         NULL,
+    issued_at    BIGINT       NULL,
+    expires_at   BIGINT       NULL,
+    lease_owner  VARCHAR(36)  NULL,
+    lease_until  BIGINT       NOT NULL DEFAULT 0,
+    PRIMARY KEY (cache_key)
+);
@@ -0,0 +1,18 @@
+-- Pushes accepted by the API and not yet delivered to FCM (see PushOutboxDispatcher). A row is
+-- deleted once FCM accepts it; rows that cannot be delivered stay behind with status DEAD.
+-- version changes on every write, so a dispatcher whose claim ran out cannot overwrite the row.
+CREATE TABLE push_outbox (
+    id              BIGINT        NOT NULL GENERATED ALWAYS AS IDENTITY,
+    device_token    VARCHAR(512)  NOT NULL,
+    title           TEXT          NOT NULL,
+    body            TEXT          NOT NULL,
+    status          VARCHAR(16)   NOT NULL,
+    attempts        INT           NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP(6)  NOT NULL,
+    last_error      VARCHAR(1000) NULL,
+    created_at      TIMESTAMP(6)  NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    version         BIGINT        NOT NULL DEFAULT 0,
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_push_outbox_due ON push_outbox (status, next_attempt_at);
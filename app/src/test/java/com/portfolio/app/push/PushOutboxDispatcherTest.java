@@ -0,0 +1,214 @@
+package com.portfolio.app.push;
+
+import com.portfolio.fcm.FcmClient;
+import com.portfolio.fcm.FcmMessage;
+import com.portfolio.fcm.FcmSendResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class PushOutboxDispatcherTest {
+
+    @Mock
+    private FcmClient fcmClient;
+
+    @Mock
+    private PushOutboxRepository repository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private PushOutboxProperties properties;
+    private PushOutboxDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        properties = new PushOutboxProperties(true, 1, 10, Duration.ofMillis(50), Duration.ofMinutes(5),
+                3, Duration.ofSeconds(5), Duration.ofMinutes(10), Duration.ofSeconds(5));
+        dispatcher = new PushOutboxDispatcher(Optional.of(fcmClient), repository, transactionManager, properties, meterRegistry);
+    }
+
+    private static PushOutboxMessage row(long id, String deviceToken) {
+        PushOutboxMessage message = new PushOutboxMessage(deviceToken, "Title", "Body");
+        ReflectionTestUtils.setField(message, "id", id);
+        return message;
+    }
+
+    private static FcmSendResult ok(FcmMessage message) {
+        return new FcmSendResult(message, true, "projects/p/messages/1", 200, null, null);
+    }
+
+    private static FcmSendResult failed(FcmMessage message, int status, String errorCode) {
+        return new FcmSendResult(message, false, null, status, errorCode, "failed");
+    }
+
+    private double dispatched(String outcome) {
+        return meterRegistry.get("push.outbox.dispatched").tag("outcome", outcome).counter().count();
+    }
+
+    @Test
+    @DisplayName("발송할 행이 없으면 FCM을 호출하지 않음")
+    void dispatchBatch_nothingDue_doesNotCallFcm() {
+        given(repository.lockDue(any(), anyInt())).willReturn(List.of());
+
+        assertThat(dispatcher.dispatchBatch()).isZero();
+
+        verify(fcmClient, never()).sendAll(anyList());
+    }
+
+    @Test
+    @DisplayName("claim → 시도 횟수 증가, claimTimeout 동안 다른 디스패처에서 숨김")
+    void dispatchBatch_claimsRowsForClaimTimeout() {
+        PushOutboxMessage message = row(1, "device-1");
+        given(repository.lockDue(any(), anyInt())).willReturn(List.of(message));
+        given(fcmClient.sendAll(anyList())).willAnswer(invocation -> {
+            // FCM 호출 시점에는 이미 claim이 커밋된 상태
+            assertThat(message.getAttempts()).isEqualTo(1);
+            assertThat(message.getNextAttemptAt()).isAfter(LocalDateTime.now().plusMinutes(4));
+            List<FcmMessage> messages = invocation.getArgument(0);
+            return List.of(ok(messages.get(0)));
+        });
+
+        dispatcher.dispatchBatch();
+
+        verify(repository).lockDue(any(), eq(10));
+    }
+
+    @Test
+    @DisplayName("성공 → 삭제, 일시 오류 → 백오프 후 재시도, 영구 오류 → dead-letter")
+    void dispatchBatch_recordsEachOutcome() {
+        PushOutboxMessage delivered = row(1, "device-1");
+        PushOutboxMessage unavailable = row(2, "device-2");
+        PushOutboxMessage unregistered = row(3, "stale-device");
+        given(repository.lockDue(any(), anyInt())).willReturn(List.of(delivered, unavailable, unregistered));
+        given(fcmClient.sendAll(anyList())).willAnswer(invocation -> {
+            List<FcmMessage> messages = invocation.getArgument(0);
+            return List.of(ok(messages.get(0)), failed(messages.get(1), 503, "UNAVAILABLE"),
+                    failed(messages.get(2), 404, "UNREGISTERED"));
+        });
+        given(repository.deleteClaimed(1L, 0L)).willReturn(1);
+        given(repository.updateClaimed(anyLong(), anyLong(), any(), any(), any())).willReturn(1);
+
+        assertThat(dispatcher.dispatchBatch()).isEqualTo(3);
+
+        verify(repository).deleteClaimed(1L, 0L);
+        verify(repository).updateClaimed(eq(2L), eq(0L), eq(PushOutboxMessage.Status.PENDING), any(), startsWith("UNAVAILABLE"));
+        verify(repository).updateClaimed(eq(3L), eq(0L), eq(PushOutboxMessage.Status.DEAD), any(), startsWith("UNREGISTERED"));
+        assertThat(unavailable.getStatus()).isEqualTo(PushOutboxMessage.Status.PENDING);
+        assertThat(unavailable.getNextAttemptAt()).isBefore(LocalDateTime.now().plusSeconds(6));
+        assertThat(unavailable.getLastError()).startsWith("UNAVAILABLE");
+        assertThat(unregistered.getStatus()).isEqualTo(PushOutboxMessage.Status.DEAD);
+        assertThat(dispatched("sent")).isEqualTo(1.0);
+        assertThat(dispatched("retried")).isEqualTo(1.0);
+        assertThat(dispatched("dead")).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("maxAttempts 도달 → 일시 오류여도 dead-letter")
+    void dispatchBatch_lastAttempt_deadLetters() {
+        PushOutboxMessage message = row(1, "device-1");
+        ReflectionTestUtils.setField(message, "attempts", 2);
+        given(repository.lockDue(any(), anyInt())).willReturn(List.of(message));
+        given(fcmClient.sendAll(anyList())).willAnswer(invocation -> {
+            List<FcmMessage> messages = invocation.getArgument(0);
+            return List.of(failed(messages.get(0), 500, "INTERNAL"));
+        });
+        given(repository.updateClaimed(anyLong(), anyLong(), any(), any(), any())).willReturn(1);
+
+        dispatcher.dispatchBatch();
+
+        assertThat(message.getAttempts()).isEqualTo(3);
+        assertThat(message.getStatus()).isEqualTo(PushOutboxMessage.Status.DEAD);
+        verify(repository, never()).deleteClaimed(any(), anyLong());
+    }
+
+    @Test
+    @DisplayName("배치가 claimTimeout을 넘겨 다른 디스패처가 다시 claim → 결과를 덮어쓰지도 삭제하지도 않음")
+    void dispatchBatch_claimLostBeforeRecord_leavesRowsToNewClaimer() {
+        PushOutboxMessage delivered = row(1, "device-1");
+        PushOutboxMessage unavailable = row(2, "device-2");
+        given(repository.lockDue(any(), anyInt())).willReturn(List.of(delivered, unavailable));
+        given(fcmClient.sendAll(anyList())).willAnswer(invocation -> {
+            List<FcmMessage> messages = invocation.getArgument(0);
+            return List.of(ok(messages.get(0)), failed(messages.get(1), 503, "UNAVAILABLE"));
+        });
+        // FCM 호출 중 다른 레플리카가 두 행을 다시 claim해 version이 바뀐 상태
+        given(repository.deleteClaimed(1L, 0L)).willReturn(0);
+        given(repository.updateClaimed(eq(2L), eq(0L), any(), any(), any())).willReturn(0);
+
+        assertThat(dispatcher.dispatchBatch()).isEqualTo(2);
+
+        assertThat(dispatched("claim_lost")).isEqualTo(2.0);
+        assertThat(dispatched("sent")).isZero();
+        assertThat(dispatched("retried")).isZero();
+    }
+
+    @Test
+    @DisplayName("백오프는 시도마다 두 배, maxBackoff를 넘지 않음")
+    void backoff_isCappedByMaxBackoff() {
+        for (int i = 0; i < 100; i++) {
+            assertThat(dispatcher.backoff(1).toMillis()).isLessThanOrEqualTo(5_000L);
+            assertThat(dispatcher.backoff(3).toMillis()).isLessThanOrEqualTo(20_000L);
+            assertThat(dispatcher.backoff(40).toMillis()).isLessThanOrEqualTo(600_000L);
+        }
+    }
+
+    @Test
+    @DisplayName("stop() → 진행 중인 배치의 결과를 기록할 때까지 대기")
+    void stop_drainsBatchInFlight() throws Exception {
+        PushOutboxMessage message = row(1, "device-1");
+        CountDownLatch sending = new CountDownLatch(1);
+        given(repository.lockDue(any(), anyInt())).willReturn(List.of(message), List.of());
+        given(fcmClient.sendAll(anyList())).willAnswer(invocation -> {
+            sending.countDown();
+            Thread.sleep(300);
+            List<FcmMessage> messages = invocation.getArgument(0);
+            return List.of(ok(messages.get(0)));
+        });
+        given(repository.deleteClaimed(1L, 0L)).willReturn(1);
+
+        dispatcher.start();
+        assertThat(sending.await(5, TimeUnit.SECONDS)).isTrue();
+        dispatcher.stop();
+
+        assertThat(dispatcher.isRunning()).isFalse();
+        verify(repository).deleteClaimed(1L, 0L);
+    }
+
+    @Test
+    @DisplayName("FCM 클라이언트 미설정 → 자동 시작하지 않음")
+    void isAutoStartup_withoutFcmClient_isFalse() {
+        PushOutboxDispatcher idle = new PushOutboxDispatcher(Optional.empty(), repository, transactionManager,
+                properties, meterRegistry);
+
+        assertThat(idle.isAutoStartup()).isFalse();
+        assertThat(dispatcher.isAutoStartup()).isTrue();
+    }
+}
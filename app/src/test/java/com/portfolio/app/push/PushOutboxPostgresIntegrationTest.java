@@ -0,0 +1,128 @@
+package com.portfolio.app.push;
+
+import com.portfolio.app.support.PostgresContainerSupport;
+import com.portfolio.fcm.FcmClient;
+import com.portfolio.fcm.FcmMessage;
+import com.portfolio.fcm.FcmSendResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+@SpringBootTest
+@ActiveProfiles("test-pg")
+class PushOutboxPostgresIntegrationTest extends PostgresContainerSupport {
+
+    @Autowired
+    private PushOutboxRepository repository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactions;
+
+    @BeforeEach
+    void setUp() {
+        transactions = new TransactionTemplate(transactionManager);
+        repository.deleteAll();
+    }
+
+    @Test
+    void lockDue_concurrentTransactions_claimDisjointRows() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            repository.save(new PushOutboxMessage("device-" + i, "Title", "Body"));
+        }
+        CountDownLatch firstLocked = new CountDownLatch(1);
+        CountDownLatch secondDone = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // The first transaction holds its row locks until the second one has claimed
+            Future<List<Long>> first = executor.submit(() -> transactions.execute(status -> {
+                List<Long> ids = ids(repository.lockDue(LocalDateTime.now(), 6));
+                firstLocked.countDown();
+                try {
+                    secondDone.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return ids;
+            }));
+            assertThat(firstLocked.await(10, TimeUnit.SECONDS)).isTrue();
+
+            List<Long> second = transactions.execute(status -> ids(repository.lockDue(LocalDateTime.now(), 6)));
+            secondDone.countDown();
+            List<Long> firstIds = first.get(10, TimeUnit.SECONDS);
+
+            assertThat(firstIds).hasSize(6);
+            assertThat(second).hasSize(4);
+            assertThat(second).doesNotContainAnyElementsOf(firstIds);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void lockDue_skipsDeadAndNotYetDueRows() {
+        PushOutboxMessage due = repository.save(new PushOutboxMessage("due", "Title", "Body"));
+        PushOutboxMessage later = new PushOutboxMessage("later", "Title", "Body");
+        later.retryAt(LocalDateTime.now().plusMinutes(5), "UNAVAILABLE: busy");
+        repository.save(later);
+        PushOutboxMessage dead = new PushOutboxMessage("dead", "Title", "Body");
+        dead.deadLetter("UNREGISTERED: gone");
+        repository.save(dead);
+
+        List<Long> claimed = transactions.execute(status -> ids(repository.lockDue(LocalDateTime.now(), 10)));
+
+        assertThat(claimed).containsExactly(due.getId());
+    }
+
+    @Test
+    void dispatchBatch_rowReclaimedBeforeRecord_isLeftToNewClaimer() {
+        PushOutboxMessage saved = repository.save(new PushOutboxMessage("device", "Title", "Body"));
+        FcmClient fcmClient = mock(FcmClient.class);
+        PushOutboxProperties properties = new PushOutboxProperties(true, 1, 10, Duration.ofSeconds(1), Duration.ZERO,
+                3, Duration.ofSeconds(5), Duration.ofMinutes(10), Duration.ofSeconds(5));
+        PushOutboxDispatcher dispatcher = new PushOutboxDispatcher(Optional.of(fcmClient), repository, transactionManager,
+                properties, new SimpleMeterRegistry());
+        given(fcmClient.sendAll(anyList())).willAnswer(invocation -> {
+            // The claim has already run out: another dispatcher claims the row while this batch is in flight
+            transactions.executeWithoutResult(status -> repository.lockDue(LocalDateTime.now(), 10)
+                    .forEach(message -> message.claim(LocalDateTime.now().plusMinutes(5))));
+            List<FcmMessage> messages = invocation.getArgument(0);
+            return List.of(new FcmSendResult(messages.get(0), true, "projects/p/messages/1", 200, null, null));
+        });
+
+        assertThat(dispatcher.dispatchBatch()).isEqualTo(1);
+
+        PushOutboxMessage row = repository.findById(saved.getId()).orElseThrow();
+        assertThat(row.getAttempts()).isEqualTo(2);
+        assertThat(row.getStatus()).isEqualTo(PushOutboxMessage.Status.PENDING);
+        assertThat(row.getNextAttemptAt()).isAfter(LocalDateTime.now().plusMinutes(4));
+    }
+
+    private static List<Long> ids(List<PushOutboxMessage> messages) {
+        List<Long> ids = new ArrayList<>();
+        messages.forEach(message -> ids.add(message.getId()));
+        return ids;
+    }
+}
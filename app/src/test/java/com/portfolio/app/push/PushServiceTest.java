@@ -6,6 +6,7 @@ import com.portfolio.fcm.FcmMessage;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
@@ -13,7 +14,9 @@ import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 
 @ExtendWith(MockitoExtension.class)
 class PushServiceTest {
@@ -21,36 +24,46 @@ class PushServiceTest {
     @Mock
     private FcmClient fcmClient;
 
+    @Mock
+    private PushOutboxRepository pushOutboxRepository;
+
     @Test
-    @DisplayName("FCM 클라이언트가 설정된 경우 푸시 전송 성공")
-    void sendPush_configured_delegatesToFcmClient() {
-        PushService service = new PushService(Optional.of(fcmClient));
+    @DisplayName("FCM 클라이언트가 설정된 경우 푸시를 outbox에 저장하고 FCM은 호출하지 않음")
+    void sendPush_configured_enqueuesInOutbox() {
+        PushService service = new PushService(Optional.of(fcmClient), pushOutboxRepository);
         PushRequest request = new PushRequest("device-token", "Title", "Body");
 
         service.sendPush(request);
 
-        verify(fcmClient).send(any(FcmMessage.class));
+        verify(pushOutboxRepository).save(any(PushOutboxMessage.class));
+        verifyNoInteractions(fcmClient);
     }
 
     @Test
-    @DisplayName("FCM 메시지에 요청 내용이 올바르게 매핑됨")
-    void sendPush_mapsRequestToFcmMessage() {
-        PushService service = new PushService(Optional.of(fcmClient));
+    @DisplayName("outbox 행에 요청 내용이 올바르게 매핑됨")
+    void sendPush_mapsRequestToOutboxMessage() {
+        PushService service = new PushService(Optional.of(fcmClient), pushOutboxRepository);
         PushRequest request = new PushRequest("my-device", "Hello", "World");
 
         service.sendPush(request);
 
-        verify(fcmClient).send(new FcmMessage("my-device", "Hello", "World", null));
+        ArgumentCaptor<PushOutboxMessage> saved = ArgumentCaptor.forClass(PushOutboxMessage.class);
+        verify(pushOutboxRepository).save(saved.capture());
+        assertThat(saved.getValue().getDeviceToken()).isEqualTo("my-device");
+        assertThat(saved.getValue().getStatus()).isEqualTo(PushOutboxMessage.Status.PENDING);
+        assertThat(saved.getValue().getAttempts()).isZero();
+        assertThat(saved.getValue().toFcmMessage()).isEqualTo(new FcmMessage("my-device", "Hello", "World", null));
     }
 
     @Test
-    @DisplayName("FCM 클라이언트 미설정 시 예외")
+    @DisplayName("FCM 클라이언트 미설정 시 예외, outbox에 저장하지 않음")
     void sendPush_notConfigured_throwsException() {
-        PushService service = new PushService(Optional.empty());
+        PushService service = new PushService(Optional.empty(), pushOutboxRepository);
         PushRequest request = new PushRequest("device-token", "Title", "Body");
 
         assertThatThrownBy(() -> service.sendPush(request))
                 .isInstanceOf(IllegalStateException.class)
                 .hasMessageContaining("FCM client not configured");
+        verify(pushOutboxRepository, never()).save(any());
     }
 }
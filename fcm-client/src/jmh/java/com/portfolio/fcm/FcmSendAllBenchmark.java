@@ -0,0 +1,98 @@
+package com.portfolio.fcm;
+
+import com.portfolio.oauth2.awt.core.AssertionConfig;
+import com.portfolio.oauth2.awt.core.AssertionTokenClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+
+import java.security.KeyPairGenerator;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * {@link FcmClient#sendAll} of a 1,000-message batch with 200 sends in flight against the local
+ * {@link StubFcmEndpoint} (20 ms per send, 30 ms per new connection), over
+ * {@code HttpURLConnection} ({@code http1}, the plain {@code RestClient} setup) and over
+ * {@link FcmHttp2RequestFactory} with two connections ({@code http2}). The connections the stub
+ * accepted are printed after each trial: HTTP/1.1 keeps reconnecting once its keep-alive pool
+ * is full, HTTP/2 stays on two.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FcmSendAllBenchmark {
+
+    @Param({"http1", "http2"})
+    public String transport;
+
+    private StubFcmEndpoint endpoint;
+    private AssertionTokenClient tokenClient;
+    private FcmHttp2RequestFactory http2;
+    private FcmClient client;
+    private List<FcmMessage> batch;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        endpoint = new StubFcmEndpoint(Duration.ofMillis(20), Duration.ofMillis(30), 100);
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        tokenClient = new AssertionTokenClient(AssertionConfig.builder()
+                .provider(AssertionConfig.Provider.GOOGLE)
+                .clientId("bench@project.iam.gserviceaccount.com")
+                .tokenEndpoint(endpoint.tokenUrl())
+                .scopes(List.of("https://www.googleapis.com/auth/firebase.messaging"))
+                .privateKey(generator.generateKeyPair().getPrivate())
+                .build());
+
+        ClientHttpRequestFactory requestFactory = switch (transport) {
+            case "http1" -> new SimpleClientHttpRequestFactory();
+            case "http2" -> http2 = new FcmHttp2RequestFactory(
+                    new FcmConfig.Transport(2, 100, Duration.ofSeconds(5), Duration.ofSeconds(10)));
+            default -> throw new IllegalArgumentException(transport);
+        };
+        // The stub never throttles: start the adaptive limit at the concurrency under test
+        FcmConfig.RateControl rateControl = new FcmConfig.RateControl(
+                200, 1, 200, Duration.ofSeconds(2), 3, Duration.ofMillis(500), Duration.ofSeconds(60));
+        client = new FcmClient(new FcmConfig(null, endpoint.sendUrl(), 200, null, rateControl), tokenClient,
+                RestClient.builder().requestFactory(requestFactory).build(), new SimpleMeterRegistry());
+        batch = IntStream.range(0, 1000)
+                .mapToObj(i -> new FcmMessage("device-" + i, "Title", "Body", null))
+                .toList();
+
+        List<FcmSendResult> failed = client.sendAll(batch).stream().filter(r -> !r.success()).toList();
+        if (!failed.isEmpty()) {
+            throw new IllegalStateException(failed.size() + " sends failed, e.g. " + failed.get(0));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        System.out.printf("%n%s: stub accepted %d connections, %d of them HTTP/2%n",
+                transport, endpoint.acceptedConnections(), endpoint.http2Connections());
+        client.close();
+        if (http2 != null) {
+            http2.close();
+        }
+        tokenClient.close();
+        endpoint.close();
+    }
+
+    @Benchmark
+    public List<FcmSendResult> sendAll() {
+        return client.sendAll(batch);
+    }
+}
@@ -0,0 +1,313 @@
+package com.portfolio.fcm;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process FCM send endpoint on the loopback interface that speaks HTTP/1.1 and cleartext
+ * HTTP/2 ({@code h2c}, by upgrade or prior knowledge), so benchmarks compare transports offline.
+ * <p>
+ * Every send is answered with a message name after {@code latency}, standing in for the round
+ * trip to FCM; HTTP/2 answers are scheduled, so concurrent streams on one connection overlap.
+ * Each new connection first waits {@code connectDelay}, standing in for the TCP and TLS
+ * handshakes that loopback does not have. {@code POST /token} answers a one-hour access token
+ * over HTTP/1.1 for the {@code AssertionTokenClient}.
+ * <p>
+ * The HTTP/2 side is the minimum the JDK client needs: request headers are never decoded,
+ * responses are HPACK-encoded by hand, and flow control only returns what the client sent.
+ */
+final class StubFcmEndpoint implements AutoCloseable {
+
+    private static final byte[] SEND_RESPONSE =
+            "{\"name\":\"projects/bench/messages/0:1500415314455276%31bd1c96\"}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] TOKEN_RESPONSE =
+            "{\"access_token\":\"stub-access-token\",\"expires_in\":3600,\"token_type\":\"Bearer\"}"
+                    .getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PREFACE = "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int DATA = 0x0, HEADERS = 0x1, SETTINGS = 0x4, PING = 0x6, GOAWAY = 0x7, WINDOW_UPDATE = 0x8;
+    private static final int FLAG_END_STREAM = 0x1, FLAG_ACK = 0x1, FLAG_END_HEADERS = 0x4;
+    private static final int SETTINGS_MAX_CONCURRENT_STREAMS = 0x3;
+
+    private final Duration latency;
+    private final Duration connectDelay;
+    private final int maxConcurrentStreams;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections = Executors.newCachedThreadPool(daemon("stub-fcm-conn"));
+    private final ScheduledExecutorService responder = Executors.newScheduledThreadPool(4, daemon("stub-fcm-respond"));
+    private final AtomicInteger accepted = new AtomicInteger();
+    private final AtomicInteger http2Connections = new AtomicInteger();
+
+    StubFcmEndpoint(Duration latency, Duration connectDelay, int maxConcurrentStreams) throws IOException {
+        this.latency = latency;
+        this.connectDelay = connectDelay;
+        this.maxConcurrentStreams = maxConcurrentStreams;
+        this.serverSocket = new ServerSocket(0, 1024, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::acceptLoop, "stub-fcm-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    String sendUrl() {
+        return baseUrl() + "/v1/projects/bench/messages:send";
+    }
+
+    String tokenUrl() {
+        return baseUrl() + "/token";
+    }
+
+    /** Connections accepted so far, HTTP/1.1 and HTTP/2. */
+    int acceptedConnections() {
+        return accepted.get();
+    }
+
+    int http2Connections() {
+        return http2Connections.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        connections.shutdownNow();
+        responder.shutdownNow();
+    }
+
+    private String baseUrl() {
+        return "http://" + serverSocket.getInetAddress().getHostAddress() + ":" + serverSocket.getLocalPort();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                accepted.incrementAndGet();
+                connections.execute(() -> serve(socket));
+            } catch (IOException ex) {
+                // Closed
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            sleep(connectDelay.toMillis());
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            OutputStream out = socket.getOutputStream();
+            while (true) {
+                String requestLine = readLine(in);
+                if (requestLine == null) {
+                    return;
+                }
+                if (requestLine.equals("PRI * HTTP/2.0")) {
+                    in.readFully(new byte[PREFACE.length - requestLine.length() - 2]);
+                    serveHttp2(in, out, false);
+                    return;
+                }
+                Map<String, String> headers = readHeaders(in);
+                String contentLength = headers.get("content-length");
+                in.readFully(new byte[contentLength != null ? Integer.parseInt(contentLength) : 0]);
+                boolean token = requestLine.contains(" /token ");
+                if (!token && "h2c".equalsIgnoreCase(headers.get("upgrade"))) {
+                    out.write(("HTTP/1.1 101 Switching Protocols\r\nConnection: Upgrade\r\nUpgrade: h2c\r\n\r\n")
+                            .getBytes(StandardCharsets.US_ASCII));
+                    serveHttp2(in, out, true);
+                    return;
+                }
+                if (!token) {
+                    sleep(latency.toMillis());
+                }
+                byte[] body = token ? TOKEN_RESPONSE : SEND_RESPONSE;
+                out.write(("HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nContent-Length: " + body.length + "\r\n\r\n")
+                        .getBytes(StandardCharsets.US_ASCII));
+                out.write(body);
+                out.flush();
+                if ("close".equalsIgnoreCase(headers.get("connection"))) {
+                    return;
+                }
+            }
+        } catch (IOException ex) {
+            // Client went away
+        }
+    }
+
+    /**
+     * @param upgraded whether stream 1 is the HTTP/1.1 request that asked for the upgrade, whose
+     *                 response is owed over HTTP/2
+     */
+    private void serveHttp2(DataInputStream in, OutputStream out, boolean upgraded) throws IOException {
+        http2Connections.incrementAndGet();
+        Http2Writer writer = new Http2Writer(out);
+        writer.frame(SETTINGS, 0, 0, new byte[]{0, SETTINGS_MAX_CONCURRENT_STREAMS,
+                (byte) (maxConcurrentStreams >>> 24), (byte) (maxConcurrentStreams >>> 16),
+                (byte) (maxConcurrentStreams >>> 8), (byte) maxConcurrentStreams});
+        if (upgraded) {
+            byte[] preface = new byte[PREFACE.length];
+            in.readFully(preface);
+            respondLater(writer, 1);
+        }
+        while (true) {
+            int length;
+            try {
+                length = in.readUnsignedShort() << 8 | in.readUnsignedByte();
+            } catch (EOFException ex) {
+                return;
+            }
+            int type = in.readUnsignedByte();
+            int flags = in.readUnsignedByte();
+            int streamId = in.readInt() & 0x7fffffff;
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            switch (type) {
+                case DATA -> {
+                    if (length > 0) {
+                        writer.frame(WINDOW_UPDATE, 0, 0, int32(length));
+                        if ((flags & FLAG_END_STREAM) == 0) {
+                            writer.frame(WINDOW_UPDATE, 0, streamId, int32(length));
+                        }
+                    }
+                    if ((flags & FLAG_END_STREAM) != 0) {
+                        respondLater(writer, streamId);
+                    }
+                }
+                case HEADERS -> {
+                    if ((flags & FLAG_END_STREAM) != 0) {
+                        respondLater(writer, streamId);
+                    }
+                }
+                case SETTINGS -> {
+                    if ((flags & FLAG_ACK) == 0) {
+                        writer.frame(SETTINGS, FLAG_ACK, 0, new byte[0]);
+                    }
+                }
+                case PING -> {
+                    if ((flags & FLAG_ACK) == 0) {
+                        writer.frame(PING, FLAG_ACK, 0, payload);
+                    }
+                }
+                case GOAWAY -> {
+                    return;
+                }
+                default -> {
+                    // PRIORITY, RST_STREAM, WINDOW_UPDATE, CONTINUATION: nothing to do
+                }
+            }
+        }
+    }
+
+    private void respondLater(Http2Writer writer, int streamId) {
+        responder.schedule(() -> {
+            try {
+                writer.response(streamId, SEND_RESPONSE);
+            } catch (IOException ex) {
+                // Client went away
+            }
+        }, latency.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b == -1) {
+                return null;
+            }
+            if (b != '\r') {
+                line.write(b);
+            }
+        }
+        return line.toString(StandardCharsets.US_ASCII);
+    }
+
+    private static Map<String, String> readHeaders(InputStream in) throws IOException {
+        Map<String, String> headers = new HashMap<>();
+        String line;
+        while ((line = readLine(in)) != null && !line.isEmpty()) {
+            int colon = line.indexOf(':');
+            headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+        }
+        return headers;
+    }
+
+    private static byte[] int32(int value) {
+        return new byte[]{(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicInteger threads = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /** Frames from the reader and the responder threads share one socket. */
+    private static final class Http2Writer {
+
+        /** {@code :status: 200} (static table 8), {@code content-type: application/json} (literal, name index 31). */
+        private static final byte[] RESPONSE_HEADERS;
+
+        static {
+            byte[] contentType = "application/json".getBytes(StandardCharsets.US_ASCII);
+            RESPONSE_HEADERS = new byte[4 + contentType.length];
+            RESPONSE_HEADERS[0] = (byte) 0x88;
+            RESPONSE_HEADERS[1] = 0x0f;
+            RESPONSE_HEADERS[2] = 0x10;
+            RESPONSE_HEADERS[3] = (byte) contentType.length;
+            System.arraycopy(contentType, 0, RESPONSE_HEADERS, 4, contentType.length);
+        }
+
+        private final OutputStream out;
+
+        Http2Writer(OutputStream out) {
+            this.out = out;
+        }
+
+        synchronized void response(int streamId, byte[] body) throws IOException {
+            writeFrame(HEADERS, FLAG_END_HEADERS, streamId, RESPONSE_HEADERS);
+            writeFrame(DATA, FLAG_END_STREAM, streamId, body);
+            out.flush();
+        }
+
+        synchronized void frame(int type, int flags, int streamId, byte[] payload) throws IOException {
+            writeFrame(type, flags, streamId, payload);
+            out.flush();
+        }
+
+        private void writeFrame(int type, int flags, int streamId, byte[] payload) throws IOException {
+            out.write(new byte[]{
+                    (byte) (payload.length >>> 16), (byte) (payload.length >>> 8), (byte) payload.length,
+                    (byte) type, (byte) flags,
+                    (byte) (streamId >>> 24), (byte) (streamId >>> 16), (byte) (streamId >>> 8), (byte) streamId});
+            out.write(payload);
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.portfolio.fcm;
 
 import com.portfolio.oauth2.awt.core.AssertionTokenClient;
+import com.portfolio.oauth2.awt.core.TokenResponse;
+import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
@@ -8,37 +10,268 @@ import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.web.client.RestClient;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestClientResponseException;
 
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 /**
  * FCM HTTP v1 API client with Micrometer metrics.
+ * <p>
+ * {@link #send} sends one message and throws on failure. {@link #sendAll} sends many with
+ * {@link FcmConfig#maxConcurrentSends()} requests in flight, so throughput follows the
+ * concurrency rather than the round-trip time, and reports each message's outcome instead of
+ * stopping at the first failure. {@link #sendAsync} sends one message without blocking the
+ * caller or any thread while the token is looked up and the request is in flight, for callers
+ * such as request handlers that should not park a thread on FCM; it needs the client built on
+ * an {@link FcmHttp2RequestFactory}.
+ * <p>
+ * All of them share one {@link FcmRateController}, which adapts the requests in flight to what
+ * FCM accepts and holds sends back while a {@code Retry-After} lasts, and they retry sends that
+ * failed with {@code UNAVAILABLE} or {@code INTERNAL}, see {@link FcmConfig.RateControl}. Other
+ * errors, {@code QUOTA_EXCEEDED} included, are left to the caller. A request that got no response
+ * is retried only if it provably never reached FCM, i.e. the connection could not be opened or
+ * no HTTP/2 stream freed up for it; a timeout or a dropped connection after the request went out
+ * may have delivered the push, and sending it again would notify the device twice, so it comes
+ * back as a failed {@code UNAVAILABLE} result (or exception) for the caller, e.g. the outbox, to
+ * retry or not.
+ * <p>
+ * {@link #sendAll} runs on sender threads owned by the client and kept between batches;
+ * {@link #close()} releases them.
  */
-public class FcmClient {
+public class FcmClient implements AutoCloseable {
 
     private static final Logger log = LoggerFactory.getLogger(FcmClient.class);
 
+    /** How long a batch reuses one access token before looking it up again. */
+    private static final Duration BATCH_TOKEN_WINDOW = Duration.ofSeconds(30);
+    /** A batch never sends a token this close to its expiry. */
+    private static final Duration BATCH_TOKEN_EXPIRY_MARGIN = Duration.ofSeconds(60);
+    /** FCM's transient errors, the only ones a retry of the same request can fix. */
+    private static final Set<String> RETRYABLE_ERRORS = Set.of("UNAVAILABLE", "INTERNAL");
+
     private final FcmConfig config;
     private final AssertionTokenClient tokenClient;
     private final RestClient restClient;
+    private final FcmHttp2RequestFactory asyncTransport;
+    private final FcmRateController rateController;
     private final Timer sendTimer;
+    private final Counter retries;
+    private final ExecutorService senders;
 
     public FcmClient(FcmConfig config,
                      AssertionTokenClient tokenClient,
                      RestClient restClient,
                      MeterRegistry meterRegistry) {
+        this(config, tokenClient, restClient, null, meterRegistry);
+    }
+
+    /**
+     * Sends over {@code requestFactory}, both through a {@code RestClient} on it and, for
+     * {@link #sendAsync}, directly.
+     */
+    public FcmClient(FcmConfig config,
+                     AssertionTokenClient tokenClient,
+                     FcmHttp2RequestFactory requestFactory,
+                     MeterRegistry meterRegistry) {
+        this(config, tokenClient,
+                RestClient.builder()
+                        .requestFactory(requestFactory)
+                        .defaultHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+                        .build(),
+                requestFactory, meterRegistry);
+    }
+
+    private FcmClient(FcmConfig config,
+                      AssertionTokenClient tokenClient,
+                      RestClient restClient,
+                      FcmHttp2RequestFactory asyncTransport,
+                      MeterRegistry meterRegistry) {
         this.config = config;
         this.tokenClient = tokenClient;
         this.restClient = restClient;
+        this.asyncTransport = asyncTransport;
+        this.rateController = new FcmRateController(config.rateControl(),
+                config.projectId() != null ? config.projectId() : config.resolvedSendEndpoint(), meterRegistry);
         this.sendTimer = Timer.builder("fcm.send.duration")
                 .description("FCM message send latency")
                 .register(meterRegistry);
+        this.retries = Counter.builder("fcm.send.retries")
+                .description("FCM requests retried after UNAVAILABLE or INTERNAL")
+                .register(meterRegistry);
+        AtomicInteger threads = new AtomicInteger();
+        // Shared by concurrent batches, so not bounded by maxConcurrentSends; idle threads expire
+        this.senders = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "fcm-send-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
     }
 
     public void send(FcmMessage message) {
         sendTimer.record(() -> doSend(message));
     }
 
+    /**
+     * Sends every message and returns their results in the same order. Blocks until all are done.
+     */
+    public List<FcmSendResult> sendAll(Iterable<FcmMessage> messages) {
+        List<FcmMessage> batch = new ArrayList<>();
+        messages.forEach(batch::add);
+        FcmSendResult[] results = new FcmSendResult[batch.size()];
+        dispatch(batch.iterator(), Math.min(batch.size(), config.maxConcurrentSends()),
+                (index, result) -> results[index] = result);
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Streaming variant of {@link #sendAll(Iterable)} for batches too large to hold, e.g. read
+     * from a database cursor: messages are pulled as sending capacity frees up, and each
+     * result goes to {@code onResult} as it arrives instead of being kept. {@code onResult} is
+     * called from the sending threads, possibly concurrently. Blocks until all are done.
+     *
+     * @throws RuntimeException from {@code messages} or {@code onResult}, once the requests
+     *                          already in flight have finished; no further messages are sent
+     */
+    public void sendAll(Iterable<FcmMessage> messages, Consumer<FcmSendResult> onResult) {
+        dispatch(messages.iterator(), config.maxConcurrentSends(), (index, result) -> onResult.accept(result));
+    }
+
+    /**
+     * Sends one message without blocking. The future completes with the message's result,
+     * failures included, on the transport's threads; {@link #send} would have thrown for the
+     * unsuccessful ones. Cancelling it cancels the request if it is still in flight.
+     *
+     * @throws IllegalStateException if this client was not built on an {@link FcmHttp2RequestFactory}
+     */
+    public CompletableFuture<FcmSendResult> sendAsync(FcmMessage message) {
+        if (asyncTransport == null) {
+            throw new IllegalStateException("sendAsync needs an FcmClient built on an FcmHttp2RequestFactory");
+        }
+        long start = System.nanoTime();
+        CompletableFuture<String> token = tokenClient.getAccessTokenAsync(asyncTransport.executor());
+        CompletableFuture<FcmSendResult> result = new CompletableFuture<>();
+        // The token future is shared with other callers: never cancel it, only stop waiting for it
+        token.whenComplete((accessToken, tokenFailure) -> {
+            if (tokenFailure != null) {
+                result.complete(FcmSendResult.fromException(message, unwrap(tokenFailure)));
+                return;
+            }
+            if (result.isDone()) {
+                return;
+            }
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken);
+            headers.set(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+            headers.set(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE);
+            sendAsync(message, headers, message.toJson().getBytes(StandardCharsets.UTF_8), 1, result);
+        });
+        result.whenComplete((sent, failure) -> sendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        return result;
+    }
+
+    /**
+     * {@link #sendAsync(FcmMessage)} that gives up after {@code timeout}, token lookup included:
+     * the future then fails with a {@link java.util.concurrent.TimeoutException} and the request
+     * is cancelled.
+     */
+    public CompletableFuture<FcmSendResult> sendAsync(FcmMessage message, Duration timeout) {
+        return sendAsync(message).orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Makes attempt number {@code attempt} of {@link #sendAsync(FcmMessage)} once the rate
+     * controller lets it, and the next one after the backoff if it may be retried. Nothing
+     * blocks: the controller's wait and the backoff are futures, and each step stops once
+     * {@code result} is done, e.g. because the caller cancelled it or timed out.
+     */
+    private void sendAsync(FcmMessage message, HttpHeaders headers, byte[] body, int attempt,
+                           CompletableFuture<FcmSendResult> result) {
+        if (result.isDone()) {
+            return;
+        }
+        CompletableFuture<FcmRateController.Permit> slot = rateController.acquire();
+        result.whenComplete((sent, failure) -> slot.cancel(false));
+        slot.thenAccept(permit -> {
+            if (result.isDone()) {
+                permit.release();
+                return;
+            }
+            CompletableFuture<HttpResponse<byte[]>> exchange =
+                    asyncTransport.postAsync(URI.create(config.resolvedSendEndpoint()), headers, body);
+            result.whenComplete((sent, failure) -> exchange.cancel(true));
+            exchange.whenComplete((response, failure) -> {
+                FcmSendResult sent;
+                Duration retryAfter = null;
+                boolean retryable;
+                if (failure != null) {
+                    Exception ex = unwrap(failure);
+                    if (ex instanceof CancellationException) {
+                        permit.release();
+                    } else {
+                        permit.complete(0, null);
+                    }
+                    sent = FcmSendResult.fromException(message, ex);
+                    retryable = neverSent(ex);
+                } else {
+                    int status = response.statusCode();
+                    if (FcmRateController.isThrottled(status)) {
+                        retryAfter = FcmRateController.parseRetryAfter(
+                                response.headers().firstValue(HttpHeaders.RETRY_AFTER).orElse(null));
+                    }
+                    permit.complete(status, retryAfter);
+                    sent = FcmSendResult.fromResponse(message, status,
+                            FcmJson.parseObject(new String(response.body(), StandardCharsets.UTF_8)));
+                    retryable = isRetryable(sent.errorCode());
+                }
+                if (!retryable || attempt > config.rateControl().maxRetries() || result.isDone()) {
+                    result.complete(sent);
+                    return;
+                }
+                retries.increment();
+                CompletableFuture.delayedExecutor(rateController.retryDelay(attempt, retryAfter).toNanos(),
+                                TimeUnit.NANOSECONDS, asyncTransport.executor())
+                        .execute(() -> sendAsync(message, headers, body, attempt + 1, result));
+            });
+        });
+    }
+
+    /**
+     * Stops the {@link #sendAll} threads once the batches in progress are done; later batches
+     * fail with {@link IllegalStateException}. The request factory is left open for its owner.
+     */
+    @Override
+    public void close() {
+        senders.shutdown();
+    }
+
     private void doSend(FcmMessage message) {
         String accessToken = tokenClient.getAccessToken();
         String endpoint = config.resolvedSendEndpoint();
@@ -47,14 +280,245 @@ public class FcmClient {
 
         Map<String, Object> body = message.toRequestBody();
 
-        restClient.post()
-                .uri(endpoint)
-                .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken)
-                .contentType(MediaType.APPLICATION_JSON)
-                .body(body)
-                .retrieve()
-                .toBodilessEntity();
+        for (int attempt = 1; ; attempt++) {
+            FcmRateController.Permit permit = rateController.acquireBlocking();
+            try {
+                restClient.post()
+                        .uri(endpoint)
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(body)
+                        .retrieve()
+                        .toBodilessEntity();
+                permit.complete(200, null);
+                break;
+            } catch (RestClientResponseException ex) {
+                int status = ex.getStatusCode().value();
+                Duration retryAfter = retryAfter(status, ex.getResponseHeaders());
+                permit.complete(status, retryAfter);
+                String errorCode = FcmSendResult.fromResponse(message, status,
+                        FcmJson.parseObject(ex.getResponseBodyAsString())).errorCode();
+                if (!backOffToRetry(attempt, errorCode, retryAfter)) {
+                    throw ex;
+                }
+            } catch (ResourceAccessException ex) {
+                permit.complete(0, null);
+                if (!neverSent(ex) || !backOffToRetry(attempt, "UNAVAILABLE", null)) {
+                    throw ex;
+                }
+            } catch (RuntimeException ex) {
+                permit.release();
+                throw ex;
+            }
+        }
 
         log.info("FCM message sent successfully");
     }
+
+    /**
+     * Whether a send that failed with {@code errorCode} on attempt number {@code attempt} may be
+     * retried, having waited out its backoff if so; {@code false} if interrupted while waiting.
+     */
+    private boolean backOffToRetry(int attempt, String errorCode, Duration retryAfter) {
+        if (!isRetryable(errorCode) || attempt > config.rateControl().maxRetries()) {
+            return false;
+        }
+        retries.increment();
+        try {
+            Thread.sleep(rateController.retryDelay(attempt, retryAfter).toMillis());
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static boolean isRetryable(String errorCode) {
+        // Successful results have no error code, and Set.of rejects null lookups
+        return errorCode != null && RETRYABLE_ERRORS.contains(errorCode);
+    }
+
+    /**
+     * Whether a request that failed with {@code failure} never reached FCM, so sending it again
+     * cannot deliver the push twice: the connection was refused, could not be opened in time or
+     * its host not resolved, or no HTTP/2 stream freed up for it.
+     */
+    private static boolean neverSent(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectException || cause instanceof HttpConnectTimeoutException
+                    || cause instanceof UnknownHostException || cause instanceof NoRouteToHostException
+                    || cause instanceof FcmHttp2RequestFactory.NoStreamException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** FCM's {@code Retry-After}, read only from the responses that carry one. */
+    private static Duration retryAfter(int statusCode, HttpHeaders headers) {
+        return FcmRateController.isThrottled(statusCode) && headers != null
+                ? FcmRateController.parseRetryAfter(headers.getFirst(HttpHeaders.RETRY_AFTER))
+                : null;
+    }
+
+    /**
+     * Runs {@code concurrency} senders that each take the next message, send it and hand over
+     * the result, until {@code messages} is exhausted.
+     */
+    private void dispatch(Iterator<FcmMessage> messages, int concurrency, ResultSink sink) {
+        if (concurrency == 0) {
+            return;
+        }
+        BatchToken token = new BatchToken();
+        AtomicInteger nextIndex = new AtomicInteger();
+        AtomicInteger sent = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        Runnable sender = () -> {
+            try {
+                // Senders stop at their next message once one has failed; the ones in flight finish first
+                while (failure.get() == null) {
+                    FcmMessage message;
+                    int index;
+                    synchronized (messages) {
+                        if (!messages.hasNext()) {
+                            return;
+                        }
+                        message = messages.next();
+                        index = nextIndex.getAndIncrement();
+                    }
+                    FcmSendResult result = sendForResult(message, token);
+                    (result.success() ? sent : failed).incrementAndGet();
+                    sink.accept(index, result);
+                }
+            } catch (RuntimeException ex) {
+                failure.compareAndSet(null, ex);
+            }
+        };
+
+        List<Future<?>> running = new ArrayList<>(concurrency);
+        try {
+            for (int i = 0; i < concurrency; i++) {
+                running.add(senders.submit(sender));
+            }
+            for (Future<?> future : running) {
+                try {
+                    future.get();
+                } catch (ExecutionException ex) {
+                    // An Error; stop the remaining senders too
+                    failure.compareAndSet(null, new IllegalStateException("FCM batch sender failed", ex.getCause()));
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while sending an FCM batch", ex);
+                }
+            }
+            if (failure.get() != null) {
+                throw failure.get();
+            }
+        } catch (RejectedExecutionException ex) {
+            throw new IllegalStateException("FcmClient is closed", ex);
+        } finally {
+            // Still running only if this thread was interrupted, or close() raced the submits
+            running.forEach(future -> future.cancel(true));
+            log.info("FCM batch done: {} sent, {} failed", sent.get(), failed.get());
+        }
+    }
+
+    private FcmSendResult sendForResult(FcmMessage message, BatchToken token) {
+        long start = System.nanoTime();
+        try {
+            for (int attempt = 1; ; attempt++) {
+                Attempt sent = attempt(message, token);
+                if (!sent.retryable() || !backOffToRetry(attempt, sent.result().errorCode(), sent.retryAfter())) {
+                    return sent.result();
+                }
+            }
+        } finally {
+            sendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Attempt attempt(FcmMessage message, BatchToken token) {
+        FcmRateController.Permit permit;
+        String accessToken;
+        try {
+            // The token client has retried already, so token failures are not retried here
+            accessToken = token.get();
+            permit = rateController.acquireBlocking();
+        } catch (RuntimeException ex) {
+            return new Attempt(FcmSendResult.fromException(message, ex), null, false);
+        }
+        try {
+            Attempt sent = restClient.post()
+                    .uri(config.resolvedSendEndpoint())
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(message.toRequestBody())
+                    .exchange((request, response) -> {
+                        Map<?, ?> body;
+                        try {
+                            body = response.bodyTo(Map.class);
+                        } catch (RestClientException ex) {
+                            // Not JSON, e.g. an HTML error page from a proxy
+                            body = null;
+                        }
+                        int status = response.getStatusCode().value();
+                        FcmSendResult result = FcmSendResult.fromResponse(message, status, body);
+                        return new Attempt(result, retryAfter(status, response.getHeaders()),
+                                isRetryable(result.errorCode()));
+                    });
+            permit.complete(sent.result().statusCode(), sent.retryAfter());
+            return sent;
+        } catch (ResourceAccessException ex) {
+            permit.complete(0, null);
+            return new Attempt(FcmSendResult.fromException(message, ex), null, neverSent(ex));
+        } catch (RuntimeException ex) {
+            permit.release();
+            return new Attempt(FcmSendResult.fromException(message, ex), null, false);
+        }
+    }
+
+    private static Exception unwrap(Throwable failure) {
+        while (failure instanceof CompletionException && failure.getCause() != null) {
+            failure = failure.getCause();
+        }
+        return failure instanceof Exception ex ? ex : new CompletionException(failure);
+    }
+
+    /** One request's result, with what decides whether and when to retry it. */
+    private record Attempt(FcmSendResult result, Duration retryAfter, boolean retryable) {}
+
+    @FunctionalInterface
+    private interface ResultSink {
+        void accept(int index, FcmSendResult result);
+    }
+
+    /**
+     * The access token of one batch, looked up once per {@link #BATCH_TOKEN_WINDOW} rather than
+     * per message, and early enough that a rotated or refreshed token is picked up.
+     */
+    private final class BatchToken {
+        private volatile Lease lease;
+
+        String get() {
+            Lease current = lease;
+            if (current == null || System.nanoTime() - current.renewAtNanos >= 0) {
+                current = renew(current);
+            }
+            return current.accessToken;
+        }
+
+        private synchronized Lease renew(Lease seen) {
+            if (lease != seen) {
+                return lease;
+            }
+            TokenResponse token = tokenClient.getToken();
+            long untilMargin = Duration.between(Instant.now(), token.expiresAt()).minus(BATCH_TOKEN_EXPIRY_MARGIN).toNanos();
+            lease = new Lease(token.accessToken(),
+                    System.nanoTime() + Math.max(0, Math.min(BATCH_TOKEN_WINDOW.toNanos(), untilMargin)));
+            return lease;
+        }
+    }
+
+    private record Lease(String accessToken, long renewAtNanos) {}
 }
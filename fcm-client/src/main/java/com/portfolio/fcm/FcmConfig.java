@@ -1,20 +1,121 @@
 package com.portfolio.fcm;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.ConstructorBinding;
+import org.springframework.boot.context.properties.bind.DefaultValue;
 
+import java.time.Duration;
+
+/**
+ * @param maxConcurrentSends requests {@link FcmClient#sendAll} keeps in flight
+ * @param transport          HTTP/2 connections to FCM, see {@link FcmHttp2RequestFactory}
+ * @param rateControl        adaptive limit on requests in flight and retries, see {@link FcmRateController}
+ */
 @ConfigurationProperties(prefix = "fcm")
 public record FcmConfig(
         String projectId,
-        String sendEndpoint
+        String sendEndpoint,
+        @DefaultValue("32") int maxConcurrentSends,
+        @DefaultValue Transport transport,
+        @DefaultValue RateControl rateControl
 ) {
+    @ConstructorBinding
     public FcmConfig {
         if (projectId == null && sendEndpoint == null) {
             throw new IllegalArgumentException("projectId must not be null when sendEndpoint is not configured");
         }
+        if (maxConcurrentSends < 1) {
+            throw new IllegalArgumentException("maxConcurrentSends must be at least 1, was " + maxConcurrentSends);
+        }
+        if (transport == null) {
+            transport = Transport.defaults();
+        }
+        if (rateControl == null) {
+            rateControl = RateControl.defaults();
+        }
+    }
+
+    public FcmConfig(String projectId, String sendEndpoint) {
+        this(projectId, sendEndpoint, 32);
+    }
+
+    public FcmConfig(String projectId, String sendEndpoint, int maxConcurrentSends) {
+        this(projectId, sendEndpoint, maxConcurrentSends, null, null);
     }
 
     public String resolvedSendEndpoint() {
         if (sendEndpoint != null) return sendEndpoint;
         return "https://fcm.googleapis.com/v1/projects/" + projectId + "/messages:send";
     }
+
+    /**
+     * Sends are spread over {@code connections} HTTP/2 connections with at most
+     * {@code maxStreamsPerConnection} requests in flight on each; FCM allows 100 concurrent
+     * streams per connection. A send waits up to {@code requestTimeout} for a free stream, and
+     * then up to {@code requestTimeout} again for the response headers.
+     */
+    public record Transport(
+            @DefaultValue("2") int connections,
+            @DefaultValue("100") int maxStreamsPerConnection,
+            @DefaultValue("5s") Duration connectTimeout,
+            @DefaultValue("10s") Duration requestTimeout
+    ) {
+        public Transport {
+            if (connections < 1) {
+                throw new IllegalArgumentException("connections must be at least 1, was " + connections);
+            }
+            if (maxStreamsPerConnection < 1) {
+                throw new IllegalArgumentException("maxStreamsPerConnection must be at least 1, was " + maxStreamsPerConnection);
+            }
+            if (connectTimeout == null || connectTimeout.isNegative() || connectTimeout.isZero()
+                    || requestTimeout == null || requestTimeout.isNegative() || requestTimeout.isZero()) {
+                throw new IllegalArgumentException("connectTimeout and requestTimeout must be positive");
+            }
+        }
+
+        public static Transport defaults() {
+            return new Transport(2, 100, Duration.ofSeconds(5), Duration.ofSeconds(10));
+        }
+    }
+
+    /**
+     * Every send of the client, whichever method it comes through, counts against one limit on
+     * requests in flight that starts at {@code initialLimit} and moves between
+     * {@code minLimit} and {@code maxLimit} with FCM's responses: it shrinks on 429 and 503 and
+     * on responses slower than {@code latencyThreshold}, and grows while FCM keeps up. Sends that
+     * fail with {@code UNAVAILABLE} or {@code INTERNAL}, or that never reached FCM because no
+     * connection could be opened, are retried up to {@code maxRetries} times after a jittered
+     * exponential backoff from {@code initialBackoff}; no wait, a {@code Retry-After} included, is
+     * longer than {@code maxBackoff}. Timeouts are not retried, since FCM may have delivered the
+     * push.
+     */
+    public record RateControl(
+            @DefaultValue("32") int initialLimit,
+            @DefaultValue("1") int minLimit,
+            @DefaultValue("200") int maxLimit,
+            @DefaultValue("2s") Duration latencyThreshold,
+            @DefaultValue("3") int maxRetries,
+            @DefaultValue("500ms") Duration initialBackoff,
+            @DefaultValue("60s") Duration maxBackoff
+    ) {
+        public RateControl {
+            if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit) {
+                throw new IllegalArgumentException("Expected 1 <= minLimit <= initialLimit <= maxLimit, was "
+                        + minLimit + ", " + initialLimit + ", " + maxLimit);
+            }
+            if (maxRetries < 0) {
+                throw new IllegalArgumentException("maxRetries must not be negative, was " + maxRetries);
+            }
+            if (latencyThreshold == null || latencyThreshold.isNegative() || latencyThreshold.isZero()
+                    || initialBackoff == null || initialBackoff.isNegative()
+                    || maxBackoff == null || maxBackoff.compareTo(initialBackoff) < 0) {
+                throw new IllegalArgumentException(
+                        "latencyThreshold must be positive and maxBackoff at least initialBackoff, which must not be negative");
+            }
+        }
+
+        public static RateControl defaults() {
+            return new RateControl(32, 1, 200, Duration.ofSeconds(2), 3, Duration.ofMillis(500), Duration.ofSeconds(60));
+        }
+    }
 }
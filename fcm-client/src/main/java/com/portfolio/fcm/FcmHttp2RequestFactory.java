@@ -0,0 +1,426 @@
+package com.portfolio.fcm;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * {@link ClientHttpRequestFactory} on {@link java.net.http.HttpClient} that multiplexes FCM
+ * sends over a few HTTP/2 connections, for the {@link org.springframework.web.client.RestClient}
+ * behind {@link FcmClient}, and for the non-blocking {@link FcmClient#sendAsync} without one.
+ * <p>
+ * Each of the {@link FcmConfig.Transport#connections()} connections is its own
+ * {@code HttpClient}, since one client keeps a single HTTP/2 connection per origin. A request
+ * goes to the connection with the most free streams and waits there while all
+ * {@link FcmConfig.Transport#maxStreamsPerConnection()} are taken, rather than exceeding the
+ * stream limit the server advertised. The first request on a connection goes alone: until an
+ * HTTP/2 connection is up, {@code HttpClient} would dial one per concurrent request. HTTP/2 is
+ * negotiated over TLS (ALPN), or by an {@code h2c} upgrade on plain {@code http://} URLs such
+ * as a local stub; HTTP/1.1 is used when the server does not offer it.
+ * <p>
+ * A request is sent when {@link ClientHttpRequest#execute()} is called and its response is read
+ * whole, which suits FCM's small JSON bodies; the stream is free again before the caller sees
+ * the response. {@link #postAsync} waits for a stream and the response without holding a
+ * thread.
+ */
+public class FcmHttp2RequestFactory implements ClientHttpRequestFactory, AutoCloseable {
+
+    /** Headers {@code HttpClient} sets itself and refuses from callers. */
+    private static final Set<String> RESTRICTED_HEADERS = Set.of("connection", "content-length", "expect", "host", "upgrade");
+
+    private final Connection[] connections;
+    private final Duration requestTimeout;
+    private final ExecutorService executor;
+
+    public FcmHttp2RequestFactory(FcmConfig.Transport transport) {
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "fcm-http-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.requestTimeout = transport.requestTimeout();
+        this.connections = new Connection[transport.connections()];
+        for (int i = 0; i < connections.length; i++) {
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_2)
+                    .connectTimeout(transport.connectTimeout())
+                    .followRedirects(HttpClient.Redirect.NEVER)
+                    .executor(executor)
+                    .build();
+            connections[i] = new Connection(client, transport.maxStreamsPerConnection());
+        }
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) {
+        return new Request(uri, httpMethod);
+    }
+
+    /** Requests holding a stream right now, across all connections. */
+    public int inFlight() {
+        int inFlight = 0;
+        for (Connection connection : connections) {
+            inFlight += connection.maxStreams - connection.freeStreams();
+        }
+        return inFlight;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * POSTs {@code body} without blocking: the wait for a stream and the exchange both complete
+     * on the factory's threads. Fails with the {@link IOException} {@link ClientHttpRequest#execute()}
+     * would throw. Cancelling the returned future gives up the wait for a stream, or cancels the
+     * exchange and resets its stream.
+     */
+    CompletableFuture<HttpResponse<byte[]>> postAsync(URI uri, HttpHeaders headers, byte[] body) {
+        HttpRequest request = buildRequest(uri, HttpMethod.POST, headers, body);
+        Connection connection = leastLoaded();
+        CompletableFuture<HttpResponse<byte[]>> result = new CompletableFuture<>();
+        CompletableFuture<Void> stream = connection.stream().orTimeout(requestTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        result.whenComplete((response, failure) -> stream.cancel(false));
+        stream.whenComplete((free, waitFailure) -> {
+            if (waitFailure != null) {
+                result.completeExceptionally(waitFailure instanceof TimeoutException ? noStream(uri) : waitFailure);
+                return;
+            }
+            if (result.isDone()) {
+                connection.release();
+                return;
+            }
+            CompletableFuture<HttpResponse<byte[]>> exchange = connection.sendAsync(request);
+            exchange.whenComplete((response, failure) -> {
+                connection.release();
+                if (failure != null) {
+                    result.completeExceptionally(unwrap(failure));
+                } else {
+                    result.complete(response);
+                }
+            });
+            result.whenComplete((response, failure) -> exchange.cancel(true));
+        });
+        return result;
+    }
+
+    /** The threads behind the {@code HttpClient}s, for callers' continuations of {@link #postAsync}. */
+    Executor executor() {
+        return executor;
+    }
+
+    private HttpRequest buildRequest(URI uri, HttpMethod method, HttpHeaders headers, byte[] body) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                .timeout(requestTimeout)
+                .method(method.name(), body.length > 0
+                        ? HttpRequest.BodyPublishers.ofByteArray(body)
+                        : HttpRequest.BodyPublishers.noBody());
+        headers.forEach((name, values) -> {
+            if (!RESTRICTED_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                values.forEach(value -> request.header(name, value));
+            }
+        });
+        return request.build();
+    }
+
+    private Connection leastLoaded() {
+        Connection best = connections[0];
+        int bestFree = best.freeStreams();
+        for (int i = 1; i < connections.length; i++) {
+            int free = connections[i].freeStreams();
+            if (free > bestFree) {
+                best = connections[i];
+                bestFree = free;
+            }
+        }
+        return best;
+    }
+
+    private NoStreamException noStream(URI uri) {
+        return new NoStreamException("No HTTP/2 stream to " + uri.getHost() + " freed up within " + requestTimeout);
+    }
+
+    /** No stream freed up within the request timeout, so the request was never sent. */
+    static final class NoStreamException extends HttpTimeoutException {
+        NoStreamException(String message) {
+            super(message);
+        }
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        while ((failure instanceof CompletionException || failure instanceof UncheckedIOException)
+                && failure.getCause() != null) {
+            failure = failure.getCause();
+        }
+        return failure;
+    }
+
+    /**
+     * One {@code HttpClient} and its streams. A released stream goes straight to the longest
+     * waiter; waiters that gave up (cancelled or timed out) are skipped.
+     */
+    private static final class Connection {
+
+        final HttpClient client;
+        final int maxStreams;
+        private final Queue<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+        /** The opening request's future, done once the connection is up; {@code null} until a request claims it. */
+        private final AtomicReference<CompletableFuture<Void>> opened = new AtomicReference<>();
+        private int freeStreams;
+
+        Connection(HttpClient client, int maxStreams) {
+            this.client = client;
+            this.maxStreams = maxStreams;
+            this.freeStreams = maxStreams;
+        }
+
+        /** Completes once a stream is taken for the caller, who must then {@link #release()} it. */
+        synchronized CompletableFuture<Void> stream() {
+            if (freeStreams > 0) {
+                freeStreams--;
+                return CompletableFuture.completedFuture(null);
+            }
+            CompletableFuture<Void> waiter = new CompletableFuture<>();
+            waiters.add(waiter);
+            return waiter;
+        }
+
+        void release() {
+            while (true) {
+                CompletableFuture<Void> next;
+                synchronized (this) {
+                    next = waiters.poll();
+                    if (next == null) {
+                        freeStreams++;
+                        return;
+                    }
+                }
+                if (next.complete(null)) {
+                    return;
+                }
+            }
+        }
+
+        synchronized int freeStreams() {
+            return freeStreams;
+        }
+
+        /**
+         * Blocking {@link #sendAsync}. Until the connection is up this waits on the opening
+         * request's future rather than a lock, so {@link #stream()} and {@link #release()} never
+         * wait on a connect; an interrupt cancels the exchange.
+         */
+        HttpResponse<byte[]> send(HttpRequest request) throws IOException, InterruptedException {
+            CompletableFuture<Void> gate = opened.get();
+            if (gate != null && gate.isDone()) {
+                return client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            }
+            CompletableFuture<HttpResponse<byte[]>> exchange = sendAsync(request);
+            try {
+                return exchange.get();
+            } catch (InterruptedException ex) {
+                exchange.cancel(true);
+                throw ex;
+            } catch (ExecutionException ex) {
+                Throwable cause = unwrap(ex.getCause());
+                if (cause instanceof IOException io) {
+                    throw io;
+                }
+                if (cause instanceof RuntimeException runtime) {
+                    throw runtime;
+                }
+                if (cause instanceof Error error) {
+                    throw error;
+                }
+                throw new IOException(cause);
+            }
+        }
+
+        /**
+         * Sends {@code request}; cancelling the future cancels the exchange, or keeps it from
+         * being sent if it is still lined up behind the request that opens the connection. If
+         * that one fails, the next request opens the connection instead, again alone.
+         */
+        CompletableFuture<HttpResponse<byte[]>> sendAsync(HttpRequest request) {
+            CompletableFuture<Void> gate = opened.get();
+            if (gate == null) {
+                CompletableFuture<Void> opening = new CompletableFuture<>();
+                if (!opened.compareAndSet(null, opening)) {
+                    return sendAsync(request);
+                }
+                CompletableFuture<HttpResponse<byte[]>> exchange =
+                        client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+                exchange.whenComplete((response, failure) -> {
+                    if (failure != null) {
+                        opened.compareAndSet(opening, null);
+                    }
+                    opening.complete(null);
+                });
+                return exchange;
+            }
+            if (gate.isDone()) {
+                return client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+            }
+            // Not connected yet: line up behind the request that opens the connection
+            CompletableFuture<HttpResponse<byte[]>> result = new CompletableFuture<>();
+            gate.whenComplete((done, ignored) -> {
+                if (result.isDone()) {
+                    return;
+                }
+                CompletableFuture<HttpResponse<byte[]>> exchange = sendAsync(request);
+                exchange.whenComplete((response, failure) -> {
+                    if (failure != null) {
+                        result.completeExceptionally(failure);
+                    } else {
+                        result.complete(response);
+                    }
+                });
+                result.whenComplete((response, failure) -> exchange.cancel(true));
+            });
+            return result;
+        }
+    }
+
+    private final class Request implements ClientHttpRequest {
+
+        private final URI uri;
+        private final HttpMethod method;
+        private final HttpHeaders headers = new HttpHeaders();
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream(512);
+
+        Request(URI uri, HttpMethod method) {
+            this.uri = uri;
+            this.method = method;
+        }
+
+        @Override
+        public HttpMethod getMethod() {
+            return method;
+        }
+
+        @Override
+        public URI getURI() {
+            return uri;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public OutputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public ClientHttpResponse execute() throws IOException {
+            HttpRequest request = buildRequest(uri, method, headers, body.toByteArray());
+            Connection connection = leastLoaded();
+            CompletableFuture<Void> stream = connection.stream();
+            try {
+                stream.get(requestTimeout.toNanos(), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException ex) {
+                if (stream.cancel(false)) {
+                    throw noStream(uri);
+                }
+                // Handed a stream just as the wait ran out
+            } catch (InterruptedException ex) {
+                if (!stream.cancel(false)) {
+                    connection.release();
+                }
+                throw interrupted(ex);
+            } catch (ExecutionException ex) {
+                throw new IllegalStateException("Waiting for an HTTP/2 stream failed", ex.getCause());
+            }
+            try {
+                return new Response(connection.send(request));
+            } catch (InterruptedException ex) {
+                throw interrupted(ex);
+            } finally {
+                connection.release();
+            }
+        }
+
+        private InterruptedIOException interrupted(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            InterruptedIOException interrupted = new InterruptedIOException("Interrupted while calling " + uri);
+            interrupted.initCause(ex);
+            return interrupted;
+        }
+    }
+
+    private static final class Response implements ClientHttpResponse {
+
+        private final HttpResponse<byte[]> response;
+        private final HttpHeaders headers = new HttpHeaders();
+
+        Response(HttpResponse<byte[]> response) {
+            this.response = response;
+            response.headers().map().forEach((name, values) -> {
+                if (!name.startsWith(":")) {
+                    headers.put(name, List.copyOf(values));
+                }
+            });
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() {
+            return HttpStatusCode.valueOf(response.statusCode());
+        }
+
+        @Override
+        public String getStatusText() {
+            // HTTP/2 has no reason phrase
+            return "";
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() {
+            return new ByteArrayInputStream(response.body());
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
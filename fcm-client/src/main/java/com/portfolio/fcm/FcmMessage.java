@@ -26,4 +26,9 @@ public record FcmMessage(
         }
         return Map.of("message", message);
     }
+
+    /** {@link #toRequestBody()} as JSON, for senders without a JSON message converter. */
+    public String toJson() {
+        return FcmJson.write(toRequestBody());
+    }
 }
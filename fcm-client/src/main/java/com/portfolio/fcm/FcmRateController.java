@@ -0,0 +1,234 @@
+package com.portfolio.fcm;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Adapts how many requests an {@link FcmClient} keeps in flight to what FCM accepts, AIMD
+ * style. Each response that was neither throttled nor slow raises the limit by
+ * {@code 1/limit}, about one per limit's worth of responses, while the limit is in use. A 429
+ * or 503 halves it, and a response slower than {@link FcmConfig.RateControl#latencyThreshold()}
+ * takes a tenth off, backing off before FCM starts refusing. Responses to requests sent before
+ * the last decrease were sent under the old limit and do not decrease it again.
+ * <p>
+ * FCM's quota is per project and a client sends to one, so a {@code Retry-After} on a 429 or
+ * 503 holds every send of the client until it has passed, not just the retry of the message
+ * that got it.
+ */
+final class FcmRateController {
+
+    private static final double THROTTLED_DECREASE = 0.5;
+    private static final double SLOW_DECREASE = 0.9;
+
+    private final FcmConfig.RateControl config;
+    private final Deque<CompletableFuture<Permit>> waiters = new ArrayDeque<>();
+
+    private double limit;
+    private int inFlight;
+    private long lastDecreaseNanos = System.nanoTime();
+    private long pausedUntilNanos = System.nanoTime();
+
+    FcmRateController(FcmConfig.RateControl config, String project, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.limit = config.initialLimit();
+        Gauge.builder("fcm.send.concurrency.limit", this, FcmRateController::limit)
+                .description("FCM requests allowed in flight")
+                .tag("project", project)
+                .register(meterRegistry);
+        Gauge.builder("fcm.send.concurrency.in.flight", this, FcmRateController::inFlight)
+                .description("FCM requests in flight")
+                .tag("project", project)
+                .register(meterRegistry);
+    }
+
+    synchronized double limit() {
+        return limit;
+    }
+
+    synchronized int inFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Completes once a request may be sent: fewer than the limit are in flight and no
+     * {@code Retry-After} holds sends back. Waiters are served in order; cancelling the future
+     * gives up the place.
+     */
+    CompletableFuture<Permit> acquire() {
+        synchronized (this) {
+            if (waiters.isEmpty() && canStart()) {
+                inFlight++;
+                return CompletableFuture.completedFuture(new Permit());
+            }
+            CompletableFuture<Permit> waiter = new CompletableFuture<>();
+            waiters.add(waiter);
+            return waiter;
+        }
+    }
+
+    /**
+     * {@link #acquire()} for sending threads.
+     *
+     * @throws IllegalStateException if interrupted while waiting
+     */
+    Permit acquireBlocking() {
+        CompletableFuture<Permit> slot = acquire();
+        try {
+            return slot.get();
+        } catch (InterruptedException ex) {
+            if (!slot.cancel(false)) {
+                slot.join().release();
+            }
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to send to FCM", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Waiting to send to FCM failed", ex.getCause());
+        }
+    }
+
+    /**
+     * How long to wait before retry number {@code retry}: full jitter, uniformly random up to
+     * the exponential cap, but at least {@code retryAfter} if FCM asked for one.
+     */
+    Duration retryDelay(int retry, Duration retryAfter) {
+        long initial = config.initialBackoff().toMillis();
+        long max = config.maxBackoff().toMillis();
+        long delay = ThreadLocalRandom.current().nextLong(Math.min(max, initial << Math.min(retry - 1, 30)) + 1);
+        if (retryAfter != null) {
+            delay = Math.max(delay, Math.min(max, retryAfter.toMillis()));
+        }
+        return Duration.ofMillis(delay);
+    }
+
+    /** Whether FCM is shedding load: the responses that shrink the limit and carry {@code Retry-After}. */
+    static boolean isThrottled(int statusCode) {
+        return statusCode == 429 || statusCode == 503;
+    }
+
+    /**
+     * A {@code Retry-After} header, either delay-seconds or an HTTP-date, as the time to wait
+     * from now; {@code null} if absent or unreadable.
+     */
+    static Duration parseRetryAfter(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String trimmed = value.trim();
+        try {
+            if (trimmed.chars().allMatch(Character::isDigit)) {
+                return Duration.ofSeconds(Long.parseLong(trimmed));
+            }
+            Duration untilDate = Duration.between(ZonedDateTime.now(),
+                    ZonedDateTime.parse(trimmed, DateTimeFormatter.RFC_1123_DATE_TIME));
+            return untilDate.isNegative() ? Duration.ZERO : untilDate;
+        } catch (NumberFormatException | DateTimeParseException ex) {
+            return null;
+        }
+    }
+
+    private boolean canStart() {
+        return System.nanoTime() - pausedUntilNanos >= 0 && inFlight < (int) limit;
+    }
+
+    private synchronized void adjust(long startNanos, int statusCode, Duration retryAfter) {
+        long now = System.nanoTime();
+        if (isThrottled(statusCode)) {
+            decrease(startNanos, THROTTLED_DECREASE);
+            if (retryAfter != null && !retryAfter.isNegative() && !retryAfter.isZero()) {
+                pause(now, Math.min(retryAfter.toNanos(), config.maxBackoff().toNanos()));
+            }
+        } else if (now - startNanos > config.latencyThreshold().toNanos()) {
+            decrease(startNanos, SLOW_DECREASE);
+        } else if (statusCode != 0 && (inFlight + 1) * 2 >= limit) {
+            // Only while the limit is in use: an idle client learns nothing about FCM's capacity
+            limit = Math.min(config.maxLimit(), limit + 1 / limit);
+        }
+    }
+
+    private void decrease(long startNanos, double ratio) {
+        if (startNanos - lastDecreaseNanos < 0) {
+            return;
+        }
+        limit = Math.max(config.minLimit(), limit * ratio);
+        lastDecreaseNanos = System.nanoTime();
+    }
+
+    private void pause(long now, long pauseNanos) {
+        if (now + pauseNanos - pausedUntilNanos <= 0) {
+            return;
+        }
+        pausedUntilNanos = now + pauseNanos;
+        // Nothing else releases the waiters once the pause ends if nothing is in flight
+        CompletableFuture.delayedExecutor(pauseNanos, TimeUnit.NANOSECONDS).execute(this::grant);
+    }
+
+    /** Hands free slots to waiters, completing them outside the lock. */
+    private void grant() {
+        while (true) {
+            CompletableFuture<Permit> waiter;
+            Permit permit;
+            synchronized (this) {
+                while (!waiters.isEmpty() && waiters.peek().isDone()) {
+                    waiters.poll();
+                }
+                if (waiters.isEmpty() || !canStart()) {
+                    return;
+                }
+                waiter = waiters.poll();
+                inFlight++;
+                permit = new Permit();
+            }
+            if (!waiter.complete(permit)) {
+                // Cancelled since; the slot goes to the next waiter
+                synchronized (this) {
+                    inFlight--;
+                }
+            }
+        }
+    }
+
+    /** One request's slot. Exactly one of its methods should be called, once the request is done. */
+    final class Permit {
+
+        private final long startNanos = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        /**
+         * Frees the slot and adjusts the limit to how the request went.
+         *
+         * @param statusCode FCM's status code, {@code 0} if the request failed without a response
+         * @param retryAfter FCM's {@code Retry-After}, or {@code null}
+         */
+        void complete(int statusCode, Duration retryAfter) {
+            if (released.compareAndSet(false, true)) {
+                synchronized (FcmRateController.this) {
+                    inFlight--;
+                    adjust(startNanos, statusCode, retryAfter);
+                }
+                grant();
+            }
+        }
+
+        /** Frees the slot without adjusting the limit, for requests that say nothing about FCM, e.g. cancelled ones. */
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                synchronized (FcmRateController.this) {
+                    inFlight--;
+                }
+                grant();
+            }
+        }
+    }
+}
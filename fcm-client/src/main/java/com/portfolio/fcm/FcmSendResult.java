@@ -0,0 +1,89 @@
+package com.portfolio.fcm;
+
+import com.portfolio.oauth2.awt.core.TokenUnavailableException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of sending one {@link FcmMessage} in a batch.
+ *
+ * @param messageName  FCM message id on success, e.g. {@code projects/my-project/messages/0:1500415314455276%31bd1c96}
+ * @param statusCode   HTTP status, or 0 when FCM was not reached
+ * @param errorCode    on failure, the FCM error code ({@code UNREGISTERED}, {@code QUOTA_EXCEEDED}, ...)
+ *                     or else the canonical status ({@code INVALID_ARGUMENT}, {@code UNAVAILABLE}, ...);
+ *                     {@code UNAVAILABLE} when FCM or the token endpoint could not be reached
+ * @param errorMessage on failure, FCM's message or the exception's
+ */
+public record FcmSendResult(
+        FcmMessage message,
+        boolean success,
+        String messageName,
+        int statusCode,
+        String errorCode,
+        String errorMessage
+) {
+    private static final String FCM_ERROR_TYPE = "type.googleapis.com/google.firebase.fcm.v1.FcmError";
+
+    /**
+     * Reads an FCM HTTP v1 response:
+     * {@code {"name":"projects/.../messages/..."}} or
+     * {@code {"error":{"code":404,"message":"...","status":"NOT_FOUND","details":[{"@type":"...FcmError","errorCode":"UNREGISTERED"}]}}}.
+     *
+     * @param body the parsed JSON body, or {@code null} when there is none or it is not JSON
+     */
+    static FcmSendResult fromResponse(FcmMessage message, int statusCode, Map<?, ?> body) {
+        if (statusCode >= 200 && statusCode < 300) {
+            return new FcmSendResult(message, true, body != null ? asString(body.get("name")) : null, statusCode, null, null);
+        }
+        String errorCode = null;
+        String errorMessage = null;
+        if (body != null && body.get("error") instanceof Map<?, ?> error) {
+            errorMessage = asString(error.get("message"));
+            if (error.get("details") instanceof List<?> details) {
+                for (Object detail : details) {
+                    if (detail instanceof Map<?, ?> d && FCM_ERROR_TYPE.equals(d.get("@type"))) {
+                        errorCode = asString(d.get("errorCode"));
+                    }
+                }
+            }
+            if (errorCode == null) {
+                errorCode = asString(error.get("status"));
+            }
+        }
+        if (errorCode == null) {
+            errorCode = statusFor(statusCode);
+        }
+        return new FcmSendResult(message, false, null, statusCode, errorCode,
+                errorMessage != null ? errorMessage : "HTTP " + statusCode);
+    }
+
+    /** A send that got no response from FCM, or never started because no access token was available. */
+    static FcmSendResult fromException(FcmMessage message, Exception ex) {
+        boolean unreachable = ex instanceof ResourceAccessException || ex instanceof UncheckedIOException
+                || ex instanceof IOException || ex instanceof TokenUnavailableException;
+        return new FcmSendResult(message, false, null, 0, unreachable ? "UNAVAILABLE" : "UNKNOWN",
+                String.valueOf(ex.getMessage()));
+    }
+
+    /** Canonical error status for a response without a usable error body. */
+    private static String statusFor(int statusCode) {
+        return switch (statusCode) {
+            case 400 -> "INVALID_ARGUMENT";
+            case 401 -> "UNAUTHENTICATED";
+            case 403 -> "PERMISSION_DENIED";
+            case 404 -> "NOT_FOUND";
+            case 429 -> "RESOURCE_EXHAUSTED";
+            case 500 -> "INTERNAL";
+            case 503 -> "UNAVAILABLE";
+            default -> "UNKNOWN";
+        };
+    }
+
+    private static String asString(Object value) {
+        return value instanceof String s ? s : null;
+    }
+}
@@ -1,6 +1,8 @@
 package com.portfolio.fcm;
 
 import com.portfolio.oauth2.awt.core.AssertionTokenClient;
+import com.portfolio.oauth2.awt.core.TokenResponse;
+import com.portfolio.oauth2.awt.core.TokenUnavailableException;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -8,28 +10,63 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.stubbing.Answer;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.RestClient;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestClientException;
 
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 @ExtendWith(MockitoExtension.class)
 class FcmClientTest {
 
+    /** 재시도 백오프를 1ms로 줄인 설정 — 재시도 테스트가 백오프를 기다리지 않도록 */
+    private static final FcmConfig FAST_RETRIES = new FcmConfig("my-project", null, 32, null,
+            new FcmConfig.RateControl(32, 1, 200, Duration.ofSeconds(2), 2, Duration.ofMillis(1), Duration.ofMillis(1)));
+
     @Mock
     private RestClient restClient;
 
     @Mock
     private AssertionTokenClient tokenClient;
 
+    @Mock
+    private FcmHttp2RequestFactory requestFactory;
+
     // RestClient chain mocks — fields so verifications can reference them
     private RestClient.RequestBodyUriSpec uriSpec;
     private RestClient.RequestBodySpec bodySpec;
@@ -64,6 +101,30 @@ class FcmClientTest {
         given(bodySpec.retrieve()).willReturn(responseSpec);
     }
 
+    /** sendAll()은 retrieve() 대신 exchange()로 상태 코드와 본문을 직접 읽는다. */
+    private void stubExchangeChain() {
+        uriSpec = mock(RestClient.RequestBodyUriSpec.class);
+        bodySpec = mock(RestClient.RequestBodySpec.class);
+
+        given(restClient.post()).willReturn(uriSpec);
+        given(uriSpec.uri(anyString())).willReturn(bodySpec);
+        given(bodySpec.header(anyString(), (String[]) any())).willReturn(bodySpec);
+        given(bodySpec.contentType(any())).willReturn(bodySpec);
+        given(bodySpec.body((Object) any())).willReturn(bodySpec);
+    }
+
+    /** exchange()에 넘겨진 함수를 주어진 상태 코드와 JSON 본문의 응답으로 호출한다. */
+    private static Answer<Object> respond(int status, Map<String, Object> body) {
+        return invocation -> {
+            RestClient.RequestHeadersSpec.ExchangeFunction<?> function = invocation.getArgument(0);
+            RestClient.RequestHeadersSpec.ConvertibleClientHttpResponse response =
+                    mock(RestClient.RequestHeadersSpec.ConvertibleClientHttpResponse.class);
+            given(response.getStatusCode()).willReturn(HttpStatusCode.valueOf(status));
+            given(response.bodyTo(Map.class)).willReturn(body);
+            return function.exchange(null, response);
+        };
+    }
+
     @Test
     @DisplayName("send() → Bearer 토큰 획득 후 Authorization 헤더로 FCM API POST 요청")
     void send_invokesRestClientWithBearerToken() {
@@ -124,6 +185,402 @@ class FcmClientTest {
                 .hasMessage("FCM API error");
     }
 
+    @Test
+    @DisplayName("send() 503 UNAVAILABLE → 백오프 후 재시도해 성공")
+    void send_whenUnavailable_retriesAndSucceeds() {
+        fcmClient = new FcmClient(FAST_RETRIES, tokenClient, restClient, meterRegistry);
+        stubRestClientChain();
+        given(tokenClient.getAccessToken()).willReturn("token");
+        given(responseSpec.toBodilessEntity())
+                .willThrow(new HttpServerErrorException(HttpStatusCode.valueOf(503)))
+                .willReturn(null);
+
+        fcmClient.send(new FcmMessage("device-token", "Title", "Body", null));
+
+        verify(responseSpec, times(2)).toBodilessEntity();
+        verify(tokenClient).getAccessToken();
+        assertThat(meterRegistry.find("fcm.send.retries").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("send() 연결 거부 → 요청이 FCM에 닿지 않았으므로 재시도해 성공")
+    void send_whenConnectionRefused_retriesAndSucceeds() {
+        fcmClient = new FcmClient(FAST_RETRIES, tokenClient, restClient, meterRegistry);
+        stubRestClientChain();
+        given(tokenClient.getAccessToken()).willReturn("token");
+        given(responseSpec.toBodilessEntity())
+                .willThrow(new ResourceAccessException("I/O error", new ConnectException("Connection refused")))
+                .willReturn(null);
+
+        fcmClient.send(new FcmMessage("device-token", "Title", "Body", null));
+
+        verify(responseSpec, times(2)).toBodilessEntity();
+    }
+
+    @Test
+    @DisplayName("send() 응답 타임아웃 → FCM이 이미 보냈을 수 있으므로 재시도 없이 전파")
+    void send_whenResponseTimesOut_propagatesWithoutResending() {
+        fcmClient = new FcmClient(FAST_RETRIES, tokenClient, restClient, meterRegistry);
+        stubRestClientChain();
+        given(tokenClient.getAccessToken()).willReturn("token");
+        given(responseSpec.toBodilessEntity())
+                .willThrow(new ResourceAccessException("I/O error", new HttpTimeoutException("request timed out")));
+
+        assertThatThrownBy(() -> fcmClient.send(new FcmMessage("device-token", "Title", "Body", null)))
+                .isInstanceOf(ResourceAccessException.class);
+
+        verify(responseSpec).toBodilessEntity();
+        assertThat(meterRegistry.find("fcm.send.retries").counter().count()).isZero();
+    }
+
+    @Test
+    @DisplayName("send() 429 QUOTA_EXCEEDED → 재시도 없이 전파하고 동시 전송 한도 절반으로")
+    void send_whenQuotaExceeded_propagatesWithoutRetryAndHalvesLimit() {
+        // 게이지는 먼저 등록된 클라이언트에 묶이므로 새 레지스트리를 쓴다
+        meterRegistry = new SimpleMeterRegistry();
+        fcmClient = new FcmClient(FAST_RETRIES, tokenClient, restClient, meterRegistry);
+        stubRestClientChain();
+        given(tokenClient.getAccessToken()).willReturn("token");
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "1");
+        given(responseSpec.toBodilessEntity()).willThrow(HttpClientErrorException.create(HttpStatusCode.valueOf(429),
+                "Too Many Requests", headers,
+                ("{\"error\":{\"code\":429,\"status\":\"RESOURCE_EXHAUSTED\",\"details\":[{\"@type\":"
+                        + "\"type.googleapis.com/google.firebase.fcm.v1.FcmError\",\"errorCode\":\"QUOTA_EXCEEDED\"}]}}")
+                        .getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8));
+
+        assertThatThrownBy(() -> fcmClient.send(new FcmMessage("device-token", "Title", "Body", null)))
+                .isInstanceOf(HttpClientErrorException.class);
+
+        verify(responseSpec).toBodilessEntity();
+        assertThat(meterRegistry.find("fcm.send.concurrency.limit").tag("project", "my-project").gauge().value())
+                .isEqualTo(16.0);
+    }
+
+    @Test
+    @DisplayName("sendAll() → 입력 순서대로 메시지별 결과 반환, 실패해도 예외 없이 계속 전송")
+    void sendAll_returnsResultPerMessageInOrder() {
+        fcmClient = new FcmClient(new FcmConfig("my-project", null, 1), tokenClient, restClient, meterRegistry);
+        stubExchangeChain();
+        given(tokenClient.getToken()).willReturn(new TokenResponse("token", Instant.now().plusSeconds(3600)));
+        given(bodySpec.exchange(any()))
+                .willAnswer(respond(200, Map.of("name", "projects/my-project/messages/1")))
+                .willAnswer(respond(404, Map.of("error", Map.of(
+                        "code", 404,
+                        "message", "Requested entity was not found.",
+                        "status", "NOT_FOUND",
+                        "details", List.of(Map.of(
+                                "@type", "type.googleapis.com/google.firebase.fcm.v1.FcmError",
+                                "errorCode", "UNREGISTERED"))))))
+                .willAnswer(respond(200, Map.of("name", "projects/my-project/messages/3")));
+
+        List<FcmSendResult> results = fcmClient.sendAll(List.of(
+                new FcmMessage("device-1", "Title", "Body", null),
+                new FcmMessage("device-2", "Title", "Body", null),
+                new FcmMessage("device-3", "Title", "Body", null)));
+
+        assertThat(results.stream().map(r -> r.message().token()).toList())
+                .containsExactly("device-1", "device-2", "device-3");
+        assertThat(results.stream().map(FcmSendResult::success).toList()).containsExactly(true, false, true);
+        assertThat(results.get(0).messageName()).isEqualTo("projects/my-project/messages/1");
+        assertThat(results.get(1).statusCode()).isEqualTo(404);
+        assertThat(results.get(1).errorCode()).isEqualTo("UNREGISTERED");
+        assertThat(meterRegistry.find("fcm.send.duration").timer().count()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("sendAll() → 배치 내에서는 토큰을 한 번만 조회해 재사용")
+    void sendAll_looksUpTokenOncePerBatch() {
+        stubExchangeChain();
+        given(tokenClient.getToken()).willReturn(new TokenResponse("batch-token", Instant.now().plusSeconds(3600)));
+        given(bodySpec.exchange(any())).willAnswer(respond(200, Map.of("name", "projects/my-project/messages/1")));
+
+        fcmClient.sendAll(List.of(
+                new FcmMessage("device-1", "Title", "Body", null),
+                new FcmMessage("device-2", "Title", "Body", null),
+                new FcmMessage("device-3", "Title", "Body", null),
+                new FcmMessage("device-4", "Title", "Body", null)));
+
+        verify(tokenClient).getToken();
+        verify(bodySpec, times(4)).header(eq(HttpHeaders.AUTHORIZATION), eq("Bearer batch-token"));
+    }
+
+    @Test
+    @DisplayName("sendAll() → maxConcurrentSends 개의 요청을 동시에 전송")
+    void sendAll_keepsMaxConcurrentSendsInFlight() {
+        fcmClient = new FcmClient(new FcmConfig("my-project", null, 4), tokenClient, restClient, meterRegistry);
+        stubExchangeChain();
+        given(tokenClient.getToken()).willReturn(new TokenResponse("token", Instant.now().plusSeconds(3600)));
+        CountDownLatch allInFlight = new CountDownLatch(4);
+        Answer<Object> ok = respond(200, Map.of("name", "projects/my-project/messages/1"));
+        given(bodySpec.exchange(any())).willAnswer(invocation -> {
+            // 네 요청이 모두 동시에 진행 중이어야만 응답한다
+            allInFlight.countDown();
+            assertThat(allInFlight.await(5, TimeUnit.SECONDS)).isTrue();
+            return ok.answer(invocation);
+        });
+
+        List<FcmSendResult> results = fcmClient.sendAll(List.of(
+                new FcmMessage("device-1", "Title", "Body", null),
+                new FcmMessage("device-2", "Title", "Body", null),
+                new FcmMessage("device-3", "Title", "Body", null),
+                new FcmMessage("device-4", "Title", "Body", null)));
+
+        assertThat(results).hasSize(4);
+        assertThat(results.stream().allMatch(FcmSendResult::success)).isTrue();
+    }
+
+    @Test
+    @DisplayName("sendAll() → 토큰 획득 실패는 예외 대신 UNAVAILABLE 결과로 반환")
+    void sendAll_whenTokenUnavailable_reportsUnavailable() {
+        given(tokenClient.getToken()).willThrow(new TokenUnavailableException("token endpoint unreachable", null));
+
+        List<FcmSendResult> results = fcmClient.sendAll(List.of(new FcmMessage("device-token", "Title", "Body", null)));
+
+        assertThat(results).hasSize(1);
+        FcmSendResult result = results.get(0);
+        assertThat(result.success()).isFalse();
+        assertThat(result.statusCode()).isZero();
+        assertThat(result.errorCode()).isEqualTo("UNAVAILABLE");
+    }
+
+    @Test
+    @DisplayName("sendAll(콜백) → 결과를 도착하는 대로 콜백에 전달")
+    void sendAll_streaming_passesEachResultToCallback() {
+        fcmClient = new FcmClient(FAST_RETRIES, tokenClient, restClient, meterRegistry);
+        stubExchangeChain();
+        given(tokenClient.getToken()).willReturn(new TokenResponse("token", Instant.now().plusSeconds(3600)));
+        given(bodySpec.exchange(any())).willAnswer(respond(503, null));
+        Queue<FcmSendResult> received = new ConcurrentLinkedQueue<>();
+
+        fcmClient.sendAll(List.of(
+                new FcmMessage("device-1", "Title", "Body", null),
+                new FcmMessage("device-2", "Title", "Body", null)), received::add);
+
+        assertThat(received).hasSize(2);
+        assertThat(received.stream().map(FcmSendResult::errorCode).toList()).containsExactly("UNAVAILABLE", "UNAVAILABLE");
+        // UNAVAILABLE은 maxRetries(2)번까지 재시도한 뒤 결과로 전달된다
+        verify(bodySpec, times(6)).exchange(any());
+    }
+
+    @Test
+    @DisplayName("sendAll() 반복 호출 → 배치마다 스레드 풀을 만들지 않고 클라이언트의 전송 스레드를 재사용")
+    void sendAll_reusesClientSenderThreadsAcrossBatches() throws Exception {
+        fcmClient = new FcmClient(new FcmConfig("my-project", null, 1), tokenClient, restClient, meterRegistry);
+        stubExchangeChain();
+        given(tokenClient.getToken()).willReturn(new TokenResponse("token", Instant.now().plusSeconds(3600)));
+        Answer<Object> ok = respond(200, Map.of("name", "projects/my-project/messages/1"));
+        Set<String> senderThreads = ConcurrentHashMap.newKeySet();
+        given(bodySpec.exchange(any())).willAnswer(invocation -> {
+            senderThreads.add(Thread.currentThread().getName());
+            return ok.answer(invocation);
+        });
+
+        for (int i = 0; i < 3; i++) {
+            fcmClient.sendAll(List.of(new FcmMessage("device-" + i, "Title", "Body", null)));
+            // 끝난 전송 스레드가 다음 작업을 기다리는 상태가 될 때까지
+            Thread.sleep(50);
+        }
+
+        assertThat(senderThreads).containsExactly("fcm-send-1");
+    }
+
+    @Test
+    @DisplayName("close() 후 sendAll() → IllegalStateException")
+    void sendAll_afterClose_throwsIllegalState() {
+        fcmClient.close();
+
+        assertThatThrownBy(() -> fcmClient.sendAll(List.of(new FcmMessage("device-1", "Title", "Body", null))))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("closed");
+    }
+
+    @Test
+    @DisplayName("sendAll() INTERNAL → 재시도해 성공, 영구 오류(UNREGISTERED)는 재시도하지 않음")
+    void sendAll_retriesOnlyRetryableErrors() {
+        fcmClient = new FcmClient(new FcmConfig("my-project", null, 1, null, FAST_RETRIES.rateControl()),
+                tokenClient, restClient, meterRegistry);
+        stubExchangeChain();
+        given(tokenClient.getToken()).willReturn(new TokenResponse("token", Instant.now().plusSeconds(3600)));
+        given(bodySpec.exchange(any()))
+                .willAnswer(respond(500, Map.of("error", Map.of("code", 500, "status", "INTERNAL"))))
+                .willAnswer(respond(200, Map.of("name", "projects/my-project/messages/1")))
+                .willAnswer(respond(404, Map.of("error", Map.of(
+                        "code", 404,
+                        "status", "NOT_FOUND",
+                        "details", List.of(Map.of(
+                                "@type", "type.googleapis.com/google.firebase.fcm.v1.FcmError",
+                                "errorCode", "UNREGISTERED"))))));
+
+        List<FcmSendResult> results = fcmClient.sendAll(List.of(
+                new FcmMessage("device-1", "Title", "Body", null),
+                new FcmMessage("device-2", "Title", "Body", null)));
+
+        assertThat(results.get(0).success()).isTrue();
+        assertThat(results.get(1).errorCode()).isEqualTo("UNREGISTERED");
+        verify(bodySpec, times(3)).exchange(any());
+        assertThat(meterRegistry.find("fcm.send.retries").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.find("fcm.send.duration").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("sendAll() 응답 타임아웃 → 다시 보내지 않고 UNAVAILABLE 결과로 반환")
+    void sendAll_responseTimeout_returnsUnavailableWithoutResending() {
+        fcmClient = new FcmClient(FAST_RETRIES, tokenClient, restClient, meterRegistry);
+        stubExchangeChain();
+        given(tokenClient.getToken()).willReturn(new TokenResponse("token", Instant.now().plusSeconds(3600)));
+        given(bodySpec.exchange(any()))
+                .willThrow(new ResourceAccessException("I/O error", new SocketTimeoutException("Read timed out")));
+
+        List<FcmSendResult> results = fcmClient.sendAll(List.of(new FcmMessage("device-1", "Title", "Body", null)));
+
+        assertThat(results.get(0).success()).isFalse();
+        assertThat(results.get(0).errorCode()).isEqualTo("UNAVAILABLE");
+        verify(bodySpec).exchange(any());
+    }
+
+    /** sendAsync()는 RestClient 없이 FcmHttp2RequestFactory.postAsync()로 직접 보낸다. */
+    private FcmClient asyncClient() {
+        given(requestFactory.executor()).willReturn(Runnable::run);
+        given(tokenClient.getAccessTokenAsync(any())).willReturn(CompletableFuture.completedFuture("async-token"));
+        return new FcmClient(new FcmConfig("my-project", null), tokenClient, requestFactory, meterRegistry);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static HttpResponse<byte[]> httpResponse(int status, String body) {
+        HttpResponse<byte[]> response = mock(HttpResponse.class);
+        given(response.statusCode()).willReturn(status);
+        given(response.body()).willReturn(body.getBytes(StandardCharsets.UTF_8));
+        return response;
+    }
+
+    @Test
+    @DisplayName("sendAsync() → 비동기 토큰으로 POST, 응답을 결과로 변환하고 타이머 기록")
+    void sendAsync_postsWithTokenAndCompletesWithResult() throws Exception {
+        FcmClient client = asyncClient();
+        HttpResponse<byte[]> response = httpResponse(200, "{\"name\":\"projects/my-project/messages/1\"}");
+        given(requestFactory.postAsync(any(), any(), any())).willReturn(CompletableFuture.completedFuture(response));
+
+        FcmSendResult result = client.sendAsync(new FcmMessage("device-token", "Title", "Body", null)).get(1, TimeUnit.SECONDS);
+
+        assertThat(result.success()).isTrue();
+        assertThat(result.messageName()).isEqualTo("projects/my-project/messages/1");
+        verify(requestFactory).postAsync(
+                eq(URI.create("https://fcm.googleapis.com/v1/projects/my-project/messages:send")),
+                argThat(headers -> "Bearer async-token".equals(headers.getFirst(HttpHeaders.AUTHORIZATION))),
+                argThat(body -> new String(body, StandardCharsets.UTF_8).contains("\"token\":\"device-token\"")));
+        assertThat(meterRegistry.find("fcm.send.duration").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("sendAsync() 오류 응답 → 예외 없이 FCM 오류 코드를 담은 결과")
+    void sendAsync_errorResponse_completesWithFailedResult() throws Exception {
+        FcmClient client = asyncClient();
+        HttpResponse<byte[]> response = httpResponse(404,
+                "{\"error\":{\"code\":404,\"message\":\"Requested entity was not found.\",\"status\":\"NOT_FOUND\","
+                        + "\"details\":[{\"@type\":\"type.googleapis.com/google.firebase.fcm.v1.FcmError\",\"errorCode\":\"UNREGISTERED\"}]}}");
+        given(requestFactory.postAsync(any(), any(), any())).willReturn(CompletableFuture.completedFuture(response));
+
+        FcmSendResult result = client.sendAsync(new FcmMessage("stale-token", "Title", "Body", null)).get(1, TimeUnit.SECONDS);
+
+        assertThat(result.success()).isFalse();
+        assertThat(result.statusCode()).isEqualTo(404);
+        assertThat(result.errorCode()).isEqualTo("UNREGISTERED");
+    }
+
+    @Test
+    @DisplayName("sendAsync() 503 → 블로킹 없이 백오프 후 재시도해 성공")
+    void sendAsync_unavailable_retriesAndSucceeds() throws Exception {
+        given(requestFactory.executor()).willReturn(Runnable::run);
+        given(tokenClient.getAccessTokenAsync(any())).willReturn(CompletableFuture.completedFuture("async-token"));
+        FcmClient client = new FcmClient(FAST_RETRIES, tokenClient, requestFactory, meterRegistry);
+        HttpResponse<byte[]> unavailable = httpResponse(503, "");
+        given(unavailable.headers()).willReturn(java.net.http.HttpHeaders.of(Map.of(), (name, value) -> true));
+        HttpResponse<byte[]> ok = httpResponse(200, "{\"name\":\"projects/my-project/messages/1\"}");
+        given(requestFactory.postAsync(any(), any(), any()))
+                .willReturn(CompletableFuture.completedFuture(unavailable))
+                .willReturn(CompletableFuture.completedFuture(ok));
+
+        FcmSendResult result = client.sendAsync(new FcmMessage("device-token", "Title", "Body", null)).get(1, TimeUnit.SECONDS);
+
+        assertThat(result.success()).isTrue();
+        verify(requestFactory, times(2)).postAsync(any(), any(), any());
+        assertThat(meterRegistry.find("fcm.send.duration").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("sendAsync() 스트림 대기 초과 → 보내지 않은 요청이므로 재시도, 응답 타임아웃은 재시도하지 않음")
+    void sendAsync_retriesOnlyRequestsThatNeverLeft() throws Exception {
+        given(requestFactory.executor()).willReturn(Runnable::run);
+        given(tokenClient.getAccessTokenAsync(any())).willReturn(CompletableFuture.completedFuture("async-token"));
+        FcmClient client = new FcmClient(FAST_RETRIES, tokenClient, requestFactory, meterRegistry);
+        HttpResponse<byte[]> ok = httpResponse(200, "{\"name\":\"projects/my-project/messages/1\"}");
+        given(requestFactory.postAsync(any(), any(), any()))
+                .willReturn(CompletableFuture.failedFuture(new FcmHttp2RequestFactory.NoStreamException("no stream")))
+                .willReturn(CompletableFuture.completedFuture(ok))
+                .willReturn(CompletableFuture.failedFuture(new HttpTimeoutException("request timed out")));
+
+        FcmSendResult retried = client.sendAsync(new FcmMessage("device-1", "Title", "Body", null)).get(1, TimeUnit.SECONDS);
+        FcmSendResult timedOut = client.sendAsync(new FcmMessage("device-2", "Title", "Body", null)).get(1, TimeUnit.SECONDS);
+
+        assertThat(retried.success()).isTrue();
+        assertThat(timedOut.success()).isFalse();
+        assertThat(timedOut.errorCode()).isEqualTo("UNAVAILABLE");
+        verify(requestFactory, times(3)).postAsync(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("sendAsync() 토큰 실패 → 요청 없이 UNAVAILABLE 결과")
+    void sendAsync_whenTokenUnavailable_completesWithUnavailable() throws Exception {
+        given(requestFactory.executor()).willReturn(Runnable::run);
+        given(tokenClient.getAccessTokenAsync(any())).willReturn(
+                CompletableFuture.failedFuture(new TokenUnavailableException("token endpoint down", null)));
+        FcmClient client = new FcmClient(new FcmConfig("my-project", null), tokenClient, requestFactory, meterRegistry);
+
+        FcmSendResult result = client.sendAsync(new FcmMessage("device-token", "Title", "Body", null)).get(1, TimeUnit.SECONDS);
+
+        assertThat(result.errorCode()).isEqualTo("UNAVAILABLE");
+        verify(requestFactory, never()).postAsync(any(), any(), any());
+        assertThat(meterRegistry.find("fcm.send.duration").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("sendAsync(timeout) 초과 → TimeoutException으로 실패하고 요청 취소")
+    void sendAsync_timeout_failsAndCancelsExchange() {
+        FcmClient client = asyncClient();
+        CompletableFuture<HttpResponse<byte[]>> exchange = new CompletableFuture<>();
+        given(requestFactory.postAsync(any(), any(), any())).willReturn(exchange);
+
+        CompletableFuture<FcmSendResult> result = client.sendAsync(
+                new FcmMessage("device-token", "Title", "Body", null), Duration.ofMillis(100));
+
+        assertThatThrownBy(() -> result.get(1, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(TimeoutException.class);
+        assertThat(exchange.isCancelled()).isTrue();
+        assertThat(meterRegistry.find("fcm.send.duration").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("sendAsync() 취소 → 진행 중인 요청도 취소")
+    void sendAsync_cancel_cancelsExchange() {
+        FcmClient client = asyncClient();
+        CompletableFuture<HttpResponse<byte[]>> exchange = new CompletableFuture<>();
+        given(requestFactory.postAsync(any(), any(), any())).willReturn(exchange);
+
+        client.sendAsync(new FcmMessage("device-token", "Title", "Body", null)).cancel(true);
+
+        assertThat(exchange.isCancelled()).isTrue();
+    }
+
+    @Test
+    @DisplayName("RestClient로 만든 FcmClient의 sendAsync() → IllegalStateException")
+    void sendAsync_withoutRequestFactory_throws() {
+        assertThatThrownBy(() -> fcmClient.sendAsync(new FcmMessage("device-token", "Title", "Body", null)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("FcmHttp2RequestFactory");
+    }
+
     @Test
     @DisplayName("null token → FcmMessage 생성 시 NullPointerException")
     void nullToken_throwsNullPointerException() {
@@ -3,6 +3,8 @@ package com.portfolio.fcm;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
@@ -30,4 +32,46 @@ class FcmConfigTest {
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessageContaining("projectId");
     }
+
+    @Test
+    @DisplayName("maxConcurrentSends 미지정 → 기본값 32")
+    void maxConcurrentSends_defaultsTo32() {
+        assertThat(new FcmConfig("test-project", null).maxConcurrentSends()).isEqualTo(32);
+    }
+
+    @Test
+    @DisplayName("maxConcurrentSends < 1 → IllegalArgumentException")
+    void constructor_throwsWhenMaxConcurrentSendsIsNotPositive() {
+        assertThatThrownBy(() -> new FcmConfig("test-project", null, 0))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("maxConcurrentSends");
+    }
+
+    @Test
+    @DisplayName("rateControl 미지정 → 기본값 (한도 32, 1~200, 재시도 3회)")
+    void rateControl_defaults() {
+        FcmConfig.RateControl rateControl = new FcmConfig("test-project", null).rateControl();
+        assertThat(rateControl.initialLimit()).isEqualTo(32);
+        assertThat(rateControl.minLimit()).isEqualTo(1);
+        assertThat(rateControl.maxLimit()).isEqualTo(200);
+        assertThat(rateControl.maxRetries()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("initialLimit이 minLimit~maxLimit 범위 밖 → IllegalArgumentException")
+    void rateControl_throwsWhenInitialLimitIsOutOfRange() {
+        assertThatThrownBy(() -> new FcmConfig.RateControl(300, 1, 200,
+                Duration.ofSeconds(2), 3, Duration.ofMillis(500), Duration.ofSeconds(60)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("initialLimit");
+    }
+
+    @Test
+    @DisplayName("maxBackoff < initialBackoff → IllegalArgumentException")
+    void rateControl_throwsWhenMaxBackoffIsBelowInitialBackoff() {
+        assertThatThrownBy(() -> new FcmConfig.RateControl(32, 1, 200,
+                Duration.ofSeconds(2), 3, Duration.ofSeconds(5), Duration.ofSeconds(1)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("maxBackoff");
+    }
 }
@@ -0,0 +1,180 @@
+package com.portfolio.fcm;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FcmHttp2RequestFactoryTest {
+
+    private WireMockServer server;
+    private FcmHttp2RequestFactory factory;
+
+    @BeforeEach
+    void setUp() {
+        server = new WireMockServer(options().dynamicPort());
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (factory != null) {
+            factory.close();
+        }
+        server.stop();
+    }
+
+    @Test
+    @DisplayName("POST → 헤더·본문 전송, 응답 상태·헤더·본문 반환")
+    void execute_postsHeadersAndBody() throws Exception {
+        server.stubFor(post(urlEqualTo("/v1/projects/p/messages:send")).willReturn(okJson(
+                "{\"name\":\"projects/p/messages/1\"}")));
+        factory = new FcmHttp2RequestFactory(FcmConfig.Transport.defaults());
+
+        ClientHttpRequest request = factory.createRequest(
+                URI.create(server.baseUrl() + "/v1/projects/p/messages:send"), HttpMethod.POST);
+        request.getHeaders().add("Authorization", "Bearer token");
+        request.getHeaders().add("Content-Type", "application/json");
+        request.getHeaders().add("Content-Length", "23");
+        request.getBody().write("{\"message\":{\"token\":1}}".getBytes(StandardCharsets.UTF_8));
+
+        try (ClientHttpResponse response = request.execute()) {
+            assertThat(response.getStatusCode().value()).isEqualTo(200);
+            assertThat(response.getHeaders().getFirst("Content-Type")).isEqualTo("application/json");
+            assertThat(new String(response.getBody().readAllBytes(), StandardCharsets.UTF_8))
+                    .isEqualTo("{\"name\":\"projects/p/messages/1\"}");
+        }
+        server.verify(postRequestedFor(urlEqualTo("/v1/projects/p/messages:send"))
+                .withHeader("Authorization", equalTo("Bearer token"))
+                .withRequestBody(equalTo("{\"message\":{\"token\":1}}")));
+        assertThat(factory.inFlight()).isZero();
+    }
+
+    @Test
+    @DisplayName("오류 상태 → 예외 없이 상태·Retry-After 그대로 반환")
+    void execute_errorStatus_returnsResponse() throws Exception {
+        server.stubFor(post(urlEqualTo("/send")).willReturn(aResponse()
+                .withStatus(503)
+                .withHeader("Retry-After", "7")
+                .withBody("busy")));
+        factory = new FcmHttp2RequestFactory(FcmConfig.Transport.defaults());
+
+        try (ClientHttpResponse response = factory.createRequest(URI.create(server.baseUrl() + "/send"), HttpMethod.POST).execute()) {
+            assertThat(response.getStatusCode().value()).isEqualTo(503);
+            assertThat(response.getHeaders().getFirst("Retry-After")).isEqualTo("7");
+        }
+    }
+
+    @Test
+    @DisplayName("응답 지연 → requestTimeout 후 HttpTimeoutException")
+    void execute_hungServer_failsAfterRequestTimeout() {
+        server.stubFor(post(urlEqualTo("/send")).willReturn(okJson("{}").withFixedDelay(5_000)));
+        factory = new FcmHttp2RequestFactory(new FcmConfig.Transport(1, 10, Duration.ofSeconds(1), Duration.ofMillis(200)));
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> factory.createRequest(URI.create(server.baseUrl() + "/send"), HttpMethod.POST).execute())
+                .isInstanceOf(HttpTimeoutException.class);
+        assertThat(Duration.ofNanos(System.nanoTime() - start).toMillis()).isLessThan(3_000L);
+        assertThat(factory.inFlight()).isZero();
+    }
+
+    @Test
+    @DisplayName("스트림 한도 초과 요청 → 빈 스트림이 생길 때까지 대기")
+    void execute_beyondStreamLimit_waitsForFreeStream() throws Exception {
+        server.stubFor(post(urlEqualTo("/send")).willReturn(okJson("{}").withFixedDelay(200)));
+        factory = new FcmHttp2RequestFactory(new FcmConfig.Transport(1, 1, Duration.ofSeconds(1), Duration.ofSeconds(5)));
+        ExecutorService callers = Executors.newFixedThreadPool(3);
+
+        long start = System.nanoTime();
+        List<Future<Integer>> statuses = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            statuses.add(callers.submit(() -> {
+                try (ClientHttpResponse response = factory.createRequest(URI.create(server.baseUrl() + "/send"), HttpMethod.POST).execute()) {
+                    return response.getStatusCode().value();
+                }
+            }));
+        }
+        for (Future<Integer> status : statuses) {
+            assertThat(status.get()).isEqualTo(200);
+        }
+        callers.shutdown();
+
+        // 스트림 하나로 200ms 요청 세 개를 차례로 처리
+        assertThat(Duration.ofNanos(System.nanoTime() - start).toMillis()).isGreaterThanOrEqualTo(600L);
+    }
+
+    @Test
+    @DisplayName("연결을 여는 첫 요청이 진행 중이어도 스트림 조회·획득은 막히지 않음")
+    void execute_openingRequestInFlight_doesNotBlockOtherCallers() throws Exception {
+        server.stubFor(post(urlEqualTo("/send")).willReturn(okJson("{}").withFixedDelay(1_000)));
+        factory = new FcmHttp2RequestFactory(new FcmConfig.Transport(1, 10, Duration.ofSeconds(1), Duration.ofSeconds(5)));
+        ExecutorService callers = Executors.newSingleThreadExecutor();
+        Future<Integer> opening = callers.submit(() -> {
+            try (ClientHttpResponse response = factory.createRequest(URI.create(server.baseUrl() + "/send"), HttpMethod.POST).execute()) {
+                return response.getStatusCode().value();
+            }
+        });
+        while (factory.inFlight() == 0) {
+            Thread.sleep(5);
+        }
+
+        long start = System.nanoTime();
+        CompletableFuture<HttpResponse<byte[]>> second = factory.postAsync(
+                URI.create(server.baseUrl() + "/send"), new HttpHeaders(), new byte[0]);
+        assertThat(factory.inFlight()).isEqualTo(2);
+        assertThat(Duration.ofNanos(System.nanoTime() - start).toMillis()).isLessThan(500L);
+
+        assertThat(opening.get()).isEqualTo(200);
+        assertThat(second.get(5, TimeUnit.SECONDS).statusCode()).isEqualTo(200);
+        callers.shutdown();
+    }
+
+    @Test
+    @DisplayName("연결이 열리기 전에 취소한 postAsync → 요청을 보내지 않고 스트림 반납")
+    void postAsync_cancelledWhileConnectionOpens_isNeverSent() throws Exception {
+        server.stubFor(post(urlEqualTo("/send")).willReturn(okJson("{}").withFixedDelay(500)));
+        factory = new FcmHttp2RequestFactory(new FcmConfig.Transport(1, 10, Duration.ofSeconds(1), Duration.ofSeconds(5)));
+        URI uri = URI.create(server.baseUrl() + "/send");
+        CompletableFuture<HttpResponse<byte[]>> opening = factory.postAsync(uri, new HttpHeaders(), new byte[0]);
+        CompletableFuture<HttpResponse<byte[]>> queued = factory.postAsync(uri, new HttpHeaders(), new byte[0]);
+
+        queued.cancel(true);
+
+        assertThat(factory.inFlight()).isEqualTo(1);
+        assertThat(opening.get(5, TimeUnit.SECONDS).statusCode()).isEqualTo(200);
+        Thread.sleep(200);
+        server.verify(1, postRequestedFor(urlEqualTo("/send")));
+        assertThat(factory.inFlight()).isZero();
+    }
+
+    @Test
+    @DisplayName("connections < 1 → IllegalArgumentException")
+    void transport_rejectsNoConnections() {
+        assertThatThrownBy(() -> new FcmConfig.Transport(0, 100, Duration.ofSeconds(1), Duration.ofSeconds(1)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("connections");
+    }
+}
@@ -0,0 +1,65 @@
+package com.portfolio.fcm;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FcmJsonTest {
+
+    @Test
+    @DisplayName("맵·리스트·숫자·불리언·null → JSON, 특수 문자 이스케이프")
+    void write_escapesStrings() {
+        Map<String, Object> value = new LinkedHashMap<>();
+        value.put("text", "say \"hi\"\n\\ \u0001");
+        value.put("list", Arrays.asList(1, 2.5, true, null));
+        value.put("empty", Map.of());
+
+        assertThat(FcmJson.write(value))
+                .isEqualTo("{\"text\":\"say \\\"hi\\\"\\n\\\\ \\u0001\",\"list\":[1,2.5,true,null],\"empty\":{}}");
+    }
+
+    @Test
+    @DisplayName("FcmMessage.toJson() → toRequestBody()와 같은 구조")
+    void toJson_matchesRequestBody() {
+        FcmMessage message = new FcmMessage("device-token", "Title", "Body", Map.of("k", "v"));
+
+        assertThat(FcmJson.parseObject(message.toJson())).isEqualTo(message.toRequestBody());
+    }
+
+    @Test
+    @DisplayName("FCM 오류 응답 → 중첩 객체·배열·유니코드 이스케이프까지 파싱")
+    void parseObject_readsNestedError() {
+        Map<String, Object> body = FcmJson.parseObject(
+                "{ \"error\": { \"code\": 429, \"message\": \"Quota \\u0065xceeded\", \"status\": \"RESOURCE_EXHAUSTED\","
+                        + " \"details\": [ { \"errorCode\": \"QUOTA_EXCEEDED\" } ] } }");
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> error = (Map<String, Object>) body.get("error");
+        assertThat(error.get("code")).isEqualTo(429L);
+        assertThat(error.get("message")).isEqualTo("Quota exceeded");
+        assertThat(error.get("details")).isEqualTo(List.of(Map.of("errorCode", "QUOTA_EXCEEDED")));
+    }
+
+    @Test
+    @DisplayName("JSON 객체가 아닌 본문 → null")
+    void parseObject_notAnObject_returnsNull() {
+        assertThat(FcmJson.parseObject("<html>Bad Gateway</html>")).isNull();
+        assertThat(FcmJson.parseObject("[1,2]")).isNull();
+        assertThat(FcmJson.parseObject("{\"name\":")).isNull();
+        assertThat(FcmJson.parseObject("")).isNull();
+    }
+
+    @Test
+    @DisplayName("JSON으로 쓸 수 없는 값 → IllegalArgumentException")
+    void write_unsupportedValue_throws() {
+        assertThatThrownBy(() -> FcmJson.write(Map.of("when", new Object())))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
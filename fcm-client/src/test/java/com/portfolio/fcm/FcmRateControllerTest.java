@@ -0,0 +1,198 @@
+package com.portfolio.fcm;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FcmRateControllerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private FcmRateController controller(int initialLimit, int minLimit, int maxLimit) {
+        return new FcmRateController(new FcmConfig.RateControl(initialLimit, minLimit, maxLimit,
+                Duration.ofSeconds(2), 3, Duration.ofMillis(100), Duration.ofSeconds(1)), "my-project", meterRegistry);
+    }
+
+    @Test
+    @DisplayName("한도만큼 진행 중이면 acquire()는 슬롯이 반납될 때까지 대기")
+    void acquire_waitsWhileLimitIsInFlight() throws Exception {
+        FcmRateController controller = controller(2, 1, 2);
+        FcmRateController.Permit first = controller.acquire().get();
+        controller.acquire().get();
+
+        CompletableFuture<FcmRateController.Permit> third = controller.acquire();
+        assertThat(third.isDone()).isFalse();
+
+        first.complete(200, null);
+        assertThat(third.get(1, TimeUnit.SECONDS)).isNotNull();
+        assertThat(controller.inFlight()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("취소된 대기자는 건너뛰고 다음 대기자에게 슬롯 전달")
+    void acquire_cancelledWaiterIsSkipped() throws Exception {
+        FcmRateController controller = controller(1, 1, 1);
+        FcmRateController.Permit held = controller.acquire().get();
+        CompletableFuture<FcmRateController.Permit> cancelled = controller.acquire();
+        CompletableFuture<FcmRateController.Permit> next = controller.acquire();
+
+        cancelled.cancel(false);
+        held.release();
+
+        assertThat(next.get(1, TimeUnit.SECONDS)).isNotNull();
+        assertThat(controller.inFlight()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("429/503 → 한도 절반, 최소 한도 아래로는 내려가지 않음")
+    void throttledResponse_halvesLimitDownToMinimum() throws Exception {
+        FcmRateController controller = controller(8, 3, 8);
+
+        controller.acquire().get().complete(429, null);
+        assertThat(controller.limit()).isEqualTo(4.0);
+
+        controller.acquire().get().complete(503, null);
+        assertThat(controller.limit()).isEqualTo(3.0);
+    }
+
+    @Test
+    @DisplayName("감소 이전에 보낸 요청의 429는 한도를 다시 줄이지 않음")
+    void throttledResponses_fromTheSameRound_decreaseOnce() throws Exception {
+        FcmRateController controller = controller(8, 1, 8);
+        List<FcmRateController.Permit> round = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            round.add(controller.acquire().get());
+        }
+
+        round.forEach(permit -> permit.complete(429, null));
+
+        assertThat(controller.limit()).isEqualTo(4.0);
+    }
+
+    @Test
+    @DisplayName("한도를 채워 쓰는 동안의 성공 응답 → 한도만큼 응답마다 약 1씩 증가, 최대 한도까지")
+    void successfulResponses_increaseLimitAdditivelyUpToMaximum() throws Exception {
+        FcmRateController controller = controller(4, 1, 5);
+
+        for (int round = 0; round < 10; round++) {
+            List<FcmRateController.Permit> permits = new ArrayList<>();
+            for (int i = 0; i < (int) controller.limit(); i++) {
+                permits.add(controller.acquire().get());
+            }
+            permits.forEach(permit -> permit.complete(200, null));
+        }
+
+        assertThat(controller.limit()).isEqualTo(5.0);
+    }
+
+    @Test
+    @DisplayName("한도를 거의 안 쓰는 동안에는 성공해도 한도가 늘지 않음")
+    void successfulResponses_whileIdle_leaveLimitAlone() throws Exception {
+        FcmRateController controller = controller(10, 1, 20);
+
+        for (int i = 0; i < 50; i++) {
+            controller.acquire().get().complete(200, null);
+        }
+
+        assertThat(controller.limit()).isEqualTo(10.0);
+    }
+
+    @Test
+    @DisplayName("latencyThreshold보다 느린 응답 → 한도 10% 감소")
+    void slowResponse_shrinksLimitByATenth() throws Exception {
+        FcmRateController controller = new FcmRateController(new FcmConfig.RateControl(10, 1, 10,
+                Duration.ofMillis(20), 3, Duration.ofMillis(100), Duration.ofSeconds(1)), "my-project", meterRegistry);
+        FcmRateController.Permit permit = controller.acquire().get();
+
+        Thread.sleep(50);
+        permit.complete(200, null);
+
+        assertThat(controller.limit()).isEqualTo(9.0);
+    }
+
+    @Test
+    @DisplayName("Retry-After → 지날 때까지 프로젝트의 모든 전송을 보류")
+    void retryAfter_holdsEverySendUntilItPasses() throws Exception {
+        FcmRateController controller = controller(4, 1, 4);
+        long start = System.nanoTime();
+
+        controller.acquire().get().complete(429, Duration.ofMillis(300));
+        CompletableFuture<FcmRateController.Permit> held = controller.acquire();
+
+        assertThat(held.isDone()).isFalse();
+        assertThat(held.get(2, TimeUnit.SECONDS)).isNotNull();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(250);
+    }
+
+    @Test
+    @DisplayName("Retry-After는 maxBackoff를 넘겨 보류하지 않음")
+    void retryAfter_isCappedAtMaxBackoff() throws Exception {
+        FcmRateController controller = controller(4, 1, 4);
+
+        controller.acquire().get().complete(503, Duration.ofHours(1));
+
+        assertThat(controller.acquire().get(3, TimeUnit.SECONDS)).isNotNull();
+    }
+
+    @Test
+    @DisplayName("Retry-After 파싱: 초 단위와 HTTP-date 모두 지원, 읽을 수 없으면 null")
+    void parseRetryAfter_readsSecondsAndHttpDates() {
+        assertThat(FcmRateController.parseRetryAfter("30")).isEqualTo(Duration.ofSeconds(30));
+        assertThat(FcmRateController.parseRetryAfter(" 0 ")).isEqualTo(Duration.ZERO);
+
+        String inAMinute = ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(60).format(DateTimeFormatter.RFC_1123_DATE_TIME);
+        Duration untilDate = FcmRateController.parseRetryAfter(inAMinute);
+        assertThat(untilDate.getSeconds()).isBetween(55L, 60L);
+
+        String past = ZonedDateTime.now(ZoneOffset.UTC).minusSeconds(60).format(DateTimeFormatter.RFC_1123_DATE_TIME);
+        assertThat(FcmRateController.parseRetryAfter(past)).isEqualTo(Duration.ZERO);
+
+        assertThat(FcmRateController.parseRetryAfter(null)).isNull();
+        assertThat(FcmRateController.parseRetryAfter("soon")).isNull();
+    }
+
+    @Test
+    @DisplayName("retryDelay() → 지수 상한 이하의 jitter, Retry-After가 있으면 그 이상")
+    void retryDelay_isJitteredUnderCapAndAtLeastRetryAfter() {
+        FcmRateController controller = controller(4, 1, 4);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(controller.retryDelay(1, null).toMillis()).isBetween(0L, 100L);
+            assertThat(controller.retryDelay(3, null).toMillis()).isBetween(0L, 400L);
+            assertThat(controller.retryDelay(20, null).toMillis()).isBetween(0L, 1000L);
+            assertThat(controller.retryDelay(1, Duration.ofMillis(700)).toMillis()).isBetween(700L, 1000L);
+            assertThat(controller.retryDelay(1, Duration.ofHours(1)).toMillis()).isEqualTo(1000L);
+        }
+    }
+
+    @Test
+    @DisplayName("현재 한도와 진행 중 요청 수를 프로젝트 태그의 게이지로 노출")
+    void gauges_exposeLimitAndInFlight() throws Exception {
+        FcmRateController controller = controller(8, 1, 8);
+        FcmRateController.Permit permit = controller.acquire().get();
+        permit.complete(429, null);
+        controller.acquire().get();
+
+        assertThat(meterRegistry.find("fcm.send.concurrency.limit").tag("project", "my-project").gauge().value())
+                .isEqualTo(4.0);
+        assertThat(meterRegistry.find("fcm.send.concurrency.in.flight").tag("project", "my-project").gauge().value())
+                .isEqualTo(1.0);
+    }
+}
@@ -0,0 +1,85 @@
+package com.portfolio.fcm;
+
+import com.portfolio.oauth2.awt.core.TokenUnavailableException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FcmSendResultTest {
+
+    private final FcmMessage message = new FcmMessage("device-token", "Title", "Body", null);
+
+    @Test
+    @DisplayName("200 응답 → 성공, 메시지 이름 반환")
+    void fromResponse_success_readsMessageName() {
+        FcmSendResult result = FcmSendResult.fromResponse(message, 200,
+                Map.of("name", "projects/my-project/messages/0:1500415314455276%31bd1c96"));
+
+        assertThat(result.success()).isTrue();
+        assertThat(result.messageName()).isEqualTo("projects/my-project/messages/0:1500415314455276%31bd1c96");
+        assertThat(result.errorCode()).isNull();
+    }
+
+    @Test
+    @DisplayName("FcmError details 포함 → FCM 오류 코드(UNREGISTERED) 우선")
+    void fromResponse_fcmErrorDetails_readsFcmErrorCode() {
+        FcmSendResult result = FcmSendResult.fromResponse(message, 404, Map.of("error", Map.of(
+                "code", 404,
+                "message", "Requested entity was not found.",
+                "status", "NOT_FOUND",
+                "details", List.of(Map.of(
+                        "@type", "type.googleapis.com/google.firebase.fcm.v1.FcmError",
+                        "errorCode", "UNREGISTERED")))));
+
+        assertThat(result.success()).isFalse();
+        assertThat(result.statusCode()).isEqualTo(404);
+        assertThat(result.errorCode()).isEqualTo("UNREGISTERED");
+        assertThat(result.errorMessage()).isEqualTo("Requested entity was not found.");
+    }
+
+    @Test
+    @DisplayName("details 없음 → error.status 사용")
+    void fromResponse_withoutDetails_usesStatus() {
+        FcmSendResult result = FcmSendResult.fromResponse(message, 400, Map.of("error", Map.of(
+                "code", 400,
+                "message", "The registration token is not a valid FCM registration token",
+                "status", "INVALID_ARGUMENT")));
+
+        assertThat(result.errorCode()).isEqualTo("INVALID_ARGUMENT");
+    }
+
+    @Test
+    @DisplayName("JSON이 아닌 503 응답 → HTTP 상태로 UNAVAILABLE 추정")
+    void fromResponse_withoutBody_mapsHttpStatus() {
+        FcmSendResult result = FcmSendResult.fromResponse(message, 503, null);
+
+        assertThat(result.success()).isFalse();
+        assertThat(result.errorCode()).isEqualTo("UNAVAILABLE");
+        assertThat(result.errorMessage()).isEqualTo("HTTP 503");
+    }
+
+    @Test
+    @DisplayName("연결 실패·토큰 획득 실패 → statusCode 0, UNAVAILABLE")
+    void fromException_unreachable_isUnavailable() {
+        FcmSendResult io = FcmSendResult.fromException(message, new ResourceAccessException("Connection refused"));
+        FcmSendResult token = FcmSendResult.fromException(message, new TokenUnavailableException("no token", null));
+
+        assertThat(io.statusCode()).isZero();
+        assertThat(io.errorCode()).isEqualTo("UNAVAILABLE");
+        assertThat(token.errorCode()).isEqualTo("UNAVAILABLE");
+    }
+
+    @Test
+    @DisplayName("그 밖의 예외 → UNKNOWN")
+    void fromException_other_isUnknown() {
+        FcmSendResult result = FcmSendResult.fromException(message, new IllegalStateException("boom"));
+
+        assertThat(result.errorCode()).isEqualTo("UNKNOWN");
+        assertThat(result.errorMessage()).isEqualTo("boom");
+    }
+}
@@ -0,0 +1,105 @@
+package com.portfolio.oauth2.awt.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link AssertionTokenClient#getAccessToken()} on the cached path under contention, and a full
+ * refresh (sign, POST to the local stub endpoint, parse) for a request that is not cached yet.
+ * The {@code cacheLookup_*} variants ask for the same default token as an explicit
+ * {@link TokenRequest}, which bypasses the volatile fast path and goes through the Caffeine
+ * lookup and wall-clock expiry check, for comparison.
+ */
+@State(Scope.Benchmark)
+public class CachedTokenProviderBenchmark {
+
+    private StubTokenEndpoint endpoint;
+    private AssertionTokenClient client;
+    private TokenRequest defaultRequest;
+    private final AtomicLong subjects = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        endpoint = new StubTokenEndpoint();
+        AssertionConfig config = endpoint.googleConfig(StubTokenEndpoint.rsaPrivateKeyPem(2048));
+        client = new AssertionTokenClient(config);
+        defaultRequest = TokenRequest.from(config);
+        client.getAccessToken();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+        endpoint.close();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Threads(1)
+    public String cachedHit_1thread() {
+        return client.getAccessToken();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Threads(8)
+    public String cachedHit_8threads() {
+        return client.getAccessToken();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Threads(64)
+    public String cachedHit_64threads() {
+        return client.getAccessToken();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Threads(1)
+    public String cacheLookup_1thread() {
+        return client.getAccessToken(defaultRequest);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Threads(8)
+    public String cacheLookup_8threads() {
+        return client.getAccessToken(defaultRequest);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Threads(64)
+    public String cacheLookup_64threads() {
+        return client.getAccessToken(defaultRequest);
+    }
+
+    /** Each call uses a new subject, so it always misses and refreshes against the stub. */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public String refresh() {
+        TokenRequest request = TokenRequest.builder()
+                .subject("user-" + subjects.incrementAndGet() + "@example.com")
+                .build();
+        return client.getAccessToken(request);
+    }
+}
@@ -0,0 +1,52 @@
+package com.portfolio.oauth2.awt.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one signed assertion by RSA key size; signing dominates and grows roughly cubically.
+ * {@link #buildAssertionParsingKeyEachTime} is what every call cost before the builder was
+ * reused: PEM decoding, PKCS8 parsing, signer and header construction on top of the signature.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtAssertionBuilderBenchmark {
+
+    @Param({"2048", "3072", "4096"})
+    public int keySize;
+
+    private AssertionConfig config;
+    private JwtAssertionBuilder builder;
+
+    @Setup
+    public void setUp() throws Exception {
+        config = AssertionConfig.builder()
+                .provider(AssertionConfig.Provider.GOOGLE)
+                .clientId("bench@project.iam.gserviceaccount.com")
+                .tokenEndpoint("https://oauth2.googleapis.com/token")
+                .scopes(List.of("https://www.googleapis.com/auth/cloud-messaging"))
+                .privateKeyPem(StubTokenEndpoint.rsaPrivateKeyPem(keySize))
+                .build();
+        builder = new JwtAssertionBuilder(config);
+    }
+
+    @Benchmark
+    public String buildAssertion() {
+        return builder.buildAssertion();
+    }
+
+    @Benchmark
+    public String buildAssertionParsingKeyEachTime() {
+        return new JwtAssertionBuilder(config).buildAssertion();
+    }
+}
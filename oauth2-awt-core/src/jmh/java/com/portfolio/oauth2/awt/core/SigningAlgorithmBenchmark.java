@@ -0,0 +1,56 @@
+package com.portfolio.oauth2.awt.core;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signing throughput of one assertion per {@link SigningAlgorithm} (RS256 with a 2048-bit key),
+ * with the assertion length reported as the {@code assertionBytes} secondary result.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SigningAlgorithmBenchmark {
+
+    @Param({"RS256", "ES256", "EdDSA"})
+    public SigningAlgorithm algorithm;
+
+    private JwtAssertionBuilder builder;
+
+    @Setup
+    public void setUp() throws Exception {
+        builder = new JwtAssertionBuilder(AssertionConfig.builder()
+                .provider(AssertionConfig.Provider.MICROSOFT)
+                .clientId("00000000-0000-0000-0000-000000000000")
+                .tokenEndpoint("https://login.microsoftonline.com/tenant/oauth2/v2.0/token")
+                .scopes(List.of("https://graph.microsoft.com/.default"))
+                .privateKeyPem(StubTokenEndpoint.privateKeyPem(algorithm))
+                .keyId("bench-key")
+                .signingAlgorithm(algorithm)
+                .build());
+    }
+
+    /** Length of the last assertion; constant per algorithm, so the reported value is exact. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Size {
+        public long assertionBytes;
+    }
+
+    @Benchmark
+    public String sign(Size size) {
+        String assertion = builder.buildAssertion();
+        size.assertionBytes = assertion.length();
+        return assertion;
+    }
+}
@@ -1,5 +1,6 @@
 package com.portfolio.oauth2.awt.core;
 
+import java.security.PrivateKey;
 import java.util.List;
 
 /**
@@ -11,14 +12,47 @@ public record AssertionConfig(
         String tokenEndpoint,
         List<String> scopes,
         String privateKeyPem,
+        PrivateKey privateKey,
         String keyId,
+        SigningAlgorithm signingAlgorithm,
         long clockSkewSeconds,
         long tokenExpirySeconds,
         int maxRetries,
-        long timeoutMs
+        long timeoutMs,
+        double refreshAheadRatio,
+        long maxCachedTokens,
+        FailurePolicy failurePolicy,
+        HedgePolicy hedgePolicy
 ) {
     public enum Provider { GOOGLE, MICROSOFT }
 
+    public AssertionConfig {
+        if (signingAlgorithm == null) {
+            signingAlgorithm = SigningAlgorithm.RS256;
+        }
+        if (hedgePolicy == null) {
+            hedgePolicy = HedgePolicy.disabled();
+        }
+        if (refreshAheadRatio < 0 || refreshAheadRatio >= 1) {
+            throw new IllegalArgumentException("refreshAheadRatio must be in [0, 1), was " + refreshAheadRatio);
+        }
+    }
+
+    /**
+     * Refresh-ahead renews the token in the background once {@code refreshAheadRatio} of its
+     * lifetime has elapsed, serving the still-valid token meanwhile. 0 disables it.
+     */
+    public boolean refreshAheadEnabled() {
+        return refreshAheadRatio > 0;
+    }
+
+    /** A copy signing with another key of the same client, e.g. after a key rotation. */
+    public AssertionConfig withSigningKey(String newPrivateKeyPem, String newKeyId) {
+        return new AssertionConfig(provider, clientId, tokenEndpoint, scopes, newPrivateKeyPem, null, newKeyId,
+                signingAlgorithm, clockSkewSeconds, tokenExpirySeconds, maxRetries, timeoutMs,
+                refreshAheadRatio, maxCachedTokens, failurePolicy, hedgePolicy);
+    }
+
     public static Builder builder() { return new Builder(); }
 
     public static class Builder {
@@ -27,26 +61,45 @@ public record AssertionConfig(
         private String tokenEndpoint;
         private List<String> scopes;
         private String privateKeyPem;
+        private PrivateKey privateKey;
         private String keyId;
+        private SigningAlgorithm signingAlgorithm = SigningAlgorithm.RS256;
         private long clockSkewSeconds = 60;
         private long tokenExpirySeconds = 3600;
         private int maxRetries = 3;
         private long timeoutMs = 10_000;
+        private double refreshAheadRatio = 0;
+        private long maxCachedTokens = 10_000;
+        private FailurePolicy failurePolicy = FailurePolicy.defaults();
+        private HedgePolicy hedgePolicy = HedgePolicy.disabled();
 
         public Builder provider(Provider p) { this.provider = p; return this; }
         public Builder clientId(String s) { this.clientId = s; return this; }
         public Builder tokenEndpoint(String s) { this.tokenEndpoint = s; return this; }
         public Builder scopes(List<String> s) { this.scopes = s; return this; }
         public Builder privateKeyPem(String s) { this.privateKeyPem = s; return this; }
+        /**
+         * The key of {@link #privateKeyPem} already parsed, e.g. by {@link ServiceAccountCredentials},
+         * so it is not decoded a second time. The PEM is still needed, to derive token store keys.
+         */
+        public Builder privateKey(PrivateKey k) { this.privateKey = k; return this; }
         public Builder keyId(String s) { this.keyId = s; return this; }
+        /** Algorithm matching {@link #privateKeyPem}; RS256 by default. */
+        public Builder signingAlgorithm(SigningAlgorithm a) { this.signingAlgorithm = a; return this; }
         public Builder clockSkewSeconds(long v) { this.clockSkewSeconds = v; return this; }
         public Builder tokenExpirySeconds(long v) { this.tokenExpirySeconds = v; return this; }
         public Builder maxRetries(int v) { this.maxRetries = v; return this; }
         public Builder timeoutMs(long v) { this.timeoutMs = v; return this; }
+        public Builder refreshAheadRatio(double v) { this.refreshAheadRatio = v; return this; }
+        public Builder maxCachedTokens(long v) { this.maxCachedTokens = v; return this; }
+        public Builder failurePolicy(FailurePolicy p) { this.failurePolicy = p; return this; }
+        /** Sends extra requests when a token exchange is slow; off by default. */
+        public Builder hedgePolicy(HedgePolicy p) { this.hedgePolicy = p; return this; }
 
         public AssertionConfig build() {
             return new AssertionConfig(provider, clientId, tokenEndpoint, scopes,
-                    privateKeyPem, keyId, clockSkewSeconds, tokenExpirySeconds, maxRetries, timeoutMs);
+                    privateKeyPem, privateKey, keyId, signingAlgorithm, clockSkewSeconds, tokenExpirySeconds, maxRetries, timeoutMs,
+                    refreshAheadRatio, maxCachedTokens, failurePolicy, hedgePolicy);
         }
     }
 }
@@ -1,31 +1,136 @@
 package com.portfolio.oauth2.awt.core;
 
-import org.springframework.web.client.RestClient;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Public API: obtains OAuth2 access tokens via JWT Bearer assertion.
  */
-public class AssertionTokenClient {
+public class AssertionTokenClient implements TokenSource, AutoCloseable {
 
     private final CachedTokenProvider cachedTokenProvider;
+    private volatile AssertionConfig config;
 
     public AssertionTokenClient(AssertionConfig config) {
-        RestClient restClient = RestClient.builder()
-                .defaultHeader("Accept", "application/json")
-                .build();
-        JwtAssertionBuilder assertionBuilder = new JwtAssertionBuilder(config);
-        TokenEndpointClient endpointClient = new TokenEndpointClient(restClient);
-        this.cachedTokenProvider = new CachedTokenProvider(config, assertionBuilder, endpointClient);
+        this(builder(config));
     }
 
-    /** Constructor for testing/custom RestClient injection. */
-    public AssertionTokenClient(AssertionConfig config, RestClient restClient) {
-        JwtAssertionBuilder assertionBuilder = new JwtAssertionBuilder(config);
-        TokenEndpointClient endpointClient = new TokenEndpointClient(restClient);
-        this.cachedTokenProvider = new CachedTokenProvider(config, assertionBuilder, endpointClient);
+    private AssertionTokenClient(Builder builder) {
+        TokenTransport transport = builder.transport != null ? builder.transport
+                : new HttpClientTokenTransport(Duration.ofMillis(builder.config.timeoutMs()));
+        TokenMetrics metrics = builder.meterRegistry == null ? TokenMetrics.NOOP
+                : new MicrometerTokenMetrics(builder.meterRegistry, builder.config.provider(),
+                        builder.name != null ? builder.name : builder.config.clientId());
+        this.config = builder.config;
+        JwtAssertionBuilder assertionBuilder = new JwtAssertionBuilder(builder.config);
+        TokenEndpointClient endpointClient = new TokenEndpointClient(transport, metrics);
+        this.cachedTokenProvider = new CachedTokenProvider(builder.config, assertionBuilder, endpointClient,
+                null, builder.refreshScheduler, builder.tokenStore, metrics);
     }
 
+    public static Builder builder(AssertionConfig config) { return new Builder(config); }
+
+    @Override
     public String getAccessToken() {
         return cachedTokenProvider.getAccessToken();
     }
+
+    /**
+     * Returns a token for a specific scope set, subject or audience, e.g. a Google
+     * domain-wide-delegation user. Each distinct request is cached separately.
+     */
+    public String getAccessToken(TokenRequest request) {
+        return cachedTokenProvider.getAccessToken(request);
+    }
+
+    /** {@link #getAccessToken()} with the token's expiry, e.g. to hand the token on to another process. */
+    public TokenResponse getToken() {
+        return cachedTokenProvider.getToken();
+    }
+
+    public TokenResponse getToken(TokenRequest request) {
+        return cachedTokenProvider.getToken(request);
+    }
+
+    /**
+     * Non-blocking variant of {@link #getAccessToken()}: a token refresh runs on
+     * {@code executor}, and concurrent callers share one in-flight refresh.
+     */
+    public CompletableFuture<String> getAccessTokenAsync(Executor executor) {
+        return cachedTokenProvider.getAccessTokenAsync(executor);
+    }
+
+    public CompletableFuture<String> getAccessTokenAsync(TokenRequest request, Executor executor) {
+        return cachedTokenProvider.getAccessTokenAsync(request, executor);
+    }
+
+    /**
+     * Rotates the signing key without a restart. The new key is parsed and validated on the
+     * calling thread; with {@code prefetch}, a token is also fetched with it before the swap, so
+     * a key the endpoint does not accept (yet) leaves the current one in use. Cached tokens
+     * stay valid and {@link #getAccessToken()} never waits on a rotation.
+     *
+     * @throws IllegalArgumentException if the key cannot be parsed
+     * @throws RuntimeException         from the token endpoint, if the pre-fetch fails
+     */
+    public synchronized void rotateSigningKey(String privateKeyPem, String keyId, boolean prefetch) {
+        AssertionConfig rotated = config.withSigningKey(privateKeyPem, keyId);
+        cachedTokenProvider.replaceAssertionBuilder(new JwtAssertionBuilder(rotated), prefetch);
+        config = rotated;
+    }
+
+    /**
+     * State of the circuit breaker guarding the token endpoint. While it is {@code OPEN},
+     * token acquisition fails fast, so callers can shed work that needs a fresh token.
+     */
+    public CircuitBreaker.State circuitBreakerState() {
+        return cachedTokenProvider.circuitBreakerState();
+    }
+
+    /** Stops the background refresher, or cancels this client's refreshes on a shared scheduler. */
+    @Override
+    public void close() {
+        cachedTokenProvider.close();
+    }
+
+    public static class Builder {
+        private final AssertionConfig config;
+        private TokenTransport transport;
+        private TokenStore tokenStore;
+        private MeterRegistry meterRegistry;
+        private RefreshScheduler refreshScheduler;
+        private String name;
+
+        private Builder(AssertionConfig config) {
+            this.config = config;
+        }
+
+        /**
+         * Transport for token endpoint calls; defaults to a {@link HttpClientTokenTransport}
+         * bounded by {@link AssertionConfig#timeoutMs()}. A {@link RestClientTokenTransport}
+         * sends them through an application's Spring {@code RestClient} instead.
+         */
+        public Builder transport(TokenTransport t) { this.transport = t; return this; }
+        /** Second-level token store, e.g. a {@link FileTokenStore} so tokens survive restarts. */
+        public Builder tokenStore(TokenStore s) { this.tokenStore = s; return this; }
+        /**
+         * Registers the {@link TokenMetrics} meters; without a registry nothing is recorded.
+         * Micrometer is an optional dependency: add {@code micrometer-core} to call this.
+         */
+        public Builder meterRegistry(MeterRegistry r) { this.meterRegistry = r; return this; }
+        /**
+         * Refresh-ahead scheduler shared with other clients, so their renewals are staggered and
+         * bounded together; without one the client runs its own refresher thread.
+         */
+        public Builder refreshScheduler(RefreshScheduler s) { this.refreshScheduler = s; return this; }
+        /** Value of the {@code client} meter tag; defaults to the client id. */
+        public Builder name(String n) { this.name = n; return this; }
+
+        public AssertionTokenClient build() {
+            return new AssertionTokenClient(this);
+        }
+    }
 }
@@ -1,85 +1,754 @@
 package com.portfolio.oauth2.awt.core;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Wraps token acquisition with Caffeine caching and single-flight refresh guard.
+ * <p>
+ * Tokens are cached per {@link TokenRequest} in a bounded cache whose entries expire with each
+ * token's own {@code expires_in} (minus the clock skew). The in-flight fetch for a key is stored
+ * in the cache as a future, so concurrent callers for that key share it while callers for other
+ * keys are never blocked by it.
+ * <p>
+ * When {@link AssertionConfig#refreshAheadEnabled()} is set, a background refresher renews a
+ * token once the configured fraction of its lifetime has elapsed and keeps serving the cached
+ * token until the new one lands (stale-while-revalidate). Callers then block only on a cold
+ * start or once the token has really expired. Providers given a shared {@link RefreshScheduler}
+ * hand it their refreshes instead of running their own refresher thread.
+ * <p>
+ * With a {@link TokenStore}, a cache miss or refresh first looks in the store, and only the
+ * holder of the store's refresh lease calls the token endpoint, so replicas sharing a store
+ * (see {@link JdbcTokenStore}) refresh each token once between them.
+ * <p>
+ * An enabled {@link AssertionConfig#hedgePolicy()} sends a second exchange when the first is
+ * slower than usual and takes whichever token arrives first; hedges of one attempt count as
+ * one attempt towards retries and the circuit breaker.
+ * <p>
+ * The default request, which most clients only ever use, is also published to a volatile
+ * {@link DefaultToken} holder with its deadlines precomputed in {@link System#nanoTime()}, so
+ * {@link #getAccessToken()} serves it with one volatile read and one comparison, without
+ * touching the cache or allocating. Misses fall through to the cache's single-flight path.
  */
-public class CachedTokenProvider {
+public class CachedTokenProvider implements AutoCloseable {
 
     private static final Logger log = LoggerFactory.getLogger(CachedTokenProvider.class);
-    private static final String CACHE_KEY = "token";
+
+    /** How often a process waiting on another one's refresh lease looks at the store again. */
+    private static final long LEASE_POLL_MILLIS = 100;
 
     private final AssertionConfig config;
-    private final JwtAssertionBuilder assertionBuilder;
+    private volatile JwtAssertionBuilder assertionBuilder;
     private final TokenEndpointClient endpointClient;
-    private final Cache<String, TokenResponse> cache;
-    private final ReentrantLock refreshLock = new ReentrantLock();
+    private final TokenStore tokenStore;
+    private final TokenRequest defaultRequest;
+    private final AsyncCache<TokenRequest, TokenResponse> cache;
+    private final ScheduledExecutorService refresher;
+    private final boolean ownsRefresher;
+    private final RefreshScheduler refreshScheduler;
+    private final Map<TokenRequest, RefreshScheduler.Handle> scheduledRefreshes = new ConcurrentHashMap<>();
+    private final Set<TokenRequest> backgroundRefreshes = ConcurrentHashMap.newKeySet();
+    private final FailurePolicy failurePolicy;
+    private final CircuitBreaker circuitBreaker;
+    private final Cache<TokenRequest, RuntimeException> recentFailures;
+    private final TokenMetrics metrics;
+    private final HedgedExchange hedgedExchange;
+    private volatile DefaultToken defaultToken;
 
     public CachedTokenProvider(AssertionConfig config,
                                 JwtAssertionBuilder assertionBuilder,
                                 TokenEndpointClient endpointClient) {
+        this(config, assertionBuilder, endpointClient, null, null);
+    }
+
+    /** Constructor for a caller-managed refresh-ahead executor; it is not shut down by {@link #close()}. */
+    public CachedTokenProvider(AssertionConfig config,
+                                JwtAssertionBuilder assertionBuilder,
+                                TokenEndpointClient endpointClient,
+                                ScheduledExecutorService refresher) {
+        this(config, assertionBuilder, endpointClient, refresher, null);
+    }
+
+    public CachedTokenProvider(AssertionConfig config,
+                                JwtAssertionBuilder assertionBuilder,
+                                TokenEndpointClient endpointClient,
+                                ScheduledExecutorService refresher,
+                                TokenStore tokenStore) {
+        this(config, assertionBuilder, endpointClient, refresher, tokenStore, TokenMetrics.NOOP);
+    }
+
+    /**
+     * @param refresher  caller-managed refresh-ahead executor, or {@code null} to let the provider
+     *                   create (and close) its own when refresh-ahead is enabled
+     * @param tokenStore second-level store consulted before the token endpoint, or {@code null}
+     * @param metrics    cache, refresh and failure meters; {@link TokenMetrics#NOOP} to record nothing
+     */
+    public CachedTokenProvider(AssertionConfig config,
+                                JwtAssertionBuilder assertionBuilder,
+                                TokenEndpointClient endpointClient,
+                                ScheduledExecutorService refresher,
+                                TokenStore tokenStore,
+                                TokenMetrics metrics) {
+        this(config, assertionBuilder, endpointClient, refresher, null, tokenStore, metrics);
+    }
+
+    /**
+     * @param refreshScheduler scheduler shared with other providers, which staggers and bounds
+     *                         their refreshes; when set, {@code refresher} is not used
+     */
+    public CachedTokenProvider(AssertionConfig config,
+                                JwtAssertionBuilder assertionBuilder,
+                                TokenEndpointClient endpointClient,
+                                ScheduledExecutorService refresher,
+                                RefreshScheduler refreshScheduler,
+                                TokenStore tokenStore,
+                                TokenMetrics metrics) {
         this.config = config;
         this.assertionBuilder = assertionBuilder;
         this.endpointClient = endpointClient;
+        this.tokenStore = tokenStore;
+        this.defaultRequest = TokenRequest.from(config);
+        this.refreshScheduler = config.refreshAheadEnabled() ? refreshScheduler : null;
+        this.ownsRefresher = refresher == null;
+        this.refresher = !config.refreshAheadEnabled() || refreshScheduler != null ? null
+                : refresher != null ? refresher : newRefresher();
         this.cache = Caffeine.newBuilder()
-                .expireAfterWrite(config.tokenExpirySeconds() - config.clockSkewSeconds(), TimeUnit.SECONDS)
-                .maximumSize(1)
-                .build();
+                .maximumSize(config.maxCachedTokens())
+                .expireAfter(new TokenExpiry(config.clockSkewSeconds()))
+                .buildAsync();
+        this.failurePolicy = config.failurePolicy();
+        this.circuitBreaker = new CircuitBreaker(failurePolicy.circuitBreakerThreshold(),
+                Duration.ofMillis(failurePolicy.circuitBreakerOpenMs()));
+        this.recentFailures = failurePolicy.negativeCacheMs() > 0
+                ? Caffeine.newBuilder()
+                        .maximumSize(config.maxCachedTokens())
+                        .expireAfterWrite(failurePolicy.negativeCacheMs(), TimeUnit.MILLISECONDS)
+                        .build()
+                : null;
+        this.metrics = metrics;
+        this.hedgedExchange = config.hedgePolicy().enabled() ? new HedgedExchange(config.hedgePolicy(), metrics) : null;
+        metrics.ttlGauge(this, CachedTokenProvider::defaultTokenTtlSeconds);
     }
 
     public String getAccessToken() {
-        TokenResponse cached = cache.getIfPresent(CACHE_KEY);
-        if (cached != null && !cached.isExpiredWithSkew(config.clockSkewSeconds())) {
+        TokenResponse token = defaultTokenIfFresh();
+        return token != null ? token.accessToken() : getToken(defaultRequest).accessToken();
+    }
+
+    public String getAccessToken(TokenRequest request) {
+        return getToken(request).accessToken();
+    }
+
+    /** {@link #getAccessToken()} with the token's expiry, e.g. to hand the token on to another process. */
+    public TokenResponse getToken() {
+        TokenResponse token = defaultTokenIfFresh();
+        return token != null ? token : getToken(defaultRequest);
+    }
+
+    public TokenResponse getToken(TokenRequest request) {
+        TokenRequest key = request.withDefaults(config);
+        CompletableFuture<TokenResponse> cached = cache.getIfPresent(key);
+        TokenResponse token = completedValue(cached);
+        if (token != null && !token.isExpiredWithSkew(config.clockSkewSeconds())) {
             log.debug("Returning cached access token");
-            return cached.accessToken();
+            metrics.cacheHit();
+            refreshAheadIfDue(key, token);
+            return token;
         }
+        metrics.cacheMiss();
+
+        throwIfFailedRecently(key);
 
-        // Single-flight: only one thread refreshes at a time
-        refreshLock.lock();
+        // Single-flight per key: the first caller fetches on its own thread, the rest join it
         try {
-            // Double-check after acquiring lock
-            cached = cache.getIfPresent(CACHE_KEY);
-            if (cached != null && !cached.isExpiredWithSkew(config.clockSkewSeconds())) {
-                return cached.accessToken();
+            CompletableFuture<TokenResponse> inFlight = acquire(key, token != null ? cached : null, null);
+            if (!inFlight.isDone()) {
+                // Only callers that joined someone else's refresh get here; the winner fetched inline
+                long waitStart = System.nanoTime();
+                try {
+                    inFlight.join();
+                } finally {
+                    metrics.waited(waitStart);
+                }
+            }
+            return inFlight.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Failed to obtain token", ex.getCause());
+        }
+    }
+
+    public CompletableFuture<String> getAccessTokenAsync(Executor executor) {
+        TokenResponse token = defaultTokenIfFresh();
+        return token != null ? CompletableFuture.completedFuture(token.accessToken())
+                : getAccessTokenAsync(defaultRequest, executor);
+    }
+
+    /**
+     * Non-blocking variant of {@link #getAccessToken(TokenRequest)}. A cache hit completes
+     * immediately; otherwise the fetch runs on {@code executor} and concurrent callers for the
+     * same key receive the same in-flight future. Retries are scheduled with a delayed executor
+     * instead of sleeping on a thread.
+     */
+    public CompletableFuture<String> getAccessTokenAsync(TokenRequest request, Executor executor) {
+        TokenRequest key = request.withDefaults(config);
+        CompletableFuture<TokenResponse> cached = cache.getIfPresent(key);
+        TokenResponse token = completedValue(cached);
+        if (token != null && !token.isExpiredWithSkew(config.clockSkewSeconds())) {
+            metrics.cacheHit();
+            refreshAheadIfDue(key, token);
+            return CompletableFuture.completedFuture(token.accessToken());
+        }
+        metrics.cacheMiss();
+        RuntimeException recent = recentFailure(key);
+        if (recent != null) {
+            return CompletableFuture.failedFuture(recent);
+        }
+        return acquire(key, token != null ? cached : null, executor).thenApply(TokenResponse::accessToken);
+    }
+
+    /**
+     * Switches to {@code next} for every later token fetch; callers reading a cached token are
+     * not affected. With {@code verify}, first exchanges an assertion signed by {@code next}
+     * for the default token and keeps that token, so a key the endpoint rejects is never
+     * installed: the exception propagates and the current builder stays in place. That one
+     * exchange goes through the circuit breaker and is metered like a refresh, so while the
+     * breaker is open a rotation fails fast with {@link TokenUnavailableException} instead of
+     * calling the endpoint.
+     */
+    public void replaceAssertionBuilder(JwtAssertionBuilder next, boolean verify) {
+        if (verify) {
+            long refreshStart = System.nanoTime();
+            TokenResponse fresh;
+            try {
+                fresh = attempt(defaultRequest, next);
+            } catch (RuntimeException ex) {
+                metrics.refreshed(refreshStart, false);
+                throw ex;
             }
+            metrics.refreshed(refreshStart, true);
+            cache.put(defaultRequest, CompletableFuture.completedFuture(fresh));
+            publish(defaultRequest, fresh);
+        }
+        assertionBuilder = next;
+        log.info("Signing key for {} replaced", config.clientId());
+    }
 
+    /** State of the breaker guarding this provider's token endpoint, e.g. to shed load early. */
+    public CircuitBreaker.State circuitBreakerState() {
+        return circuitBreaker.state();
+    }
+
+    @Override
+    public void close() {
+        if (refresher != null && ownsRefresher) {
+            refresher.shutdownNow();
+        }
+        scheduledRefreshes.values().forEach(RefreshScheduler.Handle::cancel);
+        scheduledRefreshes.clear();
+        if (hedgedExchange != null) {
+            hedgedExchange.close();
+        }
+    }
+
+    /**
+     * The published default token if it is outside the clock-skew window, else {@code null}.
+     * Refresh-ahead is only looked at once its deadline has passed.
+     */
+    private TokenResponse defaultTokenIfFresh() {
+        DefaultToken current = defaultToken;
+        if (current == null) {
+            return null;
+        }
+        long now = System.nanoTime();
+        if (now - current.staleAtNanos >= 0) {
+            return null;
+        }
+        metrics.cacheHit();
+        if (now - current.refreshAtNanos >= 0) {
+            refreshAheadIfDue(defaultRequest, current.token);
+        }
+        return current.token;
+    }
+
+    /**
+     * Installs a promise for {@code key} unless a fetch is already in flight. The winning caller
+     * fetches on its own thread when {@code executor} is {@code null}, otherwise asynchronously.
+     */
+    private CompletableFuture<TokenResponse> acquire(TokenRequest key,
+                                                     CompletableFuture<TokenResponse> expired,
+                                                     Executor executor) {
+        if (expired != null) {
+            // Expired by our clock but not yet evicted by the cache's ticker
+            cache.asMap().remove(key, expired);
+        }
+        CompletableFuture<TokenResponse> promise = new CompletableFuture<>();
+        CompletableFuture<TokenResponse> inFlight = cache.get(key, (k, cacheExecutor) -> promise);
+        if (inFlight == promise) {
+            long refreshStart = System.nanoTime();
+            promise.whenComplete((fresh, ex) -> {
+                metrics.refreshed(refreshStart, ex == null);
+                if (ex == null) {
+                    publish(key, fresh);
+                }
+            });
+            if (executor == null) {
+                fetchInto(promise, key);
+            } else {
+                log.info("Refreshing access token asynchronously from {}", config.tokenEndpoint());
+                executeAttempt(promise, key, executor, 0);
+            }
+        }
+        return inFlight;
+    }
+
+    private void fetchInto(CompletableFuture<TokenResponse> promise, TokenRequest key) {
+        try {
             log.info("Refreshing access token from {}", config.tokenEndpoint());
-            TokenResponse fresh = fetchWithRetry();
-            cache.put(CACHE_KEY, fresh);
-            return fresh.accessToken();
+            TokenResponse fresh = tokenStore != null ? fetchUnderLease(key, null) : fetchWithRetry(key);
+            promise.complete(fresh);
+            scheduleRefreshAhead(key, fresh);
+        } catch (Throwable ex) {
+            // A failed future is dropped by the cache; the negative cache covers the next few callers
+            rememberFailure(key, ex);
+            promise.completeExceptionally(ex);
+        }
+    }
+
+    private void executeAttempt(CompletableFuture<TokenResponse> promise, TokenRequest key,
+                                Executor executor, int attempt) {
+        try {
+            executor.execute(() -> attemptAsync(promise, key, executor, attempt));
+        } catch (RejectedExecutionException ex) {
+            promise.completeExceptionally(ex);
+        }
+    }
+
+    private void attemptAsync(CompletableFuture<TokenResponse> promise, TokenRequest key,
+                              Executor executor, int attempt) {
+        try {
+            if (attempt == 0 && tokenStore != null) {
+                TokenResponse stored = loadNewerFromStore(key, null);
+                if (stored == null && !tryAcquireLease(key)) {
+                    // Another process is refreshing; look again once it had a chance to save
+                    CompletableFuture.delayedExecutor(LEASE_POLL_MILLIS, TimeUnit.MILLISECONDS, Runnable::run)
+                            .execute(() -> executeAttempt(promise, key, executor, 0));
+                    return;
+                }
+                if (stored == null) {
+                    promise.whenComplete((token, ex) -> releaseLease(key));
+                    stored = loadNewerFromStore(key, null);
+                }
+                if (stored != null) {
+                    promise.complete(stored);
+                    scheduleRefreshAhead(key, stored);
+                    return;
+                }
+            }
+            TokenResponse fresh = attempt(key, assertionBuilder);
+            promise.complete(fresh);
+            scheduleRefreshAhead(key, fresh);
+        } catch (TokenUnavailableException ex) {
+            rememberFailure(key, ex);
+            promise.completeExceptionally(ex);
+        } catch (Exception ex) {
+            int failed = attempt + 1;
+            long delayMillis = onAttemptFailure(ex, failed);
+            if (delayMillis < 0) {
+                TokenUnavailableException failure = exhausted(failed, ex);
+                rememberFailure(key, failure);
+                promise.completeExceptionally(failure);
+                return;
+            }
+            // The delayer thread only hands the retry back to the caller's executor
+            CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS, Runnable::run)
+                    .execute(() -> executeAttempt(promise, key, executor, failed));
+        }
+    }
+
+    private void refreshAheadIfDue(TokenRequest key, TokenResponse token) {
+        if ((refresher == null && refreshScheduler == null)
+                || Instant.now().isBefore(token.refreshAt(config.refreshAheadRatio()))) {
+            return;
+        }
+        startBackgroundRefresh(key, null);
+    }
+
+    /**
+     * @param scheduledFor the token a jittered {@link RefreshScheduler} refresh was scheduled for,
+     *                     which may come due before its refresh-ahead point; {@code null} otherwise
+     */
+    private void startBackgroundRefresh(TokenRequest key, TokenResponse scheduledFor) {
+        if (!backgroundRefreshes.add(key)) {
+            return;
+        }
+        try {
+            if (refreshScheduler != null) {
+                refreshScheduler.submit(() -> refreshInBackground(key, scheduledFor));
+            } else {
+                refresher.execute(() -> refreshInBackground(key, scheduledFor));
+            }
+        } catch (RejectedExecutionException ex) {
+            backgroundRefreshes.remove(key);
+        }
+    }
+
+    private void scheduleRefreshAhead(TokenRequest key, TokenResponse token) {
+        if (refreshScheduler != null) {
+            // Keyed by endpoint, client and request so a key keeps its jitter offset across refreshes
+            RefreshScheduler.Handle previous = scheduledRefreshes.put(key, refreshScheduler.schedule(
+                    List.of(config.tokenEndpoint(), config.clientId(), key),
+                    token.refreshAt(config.refreshAheadRatio()), () -> startBackgroundRefresh(key, token)));
+            if (previous != null) {
+                previous.cancel();
+            }
+            return;
+        }
+        if (refresher == null) {
+            return;
+        }
+        long delayNanos = Math.max(0, Duration.between(Instant.now(),
+                token.refreshAt(config.refreshAheadRatio())).toNanos());
+        try {
+            refresher.schedule(() -> {
+                TokenResponse current = completedValue(cache.getIfPresent(key));
+                if (current != null) {
+                    refreshAheadIfDue(key, current);
+                }
+            }, delayNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException ex) {
+            log.debug("Refresh-ahead executor is shut down; token will be refreshed on demand");
+        }
+    }
+
+    private void refreshInBackground(TokenRequest key, TokenResponse scheduledFor) {
+        try {
+            TokenResponse current = completedValue(cache.getIfPresent(key));
+            // Evicted, already renewed, or being fetched by a caller on the blocking path
+            if (current == null || (scheduledFor != null
+                    ? !current.expiresAt().equals(scheduledFor.expiresAt())
+                    : Instant.now().isBefore(current.refreshAt(config.refreshAheadRatio())))) {
+                return;
+            }
+            log.info("Refreshing access token ahead of expiry from {}", config.tokenEndpoint());
+            long refreshStart = System.nanoTime();
+            TokenResponse fresh;
+            try {
+                fresh = tokenStore != null ? fetchUnderLease(key, current) : fetchWithRetry(key);
+            } catch (RuntimeException ex) {
+                metrics.refreshed(refreshStart, false);
+                throw ex;
+            }
+            metrics.refreshed(refreshStart, true);
+            cache.put(key, CompletableFuture.completedFuture(fresh));
+            publish(key, fresh);
+            scheduleRefreshAhead(key, fresh);
+        } catch (Exception ex) {
+            log.warn("Background token refresh failed, serving cached token until expiry: {}", ex.getMessage());
         } finally {
-            refreshLock.unlock();
+            backgroundRefreshes.remove(key);
+        }
+    }
+
+    /**
+     * Fetches while holding the store's refresh lease for {@code key}, so that of the processes
+     * sharing the store only one calls the token endpoint; the others poll the store until its
+     * token shows up, or take over once the lease is released or has run out.
+     *
+     * @param current the token being refreshed ahead of expiry, or {@code null}; a stored token
+     *                is only used if it expires later
+     */
+    private TokenResponse fetchUnderLease(TokenRequest key, TokenResponse current) {
+        while (true) {
+            TokenResponse stored = loadNewerFromStore(key, current);
+            if (stored != null) {
+                return stored;
+            }
+            if (tryAcquireLease(key)) {
+                try {
+                    // Another process may have saved a token between our read and the lease
+                    stored = loadNewerFromStore(key, current);
+                    return stored != null ? stored : fetchWithRetry(key);
+                } finally {
+                    releaseLease(key);
+                }
+            }
+            try {
+                Thread.sleep(LEASE_POLL_MILLIS);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new TokenUnavailableException("Interrupted while waiting for another process to refresh the token", ie);
+            }
         }
     }
 
-    private TokenResponse fetchWithRetry() {
+    private TokenResponse fetchWithRetry(TokenRequest key) {
         int attempt = 0;
-        Exception lastEx = null;
-        while (attempt < config.maxRetries()) {
+        while (true) {
             try {
-                String assertion = assertionBuilder.buildAssertion();
-                return endpointClient.exchangeAssertion(config.tokenEndpoint(), assertion);
+                return attempt(key, assertionBuilder);
+            } catch (TokenUnavailableException ex) {
+                throw ex;
             } catch (Exception ex) {
-                lastEx = ex;
                 attempt++;
-                log.warn("Token fetch attempt {} failed: {}", attempt, ex.getMessage());
-                if (attempt < config.maxRetries()) {
-                    try {
-                        Thread.sleep(500L * attempt);
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        break;
-                    }
+                long delayMillis = onAttemptFailure(ex, attempt);
+                if (delayMillis < 0) {
+                    throw exhausted(attempt, ex);
+                }
+                try {
+                    Thread.sleep(delayMillis);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw exhausted(attempt, ex);
                 }
             }
         }
-        throw new IllegalStateException("Failed to obtain token after " + attempt + " attempts", lastEx);
+    }
+
+    /**
+     * The assertion for a request to {@code tokenEndpoint}. An alternate endpoint checks
+     * {@code aud} against itself (RFC 7523 section 3), so a hedge sent there carries its own
+     * address in place of the configured endpoint; an audience the caller asked for is kept.
+     */
+    private static String hedgeAssertion(JwtAssertionBuilder builder, TokenRequest key, String tokenEndpoint,
+                                         String configuredEndpoint) {
+        if (!tokenEndpoint.equals(configuredEndpoint) && configuredEndpoint.equals(key.audience())) {
+            return builder.buildAssertion(new TokenRequest(key.scopes(), key.subject(), tokenEndpoint));
+        }
+        return builder.buildAssertion(key);
+    }
+
+    /** One exchange with assertions signed by {@code builder}, gated by the circuit breaker. */
+    private TokenResponse attempt(TokenRequest key, JwtAssertionBuilder builder) {
+        if (!circuitBreaker.tryAcquire()) {
+            TokenUnavailableException open = new TokenUnavailableException("Circuit breaker open for "
+                    + config.tokenEndpoint() + ", next probe in " + circuitBreaker.remainingOpen().toMillis() + " ms", null);
+            metrics.attemptFailed(open);
+            throw open;
+        }
+        TokenResponse fresh;
+        try {
+            fresh = hedgedExchange != null
+                    // Each hedge signs its own assertion, so no two requests share a jti
+                    ? hedgedExchange.exchange(config.tokenEndpoint(),
+                            endpoint -> exchange(key, endpoint, hedgeAssertion(builder, key, endpoint, config.tokenEndpoint())))
+                    : exchange(key, config.tokenEndpoint(), builder.buildAssertion(key));
+        } catch (RuntimeException ex) {
+            metrics.attemptFailed(ex);
+            if (FailurePolicy.isRetryable(ex)) {
+                circuitBreaker.recordFailure(ex instanceof TokenEndpointException endpointEx
+                        ? endpointEx.getRetryAfter() : null);
+            } else {
+                // The endpoint answered; it is the request that was rejected
+                circuitBreaker.recordSuccess();
+            }
+            throw ex;
+        }
+        circuitBreaker.recordSuccess();
+        saveToStore(key, fresh);
+        return fresh;
+    }
+
+    private void saveToStore(TokenRequest key, TokenResponse fresh) {
+        if (tokenStore != null) {
+            try {
+                tokenStore.save(key, fresh);
+            } catch (RuntimeException ex) {
+                log.warn("Failed to save token to {}: {}", tokenStore.getClass().getSimpleName(), ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * A still-valid token from the second-level store that expires after {@code current}, or
+     * {@code null}.
+     */
+    private TokenResponse loadNewerFromStore(TokenRequest key, TokenResponse current) {
+        try {
+            TokenResponse stored = tokenStore.load(key).orElse(null);
+            if (stored != null && !stored.isExpiredWithSkew(config.clockSkewSeconds())
+                    && (current == null || stored.expiresAt().isAfter(current.expiresAt()))) {
+                log.info("Using persisted access token for {}", config.tokenEndpoint());
+                return stored;
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Failed to load token from {}: {}", tokenStore.getClass().getSimpleName(), ex.getMessage());
+        }
+        return null;
+    }
+
+    /** Takes the store's refresh lease; if the store cannot be reached, fetches without one. */
+    private boolean tryAcquireLease(TokenRequest key) {
+        try {
+            return tokenStore.tryAcquireLease(key);
+        } catch (RuntimeException ex) {
+            log.warn("Failed to acquire refresh lease from {}, refreshing without it: {}",
+                    tokenStore.getClass().getSimpleName(), ex.getMessage());
+            return true;
+        }
+    }
+
+    private void releaseLease(TokenRequest key) {
+        try {
+            tokenStore.releaseLease(key);
+        } catch (RuntimeException ex) {
+            log.warn("Failed to release refresh lease in {}: {}", tokenStore.getClass().getSimpleName(), ex.getMessage());
+        }
+    }
+
+    /**
+     * Logs a failed attempt and returns the delay before the next one, or -1 to give up: the
+     * failure is not retryable, the attempts are used up, or the endpoint asked us to wait
+     * longer than the backoff allows (the breaker stays open for that long anyway).
+     */
+    private long onAttemptFailure(Exception ex, int failedAttempts) {
+        log.warn("Token fetch attempt {} failed: {}", failedAttempts, ex.getMessage());
+        if (!FailurePolicy.isRetryable(ex) || failedAttempts >= config.maxRetries()) {
+            return -1;
+        }
+        long delayMillis = failurePolicy.backoffMillis(failedAttempts);
+        if (ex instanceof TokenEndpointException endpointEx && endpointEx.getRetryAfter() != null) {
+            long retryAfterMillis = endpointEx.getRetryAfter().toMillis();
+            if (retryAfterMillis > failurePolicy.maxBackoffMs()) {
+                return -1;
+            }
+            delayMillis = Math.max(delayMillis, retryAfterMillis);
+        }
+        return delayMillis;
+    }
+
+    private static TokenUnavailableException exhausted(int attempts, Exception lastEx) {
+        return new TokenUnavailableException("Failed to obtain token after " + attempts + " attempts", lastEx);
+    }
+
+    private void rememberFailure(TokenRequest key, Throwable ex) {
+        if (recentFailures != null && ex instanceof RuntimeException runtimeEx) {
+            recentFailures.put(key, runtimeEx);
+        }
+    }
+
+    private RuntimeException recentFailure(TokenRequest key) {
+        RuntimeException last = recentFailures != null ? recentFailures.getIfPresent(key) : null;
+        if (last == null) {
+            return null;
+        }
+        return new TokenUnavailableException("Token fetch for this request failed within the last "
+                + failurePolicy.negativeCacheMs() + " ms", last);
+    }
+
+    private void throwIfFailedRecently(TokenRequest key) {
+        RuntimeException recent = recentFailure(key);
+        if (recent != null) {
+            throw recent;
+        }
+    }
+
+    /**
+     * Publishes a fetched default token to the fast path. Synchronized only against concurrent
+     * publishers (a background refresh racing a blocking one), so an older token never replaces
+     * a newer one; readers never take the lock.
+     */
+    private synchronized void publish(TokenRequest key, TokenResponse token) {
+        if (!key.equals(defaultRequest)) {
+            return;
+        }
+        DefaultToken current = defaultToken;
+        if (current == null || !token.expiresAt().isBefore(current.token.expiresAt())) {
+            defaultToken = new DefaultToken(token, config, refresher != null || refreshScheduler != null);
+        }
+    }
+
+    private TokenResponse exchange(TokenRequest key, String tokenEndpoint, String assertion) {
+        // Microsoft takes the scope in the form body; the configured scopes keep the existing request shape
+        if (config.provider() == AssertionConfig.Provider.MICROSOFT && !key.scopes().equals(defaultRequest.scopes())) {
+            return endpointClient.exchangeAssertion(tokenEndpoint, assertion, String.join(" ", key.scopes()));
+        }
+        return endpointClient.exchangeAssertion(tokenEndpoint, assertion);
+    }
+
+    private double defaultTokenTtlSeconds() {
+        TokenResponse token = completedValue(cache.getIfPresent(defaultRequest));
+        if (token == null) {
+            return 0;
+        }
+        return Math.max(0, Duration.between(Instant.now(), token.expiresAt()).toMillis() / 1000.0);
+    }
+
+    private static TokenResponse completedValue(CompletableFuture<TokenResponse> future) {
+        if (future == null || !future.isDone() || future.isCompletedExceptionally()) {
+            return null;
+        }
+        return future.join();
+    }
+
+    private static ScheduledExecutorService newRefresher() {
+        return Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "oauth2-awt-refresher");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * The default token with its clock-skew and refresh-ahead deadlines converted once to
+     * {@link System#nanoTime()}, which is monotonic and cheaper than reading the wall clock.
+     * Deadlines are compared as {@code now - deadline < 0} to stay correct across overflow.
+     */
+    private static final class DefaultToken {
+
+        final TokenResponse token;
+        final long staleAtNanos;
+        final long refreshAtNanos;
+
+        DefaultToken(TokenResponse token, AssertionConfig config, boolean refreshAhead) {
+            long nowNanos = System.nanoTime();
+            Instant now = Instant.now();
+            this.token = token;
+            this.staleAtNanos = nowNanos + Duration.between(now,
+                    token.expiresAt().minusSeconds(config.clockSkewSeconds())).toNanos();
+            // Without refresh-ahead the deadline is never reached before the token goes stale
+            this.refreshAtNanos = refreshAhead
+                    ? nowNanos + Duration.between(now, token.refreshAt(config.refreshAheadRatio())).toNanos()
+                    : staleAtNanos;
+        }
+    }
+
+    /** Expires each entry when its own token enters the clock-skew window. */
+    private record TokenExpiry(long skewSeconds) implements Expiry<TokenRequest, TokenResponse> {
+
+        @Override
+        public long expireAfterCreate(TokenRequest key, TokenResponse token, long currentTime) {
+            return Math.max(0, Duration.between(Instant.now(), token.expiresAt().minusSeconds(skewSeconds)).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(TokenRequest key, TokenResponse token, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, token, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(TokenRequest key, TokenResponse token, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
 }
@@ -0,0 +1,81 @@
+package com.portfolio.oauth2.awt.core;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Circuit breaker around a token endpoint. It opens after a run of consecutive retryable
+ * failures, or immediately for the duration of a {@code Retry-After}, rejects attempts while
+ * open, and then lets a single probe through to decide whether to close again.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private volatile long openUntilNanos;
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+    }
+
+    /**
+     * Current state as seen by callers; an open breaker whose wait has elapsed reports
+     * {@link State#HALF_OPEN} because the next attempt will be let through as a probe.
+     */
+    public State state() {
+        State current = state.get();
+        if (current == State.OPEN && System.nanoTime() - openUntilNanos >= 0) {
+            return State.HALF_OPEN;
+        }
+        return current;
+    }
+
+    /** Returns whether an attempt may go to the token endpoint now. */
+    public boolean tryAcquire() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.OPEN && System.nanoTime() - openUntilNanos >= 0) {
+            return state.compareAndSet(State.OPEN, State.HALF_OPEN);
+        }
+        return false;
+    }
+
+    /** Time left until the breaker lets a probe through; zero unless open. */
+    public Duration remainingOpen() {
+        if (state.get() != State.OPEN) {
+            return Duration.ZERO;
+        }
+        return Duration.ofNanos(Math.max(0, openUntilNanos - System.nanoTime()));
+    }
+
+    public void recordSuccess() {
+        consecutiveFailures.set(0);
+        state.set(State.CLOSED);
+    }
+
+    /**
+     * Records a retryable failure. {@code retryAfter}, when the endpoint sent one, opens the
+     * breaker for exactly that long.
+     */
+    public void recordFailure(Duration retryAfter) {
+        int failures = consecutiveFailures.incrementAndGet();
+        if (retryAfter != null) {
+            open(retryAfter.toNanos());
+        } else if (state.get() == State.HALF_OPEN || failures >= failureThreshold) {
+            open(openNanos);
+        }
+    }
+
+    private void open(long nanos) {
+        openUntilNanos = System.nanoTime() + nanos;
+        state.set(State.OPEN);
+    }
+}
@@ -0,0 +1,66 @@
+package com.portfolio.oauth2.awt.core;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How token refresh failures are retried and contained: exponential backoff with full jitter,
+ * a circuit breaker that fails fast while the token endpoint is unhealthy, and a short
+ * negative-cache window that hands the last failure to callers arriving right after it.
+ */
+public record FailurePolicy(
+        long initialBackoffMs,
+        long maxBackoffMs,
+        int circuitBreakerThreshold,
+        long circuitBreakerOpenMs,
+        long negativeCacheMs
+) {
+    public FailurePolicy {
+        if (initialBackoffMs < 0 || maxBackoffMs < initialBackoffMs) {
+            throw new IllegalArgumentException("Backoff must satisfy 0 <= initialBackoffMs <= maxBackoffMs");
+        }
+        if (circuitBreakerThreshold < 1) {
+            throw new IllegalArgumentException("circuitBreakerThreshold must be at least 1");
+        }
+    }
+
+    public static FailurePolicy defaults() { return builder().build(); }
+
+    /**
+     * Full jitter: a uniformly random delay between 0 and the exponential backoff cap, so
+     * clients that failed together do not retry together.
+     */
+    public long backoffMillis(int failedAttempts) {
+        int exponent = Math.min(Math.max(failedAttempts - 1, 0), 30);
+        long cap = Math.min(maxBackoffMs, initialBackoffMs << exponent);
+        return ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    /** Failures other than a definitive rejection by the token endpoint are worth retrying. */
+    public static boolean isRetryable(Throwable ex) {
+        if (ex instanceof TokenEndpointException endpointEx) {
+            return endpointEx.isRetryable();
+        }
+        return true;
+    }
+
+    public static Builder builder() { return new Builder(); }
+
+    public static class Builder {
+        private long initialBackoffMs = 500;
+        private long maxBackoffMs = 5_000;
+        private int circuitBreakerThreshold = 5;
+        private long circuitBreakerOpenMs = 30_000;
+        private long negativeCacheMs = 2_000;
+
+        public Builder initialBackoffMs(long v) { this.initialBackoffMs = v; return this; }
+        public Builder maxBackoffMs(long v) { this.maxBackoffMs = v; return this; }
+        public Builder circuitBreakerThreshold(int v) { this.circuitBreakerThreshold = v; return this; }
+        public Builder circuitBreakerOpenMs(long v) { this.circuitBreakerOpenMs = v; return this; }
+        public Builder negativeCacheMs(long v) { this.negativeCacheMs = v; return this; }
+
+        public FailurePolicy build() {
+            return new FailurePolicy(initialBackoffMs, maxBackoffMs, circuitBreakerThreshold,
+                    circuitBreakerOpenMs, negativeCacheMs);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.portfolio.oauth2.awt.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link TokenStore} backed by a single local file, so a restarted process can reuse a token
+ * that is still valid instead of exchanging a new assertion.
+ * <p>
+ * The file is encrypted with AES-GCM under a key derived from caller-supplied key material
+ * (typically the client's private key), written to a temporary file and atomically moved into
+ * place, and read through a memory mapping once at construction. Lookups are then served from
+ * memory; expired entries are dropped on load and on every write.
+ */
+public class FileTokenStore implements TokenStore {
+
+    private static final Logger log = LoggerFactory.getLogger(FileTokenStore.class);
+
+    private static final byte[] MAGIC = {'O', 'A', 'W', 'T'};
+    private static final byte VERSION = 1;
+    private static final int PREFIX_LENGTH = MAGIC.length + 1;
+
+    private final Path file;
+    private final TokenCipher cipher;
+    private final Map<TokenRequest, TokenResponse> entries = new ConcurrentHashMap<>();
+
+    public FileTokenStore(Path file, byte[] keyMaterial) {
+        this.file = file;
+        this.cipher = new TokenCipher(keyMaterial);
+        readFile();
+    }
+
+    @Override
+    public Optional<TokenResponse> load(TokenRequest key) {
+        return Optional.ofNullable(entries.get(key));
+    }
+
+    @Override
+    public synchronized void save(TokenRequest key, TokenResponse token) {
+        entries.put(key, token);
+        Instant now = Instant.now();
+        entries.values().removeIf(t -> !t.expiresAt().isAfter(now));
+        try {
+            writeFile();
+        } catch (IOException | GeneralSecurityException ex) {
+            log.warn("Failed to persist token store {}: {}", file, ex.getMessage());
+        }
+    }
+
+    private void readFile() {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < PREFIX_LENGTH + TokenCipher.IV_LENGTH) {
+                log.warn("Ignoring truncated token store {}", file);
+                return;
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            byte[] prefix = new byte[PREFIX_LENGTH];
+            mapped.get(prefix);
+            if (!MessageDigest.isEqual(prefix(), prefix)) {
+                log.warn("Ignoring token store {} with unknown format", file);
+                return;
+            }
+            decode(cipher.decrypt(mapped, prefix));
+            log.info("Loaded {} persisted token(s) from {}", entries.size(), file);
+        } catch (NoSuchFileException ex) {
+            log.debug("No persisted tokens at {}", file);
+        } catch (IOException | GeneralSecurityException ex) {
+            // Wrong key (e.g. after key rotation) or corruption: start empty, the next save rewrites it
+            log.warn("Ignoring unreadable token store {}: {}", file, ex.getMessage());
+        }
+    }
+
+    private void writeFile() throws IOException, GeneralSecurityException {
+        byte[] prefix = prefix();
+        byte[] ciphertext = cipher.encrypt(encode(), prefix);
+
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            restrictToOwner(tmp);
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                ByteBuffer out = ByteBuffer.allocate(prefix.length + ciphertext.length).put(prefix).put(ciphertext);
+                out.flip();
+                while (out.hasRemaining()) {
+                    channel.write(out);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /** Magic and version; authenticated as AAD and followed by the IV and ciphertext. */
+    private static byte[] prefix() {
+        byte[] prefix = Arrays.copyOf(MAGIC, PREFIX_LENGTH);
+        prefix[MAGIC.length] = VERSION;
+        return prefix;
+    }
+
+    private byte[] encode() throws IOException {
+        List<Map.Entry<TokenRequest, TokenResponse>> snapshot = new ArrayList<>(entries.entrySet());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(snapshot.size());
+            for (Map.Entry<TokenRequest, TokenResponse> entry : snapshot) {
+                TokenRequest request = entry.getKey();
+                TokenResponse token = entry.getValue();
+                out.writeInt(request.scopes().size());
+                for (String scope : request.scopes()) {
+                    writeString(out, scope);
+                }
+                writeString(out, request.subject());
+                writeString(out, request.audience());
+                writeString(out, token.accessToken());
+                out.writeLong(token.issuedAt().toEpochMilli());
+                out.writeLong(token.expiresAt().toEpochMilli());
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private void decode(ByteBuffer plain) throws IOException {
+        Instant now = Instant.now();
+        try (DataInputStream in = new DataInputStream(new ByteBufferInputStream(plain))) {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                int scopeCount = in.readInt();
+                List<String> scopes = new ArrayList<>(scopeCount);
+                for (int s = 0; s < scopeCount; s++) {
+                    scopes.add(readString(in));
+                }
+                TokenRequest request = new TokenRequest(scopes, readString(in), readString(in));
+                TokenResponse token = new TokenResponse(readString(in),
+                        Instant.ofEpochMilli(in.readLong()), Instant.ofEpochMilli(in.readLong()));
+                if (token.expiresAt().isAfter(now)) {
+                    entries.put(request, token);
+                }
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void restrictToOwner(Path path) {
+        try {
+            Files.setPosixFilePermissions(path, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException | IOException ex) {
+            log.debug("Could not restrict permissions of {}: {}", path, ex.getMessage());
+        }
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+    }
+}
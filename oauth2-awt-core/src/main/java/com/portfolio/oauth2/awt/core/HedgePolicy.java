@@ -0,0 +1,70 @@
+package com.portfolio.oauth2.awt.core;
+
+import java.util.List;
+
+/**
+ * When a slow token exchange is hedged: once the first request has been outstanding for the
+ * {@code delayPercentile} of recent exchange latencies (clamped to
+ * [{@code minDelayMs}, {@code maxDelayMs}]), another request with a freshly signed assertion
+ * goes out, and whichever succeeds first is used. Up to {@code maxHedges} are sent, each after
+ * a further delay; until enough latencies have been seen the delay is {@code maxDelayMs}.
+ * <p>
+ * Hedges go to {@code alternateEndpoints} in turn, e.g. regional endpoints of the same
+ * authorization server, or to the configured token endpoint when there are none. A hedge sent
+ * to an alternate is signed with that endpoint as {@code aud}, since it checks the audience
+ * against itself; an audience the caller set explicitly is kept as is, so the alternate must
+ * accept it.
+ */
+public record HedgePolicy(
+        int maxHedges,
+        double delayPercentile,
+        long minDelayMs,
+        long maxDelayMs,
+        List<String> alternateEndpoints
+) {
+    public HedgePolicy {
+        if (maxHedges < 0) {
+            throw new IllegalArgumentException("maxHedges must not be negative");
+        }
+        if (delayPercentile <= 0 || delayPercentile >= 1) {
+            throw new IllegalArgumentException("delayPercentile must be in (0, 1), was " + delayPercentile);
+        }
+        if (minDelayMs < 0 || maxDelayMs < minDelayMs) {
+            throw new IllegalArgumentException("Delays must satisfy 0 <= minDelayMs <= maxDelayMs");
+        }
+        alternateEndpoints = alternateEndpoints == null ? List.of() : List.copyOf(alternateEndpoints);
+    }
+
+    /** No hedging: one request per attempt, as long as it takes. */
+    public static HedgePolicy disabled() { return builder().build(); }
+
+    public boolean enabled() {
+        return maxHedges > 0;
+    }
+
+    /** Endpoint of the {@code hedge}-th hedge, counting from 1. */
+    String hedgeEndpoint(String tokenEndpoint, int hedge) {
+        return alternateEndpoints.isEmpty() ? tokenEndpoint
+                : alternateEndpoints.get((hedge - 1) % alternateEndpoints.size());
+    }
+
+    public static Builder builder() { return new Builder(); }
+
+    public static class Builder {
+        private int maxHedges = 0;
+        private double delayPercentile = 0.95;
+        private long minDelayMs = 50;
+        private long maxDelayMs = 2_000;
+        private List<String> alternateEndpoints = List.of();
+
+        public Builder maxHedges(int v) { this.maxHedges = v; return this; }
+        public Builder delayPercentile(double v) { this.delayPercentile = v; return this; }
+        public Builder minDelayMs(long v) { this.minDelayMs = v; return this; }
+        public Builder maxDelayMs(long v) { this.maxDelayMs = v; return this; }
+        public Builder alternateEndpoints(List<String> v) { this.alternateEndpoints = v; return this; }
+
+        public HedgePolicy build() {
+            return new HedgePolicy(maxHedges, delayPercentile, minDelayMs, maxDelayMs, alternateEndpoints);
+        }
+    }
+}
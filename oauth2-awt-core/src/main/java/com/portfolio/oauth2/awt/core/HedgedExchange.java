@@ -0,0 +1,138 @@
+package com.portfolio.oauth2.awt.core;
+
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Runs one token exchange per {@link HedgePolicy}: the request goes out, and each time it has
+ * gone unanswered for the hedge delay another one is sent, until one succeeds.
+ * <p>
+ * The delay is the policy's percentile of the last {@value #SAMPLE_WINDOW} successful exchange
+ * latencies, losers included, so it tracks the endpoint rather than the hedging. Requests that
+ * lose are left to finish and their tokens dropped; interrupting a blocking HTTP call would
+ * only cost its connection.
+ * <p>
+ * A failure is thrown only once no request is left in flight, since a slower one may still
+ * succeed, e.g. at an endpoint that accepts what another rejected. A definitive rejection
+ * ({@link FailurePolicy#isRetryable} false) stops further hedges and is thrown in preference
+ * to retryable failures, so the caller does not retry what will be rejected again.
+ */
+final class HedgedExchange implements AutoCloseable {
+
+    private static final int SAMPLE_WINDOW = 128;
+    private static final int MIN_SAMPLES = 20;
+
+    private final HedgePolicy policy;
+    private final TokenMetrics metrics;
+    private final ExecutorService executor;
+    private final long[] samples = new long[SAMPLE_WINDOW];
+    private int sampleCount;
+    private int nextSample;
+
+    HedgedExchange(HedgePolicy policy, TokenMetrics metrics) {
+        this.policy = policy;
+        this.metrics = metrics;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "oauth2-awt-hedge-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        metrics.hedgeDelayGauge(this, h -> h.hedgeDelayNanos() / 1e9);
+    }
+
+    /**
+     * @param call one exchange against the given endpoint, signing its own assertion
+     */
+    TokenResponse exchange(String tokenEndpoint, Function<String, TokenResponse> call) {
+        long delayNanos = hedgeDelayNanos();
+        BlockingQueue<Outcome> outcomes = new LinkedBlockingQueue<>();
+        send(0, tokenEndpoint, call, outcomes);
+        int sent = 1;
+        int failed = 0;
+        RuntimeException firstFailure = null;
+        RuntimeException rejection = null;
+        try {
+            while (true) {
+                boolean mayHedge = rejection == null && sent <= policy.maxHedges();
+                Outcome outcome = mayHedge ? outcomes.poll(delayNanos, TimeUnit.NANOSECONDS) : outcomes.take();
+                if (outcome == null) {
+                    metrics.hedgeFired();
+                    send(sent, policy.hedgeEndpoint(tokenEndpoint, sent), call, outcomes);
+                    sent++;
+                    continue;
+                }
+                if (outcome.token != null) {
+                    if (outcome.index > 0) {
+                        metrics.hedgeWon();
+                    }
+                    return outcome.token;
+                }
+                if (firstFailure == null) {
+                    firstFailure = outcome.failure;
+                }
+                if (rejection == null && !FailurePolicy.isRetryable(outcome.failure)) {
+                    rejection = outcome.failure;
+                }
+                if (++failed == sent) {
+                    throw rejection != null ? rejection : firstFailure;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            InterruptedIOException interrupted = new InterruptedIOException("Interrupted while calling " + tokenEndpoint);
+            interrupted.initCause(ex);
+            throw new UncheckedIOException(interrupted);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    /** The policy percentile of recent latencies, or {@code maxDelayMs} until there are enough. */
+    synchronized long hedgeDelayNanos() {
+        long max = TimeUnit.MILLISECONDS.toNanos(policy.maxDelayMs());
+        if (sampleCount < MIN_SAMPLES) {
+            return max;
+        }
+        long[] sorted = Arrays.copyOf(samples, sampleCount);
+        Arrays.sort(sorted);
+        long percentile = sorted[(int) Math.ceil(policy.delayPercentile() * sampleCount) - 1];
+        return Math.min(max, Math.max(TimeUnit.MILLISECONDS.toNanos(policy.minDelayMs()), percentile));
+    }
+
+    synchronized void recordLatency(long nanos) {
+        samples[nextSample] = nanos;
+        nextSample = (nextSample + 1) % SAMPLE_WINDOW;
+        sampleCount = Math.min(sampleCount + 1, SAMPLE_WINDOW);
+    }
+
+    private void send(int index, String endpoint, Function<String, TokenResponse> call, BlockingQueue<Outcome> outcomes) {
+        executor.execute(() -> {
+            long start = System.nanoTime();
+            try {
+                TokenResponse token = call.apply(endpoint);
+                recordLatency(System.nanoTime() - start);
+                outcomes.add(new Outcome(index, token, null));
+            } catch (RuntimeException ex) {
+                outcomes.add(new Outcome(index, null, ex));
+            } catch (Error err) {
+                // The caller is blocked on this outcome and must not wait forever
+                outcomes.add(new Outcome(index, null, new IllegalStateException("Token exchange failed", err)));
+                throw err;
+            }
+        });
+    }
+
+    private record Outcome(int index, TokenResponse token, RuntimeException failure) {}
+}
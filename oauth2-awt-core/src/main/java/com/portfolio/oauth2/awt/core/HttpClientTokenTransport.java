@@ -0,0 +1,65 @@
+package com.portfolio.oauth2.awt.core;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+/**
+ * {@link TokenTransport} on {@link java.net.http.HttpClient}, with no Spring dependency.
+ * <p>
+ * One client is shared by every call, so connections to the token endpoint are kept alive and
+ * reused; HTTP/2 is negotiated over TLS (ALPN) and HTTP/1.1 is used when the endpoint does not
+ * offer it. The connect timeout bounds connection setup and the request timeout bounds the
+ * whole exchange up to the response headers, so a hung endpoint cannot stall a refresh.
+ */
+public class HttpClientTokenTransport implements TokenTransport {
+
+    private final HttpClient httpClient;
+    private final Duration requestTimeout;
+
+    /** Uses {@code timeout} as both the connect and the request timeout. */
+    public HttpClientTokenTransport(Duration timeout) {
+        this(timeout, timeout);
+    }
+
+    public HttpClientTokenTransport(Duration connectTimeout, Duration requestTimeout) {
+        this(HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build(), requestTimeout);
+    }
+
+    /** Constructor for a caller-configured client, e.g. with a proxy or custom SSL context. */
+    public HttpClientTokenTransport(HttpClient httpClient, Duration requestTimeout) {
+        if (requestTimeout.isNegative() || requestTimeout.isZero()) {
+            throw new IllegalArgumentException("requestTimeout must be positive");
+        }
+        this.httpClient = httpClient;
+        this.requestTimeout = requestTimeout;
+    }
+
+    @Override
+    public Response postForm(String endpoint, String formBody) throws IOException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(endpoint))
+                .timeout(requestTimeout)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .header("Accept", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(formBody))
+                .build();
+        try {
+            HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            return new Response(response.statusCode(),
+                    response.headers().firstValue("Retry-After").orElse(null), response.body());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            InterruptedIOException interrupted = new InterruptedIOException("Interrupted while calling " + endpoint);
+            interrupted.initCause(ex);
+            throw interrupted;
+        }
+    }
+}
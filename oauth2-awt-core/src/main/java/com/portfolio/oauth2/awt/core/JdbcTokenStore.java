@@ -0,0 +1,225 @@
+package com.portfolio.oauth2.awt.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * {@link TokenStore} shared by every replica through the application database, so that one
+ * replica refreshes a token and the others read it: token endpoint traffic then stays constant
+ * as the replica count grows.
+ * <p>
+ * Each {@link TokenRequest} maps to one row of {@code oauth2_token_cache}, keyed by a SHA-256 of
+ * the namespace and the request. The access token is stored AES-GCM encrypted with a key derived
+ * from caller-supplied key material (typically the client's private key). The refresh lease is a
+ * conditional {@code UPDATE} on the same row, which both MariaDB and PostgreSQL apply atomically;
+ * it expires after {@code leaseDuration} if its holder dies.
+ * <p>
+ * Plain JDBC on autocommit connections, so it works with any {@link DataSource} and never joins
+ * a caller's transaction.
+ */
+public class JdbcTokenStore implements TokenStore {
+
+    private static final Logger log = LoggerFactory.getLogger(JdbcTokenStore.class);
+
+    private static final String SELECT_TOKEN =
+            "SELECT access_token, issued_at, expires_at FROM oauth2_token_cache WHERE cache_key = ?";
+    private static final String UPDATE_TOKEN =
+            "UPDATE oauth2_token_cache SET access_token = ?, issued_at = ?, expires_at = ? WHERE cache_key = ?";
+    private static final String INSERT_TOKEN =
+            "INSERT INTO oauth2_token_cache (cache_key, access_token, issued_at, expires_at, lease_until)"
+                    + " VALUES (?, ?, ?, ?, 0)";
+    private static final String TAKE_LEASE =
+            "UPDATE oauth2_token_cache SET lease_owner = ?, lease_until = ?"
+                    + " WHERE cache_key = ? AND (lease_until < ? OR lease_owner = ?)";
+    private static final String INSERT_LEASE =
+            "INSERT INTO oauth2_token_cache (cache_key, lease_owner, lease_until) VALUES (?, ?, ?)";
+    private static final String RELEASE_LEASE =
+            "UPDATE oauth2_token_cache SET lease_owner = NULL, lease_until = 0"
+                    + " WHERE cache_key = ? AND lease_owner = ?";
+
+    private final DataSource dataSource;
+    private final String namespace;
+    private final TokenCipher cipher;
+    private final Duration leaseDuration;
+    private final String owner = UUID.randomUUID().toString();
+
+    /**
+     * @param namespace     distinguishes clients sharing the table, e.g. {@code "google:" + clientId}
+     * @param leaseDuration how long a refresh lease is held at most; cover a fetch with its retries
+     */
+    public JdbcTokenStore(DataSource dataSource, String namespace, byte[] keyMaterial, Duration leaseDuration) {
+        if (leaseDuration.isNegative() || leaseDuration.isZero()) {
+            throw new IllegalArgumentException("leaseDuration must be positive");
+        }
+        this.dataSource = dataSource;
+        this.namespace = namespace;
+        this.cipher = new TokenCipher(keyMaterial);
+        this.leaseDuration = leaseDuration;
+    }
+
+    @Override
+    public Optional<TokenResponse> load(TokenRequest key) {
+        String cacheKey = cacheKey(key);
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(SELECT_TOKEN)) {
+            ps.setString(1, cacheKey);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next() || rs.getString(1) == null) {
+                    return Optional.empty();
+                }
+                String accessToken = decrypt(rs.getString(1), cacheKey);
+                return Optional.of(new TokenResponse(accessToken,
+                        Instant.ofEpochMilli(rs.getLong(2)), Instant.ofEpochMilli(rs.getLong(3))));
+            }
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Failed to load token from oauth2_token_cache", ex);
+        } catch (GeneralSecurityException ex) {
+            // Written under another key, e.g. before a key rotation: the next save overwrites it
+            log.debug("Ignoring unreadable shared token: {}", ex.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void save(TokenRequest key, TokenResponse token) {
+        String cacheKey = cacheKey(key);
+        try (Connection conn = dataSource.getConnection()) {
+            String encrypted = encrypt(token.accessToken(), cacheKey);
+            if (updateToken(conn, cacheKey, encrypted, token) > 0) {
+                return;
+            }
+            try (PreparedStatement ps = conn.prepareStatement(INSERT_TOKEN)) {
+                ps.setString(1, cacheKey);
+                ps.setString(2, encrypted);
+                ps.setLong(3, token.issuedAt().toEpochMilli());
+                ps.setLong(4, token.expiresAt().toEpochMilli());
+                ps.executeUpdate();
+            } catch (SQLException ex) {
+                if (!isDuplicateKey(ex)) {
+                    throw ex;
+                }
+                // Another replica inserted the row (e.g. its lease) in between
+                updateToken(conn, cacheKey, encrypted, token);
+            }
+        } catch (SQLException | GeneralSecurityException ex) {
+            throw new IllegalStateException("Failed to save token to oauth2_token_cache", ex);
+        }
+    }
+
+    @Override
+    public boolean tryAcquireLease(TokenRequest key) {
+        String cacheKey = cacheKey(key);
+        long now = System.currentTimeMillis();
+        long until = now + leaseDuration.toMillis();
+        try (Connection conn = dataSource.getConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement(TAKE_LEASE)) {
+                ps.setString(1, owner);
+                ps.setLong(2, until);
+                ps.setString(3, cacheKey);
+                ps.setLong(4, now);
+                ps.setString(5, owner);
+                if (ps.executeUpdate() > 0) {
+                    return true;
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement(INSERT_LEASE)) {
+                ps.setString(1, cacheKey);
+                ps.setString(2, owner);
+                ps.setLong(3, until);
+                return ps.executeUpdate() > 0;
+            } catch (SQLException ex) {
+                if (isDuplicateKey(ex)) {
+                    // The row exists and its lease is held by another replica
+                    return false;
+                }
+                throw ex;
+            }
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Failed to acquire refresh lease in oauth2_token_cache", ex);
+        }
+    }
+
+    @Override
+    public void releaseLease(TokenRequest key) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(RELEASE_LEASE)) {
+            ps.setString(1, cacheKey(key));
+            ps.setString(2, owner);
+            ps.executeUpdate();
+        } catch (SQLException ex) {
+            // The lease runs out on its own
+            log.warn("Failed to release refresh lease: {}", ex.getMessage());
+        }
+    }
+
+    private static int updateToken(Connection conn, String cacheKey, String encrypted, TokenResponse token)
+            throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(UPDATE_TOKEN)) {
+            ps.setString(1, encrypted);
+            ps.setLong(2, token.issuedAt().toEpochMilli());
+            ps.setLong(3, token.expiresAt().toEpochMilli());
+            ps.setString(4, cacheKey);
+            return ps.executeUpdate();
+        }
+    }
+
+    private String encrypt(String accessToken, String cacheKey) throws GeneralSecurityException {
+        // The row key is authenticated too, so a token cannot be copied to another row
+        byte[] encrypted = cipher.encrypt(accessToken.getBytes(StandardCharsets.UTF_8),
+                cacheKey.getBytes(StandardCharsets.US_ASCII));
+        return Base64.getEncoder().encodeToString(encrypted);
+    }
+
+    private String decrypt(String stored, String cacheKey) throws GeneralSecurityException {
+        ByteBuffer plain;
+        try {
+            plain = cipher.decrypt(ByteBuffer.wrap(Base64.getDecoder().decode(stored)),
+                    cacheKey.getBytes(StandardCharsets.US_ASCII));
+        } catch (IllegalArgumentException ex) {
+            throw new GeneralSecurityException("Stored token is not Base64", ex);
+        }
+        return StandardCharsets.UTF_8.decode(plain).toString();
+    }
+
+    /** SHA-256 over the namespace and the request fields, NUL-separated. */
+    private String cacheKey(TokenRequest key) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            update(sha256, namespace);
+            update(sha256, String.join(" ", key.scopes()));
+            update(sha256, key.subject());
+            update(sha256, key.audience());
+            return HexFormat.of().formatHex(sha256.digest());
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        if (value != null) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        digest.update((byte) 0);
+    }
+
+    private static boolean isDuplicateKey(SQLException ex) {
+        // SQLSTATE class 23: integrity constraint violation (MariaDB 23000, PostgreSQL 23505)
+        return ex.getSQLState() != null && ex.getSQLState().startsWith("23");
+    }
+}
@@ -0,0 +1,308 @@
+package com.portfolio.oauth2.awt.core;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Forward-only reader over the top-level fields of a small JSON object, working directly on
+ * its UTF-8 bytes.
+ * <p>
+ * Keys are matched against their byte form, so no string is built for fields the caller does
+ * not read, and skipped values, including nested objects and arrays, are never materialized.
+ * A caller walks the object with {@link #beginObject()} and {@link #nextField()}, and for each
+ * key either reads the value or calls {@link #skipValue()}.
+ */
+final class JsonScanner {
+
+    private final byte[] json;
+    private final String subject;
+    private int pos;
+    private boolean afterFirstField;
+    private int keyStart;
+    private int keyEnd;
+
+    /**
+     * @param subject names the document in the {@link IllegalStateException} when it is malformed
+     */
+    JsonScanner(byte[] json, String subject) {
+        this.json = json;
+        this.subject = subject;
+    }
+
+    /**
+     * Reads the top-level string fields {@code keys} of {@code json}, e.g. a service account
+     * file. Returns their values in {@code keys} order, null where absent; every other value is
+     * skipped.
+     *
+     * @throws IllegalStateException if {@code json} is not a JSON object
+     */
+    static String[] readStrings(byte[] json, String subject, byte[]... keys) {
+        String[] values = new String[keys.length];
+        JsonScanner scanner = new JsonScanner(json, subject);
+        scanner.beginObject();
+        while (scanner.nextField()) {
+            int match = -1;
+            for (int i = 0; i < keys.length && match < 0; i++) {
+                if (scanner.keyIs(keys[i])) {
+                    match = i;
+                }
+            }
+            if (match >= 0) {
+                values[match] = scanner.readStringOrNull();
+            } else {
+                scanner.skipValue();
+            }
+        }
+        return values;
+    }
+
+    /** Whether {@code body} starts like a JSON object, so an error page is not parsed as one. */
+    static boolean looksLikeJson(byte[] body) {
+        for (byte b : body) {
+            if (!isWhitespace(b)) {
+                return b == '{';
+            }
+        }
+        return false;
+    }
+
+    static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    void beginObject() {
+        skipWhitespace();
+        expect('{');
+    }
+
+    /**
+     * Moves to the next key of the object and past its colon; returns false once the closing
+     * brace is consumed instead.
+     */
+    boolean nextField() {
+        skipWhitespace();
+        if (afterFirstField) {
+            byte next = next();
+            if (next == '}') {
+                return false;
+            }
+            if (next != ',') {
+                throw malformed("expected ',' or '}'");
+            }
+            skipWhitespace();
+        } else {
+            afterFirstField = true;
+            if (peek() == '}') {
+                pos++;
+                return false;
+            }
+        }
+        expect('"');
+        keyStart = pos;
+        skipStringBody();
+        keyEnd = pos - 1;
+        skipWhitespace();
+        expect(':');
+        skipWhitespace();
+        return true;
+    }
+
+    /** Compares the current raw key with {@code expected}; keys with escape sequences never match. */
+    boolean keyIs(byte[] expected) {
+        if (keyEnd - keyStart != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (json[keyStart + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    String readStringOrNull() {
+        if (peek() == 'n') {
+            skipLiteral();
+            return null;
+        }
+        expect('"');
+        int start = pos;
+        boolean escaped = skipStringBody();
+        int end = pos - 1;
+        return escaped ? unescape(start, end) : new String(json, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A non-negative integer, bare or quoted, or -1 for null. A bare fraction is truncated; a
+     * quoted value must be digits only.
+     */
+    long readLong() {
+        if (peek() == 'n') {
+            skipLiteral();
+            return -1;
+        }
+        boolean quoted = peek() == '"';
+        if (quoted) {
+            pos++;
+        }
+        long value = 0;
+        int digits = 0;
+        while (pos < json.length && json[pos] >= '0' && json[pos] <= '9') {
+            if (value > (Long.MAX_VALUE - 9) / 10) {
+                throw malformed("number too large");
+            }
+            value = value * 10 + (json[pos] - '0');
+            pos++;
+            digits++;
+        }
+        if (digits == 0) {
+            throw malformed("expected a number");
+        }
+        if (quoted) {
+            expect('"');
+        } else {
+            skipNumberTail();
+        }
+        return value;
+    }
+
+    void skipValue() {
+        byte b = peek();
+        if (b == '"') {
+            pos++;
+            skipStringBody();
+        } else if (b == '{' || b == '[') {
+            skipContainer();
+        } else if (b == '-' || (b >= '0' && b <= '9')) {
+            pos++;
+            skipNumberTail();
+        } else {
+            skipLiteral();
+        }
+    }
+
+    /** Skips a nested object or array, tracking depth and ignoring brackets inside strings. */
+    private void skipContainer() {
+        int depth = 0;
+        do {
+            byte b = next();
+            if (b == '"') {
+                skipStringBody();
+            } else if (b == '{' || b == '[') {
+                depth++;
+            } else if (b == '}' || b == ']') {
+                depth--;
+            }
+        } while (depth > 0);
+    }
+
+    /** Advances past the closing quote; returns whether the string had escape sequences. */
+    private boolean skipStringBody() {
+        boolean escaped = false;
+        while (true) {
+            byte b = next();
+            if (b == '"') {
+                return escaped;
+            }
+            if (b == '\\') {
+                escaped = true;
+                next();
+            }
+        }
+    }
+
+    private void skipNumberTail() {
+        while (pos < json.length) {
+            byte b = json[pos];
+            if ((b >= '0' && b <= '9') || b == '.' || b == 'e' || b == 'E' || b == '+' || b == '-') {
+                pos++;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void skipLiteral() {
+        // true, false or null
+        int start = pos;
+        while (pos < json.length && json[pos] >= 'a' && json[pos] <= 'z') {
+            pos++;
+        }
+        if (pos == start) {
+            throw malformed("unexpected character");
+        }
+    }
+
+    private String unescape(int start, int end) {
+        StringBuilder out = new StringBuilder(end - start);
+        int runStart = start;
+        int i = start;
+        while (i < end) {
+            if (json[i] != '\\') {
+                i++;
+                continue;
+            }
+            out.append(new String(json, runStart, i - runStart, StandardCharsets.UTF_8));
+            byte escape = json[i + 1];
+            switch (escape) {
+                case 'b' -> out.append('\b');
+                case 'f' -> out.append('\f');
+                case 'n' -> out.append('\n');
+                case 'r' -> out.append('\r');
+                case 't' -> out.append('\t');
+                case 'u' -> {
+                    if (i + 6 > end) {
+                        throw malformed("truncated \\u escape");
+                    }
+                    char c = 0;
+                    for (int k = i + 2; k < i + 6; k++) {
+                        int digit = Character.digit(json[k], 16);
+                        if (digit < 0) {
+                            throw malformed("invalid \\u escape");
+                        }
+                        c = (char) (c << 4 | digit);
+                    }
+                    out.append(c);
+                    i += 4;
+                }
+                default -> out.append((char) escape);
+            }
+            i += 2;
+            runStart = i;
+        }
+        out.append(new String(json, runStart, end - runStart, StandardCharsets.UTF_8));
+        return out.toString();
+    }
+
+    private void skipWhitespace() {
+        while (pos < json.length && isWhitespace(json[pos])) {
+            pos++;
+        }
+    }
+
+    private void expect(char c) {
+        if (next() != c) {
+            throw malformed("expected '" + c + "'");
+        }
+    }
+
+    private byte peek() {
+        if (pos >= json.length) {
+            throw malformed("unexpected end of input");
+        }
+        return json[pos];
+    }
+
+    private byte next() {
+        byte b = peek();
+        pos++;
+        return b;
+    }
+
+    private IllegalStateException malformed(String reason) {
+        return new IllegalStateException("Malformed " + subject + ": " + reason + " at offset " + pos);
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+}
@@ -0,0 +1,134 @@
+package com.portfolio.oauth2.awt.core;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * {@link TokenMetrics} recorded in a Micrometer {@link MeterRegistry}. Only loaded when a client
+ * is built with a registry, so Micrometer stays an optional dependency of the core.
+ */
+final class MicrometerTokenMetrics extends TokenMetrics {
+
+    private final MeterRegistry registry;
+    private final Tags tags;
+    private final Counter hits;
+    private final Counter misses;
+    private final Timer refreshSuccess;
+    private final Timer refreshFailure;
+    private final Timer refreshWait;
+
+    MicrometerTokenMetrics(MeterRegistry registry, AssertionConfig.Provider provider, String clientName) {
+        this.registry = registry;
+        this.tags = Tags.of("provider", provider.name(), "client", clientName);
+        this.hits = cacheGets("hit");
+        this.misses = cacheGets("miss");
+        this.refreshSuccess = refreshTimer("success");
+        this.refreshFailure = refreshTimer("failure");
+        this.refreshWait = Timer.builder("oauth2.awt.token.refresh.wait")
+                .description("Time spent waiting on an in-flight token refresh started by another caller")
+                .tags(tags)
+                .register(registry);
+    }
+
+    @Override
+    void cacheHit() {
+        hits.increment();
+    }
+
+    @Override
+    void cacheMiss() {
+        misses.increment();
+    }
+
+    @Override
+    void refreshed(long startNanos, boolean success) {
+        (success ? refreshSuccess : refreshFailure).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    void waited(long startNanos) {
+        refreshWait.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    void attemptFailed(Throwable cause) {
+        registry.counter("oauth2.awt.token.attempt.failures", tags.and("cause", causeTag(cause))).increment();
+    }
+
+    @Override
+    void exchanged(long startNanos, String status) {
+        Timer.builder("oauth2.awt.token.exchange")
+                .description("Token endpoint request latency")
+                .tags(tags.and("status", status))
+                .register(registry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    void hedgeFired() {
+        Counter.builder("oauth2.awt.token.hedge.fired")
+                .description("Extra token requests sent because the first was slower than the hedge delay")
+                .tags(tags)
+                .register(registry)
+                .increment();
+    }
+
+    @Override
+    void hedgeWon() {
+        Counter.builder("oauth2.awt.token.hedge.wins")
+                .description("Hedged token requests that answered before the request they hedged")
+                .tags(tags)
+                .register(registry)
+                .increment();
+    }
+
+    @Override
+    <T> void hedgeDelayGauge(T source, ToDoubleFunction<T> delaySeconds) {
+        Gauge.builder("oauth2.awt.token.hedge.delay", source, delaySeconds)
+                .description("Time a token request is outstanding before it is hedged")
+                .baseUnit("seconds")
+                .tags(tags)
+                .register(registry);
+    }
+
+    @Override
+    <T> void ttlGauge(T source, ToDoubleFunction<T> secondsRemaining) {
+        Gauge.builder("oauth2.awt.token.ttl", source, secondsRemaining)
+                .description("Seconds until the cached default access token expires; 0 when none is cached")
+                .baseUnit("seconds")
+                .tags(tags)
+                .register(registry);
+    }
+
+    private Counter cacheGets(String result) {
+        return Counter.builder("oauth2.awt.token.cache.gets")
+                .description("Access token lookups served from the cache (hit) or needing a refresh (miss)")
+                .tags(tags.and("result", result))
+                .register(registry);
+    }
+
+    private Timer refreshTimer(String outcome) {
+        return Timer.builder("oauth2.awt.token.refresh")
+                .description("Token refresh latency, including retries")
+                .tags(tags.and("outcome", outcome))
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    /** Low-cardinality cause: the HTTP status, an open breaker, or the exception type. */
+    private static String causeTag(Throwable cause) {
+        if (cause instanceof TokenEndpointException endpointEx) {
+            return "http_" + endpointEx.getStatusCode();
+        }
+        if (cause instanceof TokenUnavailableException) {
+            return "circuit_open";
+        }
+        return cause.getClass().getSimpleName();
+    }
+}
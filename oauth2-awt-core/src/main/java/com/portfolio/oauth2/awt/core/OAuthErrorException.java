@@ -0,0 +1,51 @@
+package com.portfolio.oauth2.awt.core;
+
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * The token endpoint answered with an OAuth error body (RFC 6749 §5.2), e.g.
+ * {@code {"error":"invalid_grant","error_description":"Invalid JWT Signature."}}.
+ * <p>
+ * Retryability follows the error code rather than only the status: a rejected client, grant or
+ * scope will be rejected again, while {@code temporarily_unavailable} and {@code server_error}
+ * are transient. Unknown codes fall back to the status-based rule of
+ * {@link TokenEndpointException}.
+ */
+public class OAuthErrorException extends TokenEndpointException {
+
+    private static final Set<String> DEFINITIVE = Set.of("invalid_request", "invalid_client", "invalid_grant",
+            "unauthorized_client", "unsupported_grant_type", "invalid_scope", "access_denied");
+    private static final Set<String> TRANSIENT = Set.of("temporarily_unavailable", "server_error");
+
+    private final String error;
+    private final String errorDescription;
+
+    public OAuthErrorException(String message, int statusCode, Duration retryAfter,
+                               String error, String errorDescription) {
+        super(message, statusCode, retryAfter, null);
+        this.error = error;
+        this.errorDescription = errorDescription;
+    }
+
+    /** The {@code error} code, e.g. {@code invalid_grant}. */
+    public String getError() {
+        return error;
+    }
+
+    /** The human-readable {@code error_description}, or {@code null}. */
+    public String getErrorDescription() {
+        return errorDescription;
+    }
+
+    @Override
+    public boolean isRetryable() {
+        if (DEFINITIVE.contains(error)) {
+            return false;
+        }
+        if (TRANSIENT.contains(error)) {
+            return true;
+        }
+        return super.isRetryable();
+    }
+}
@@ -0,0 +1,310 @@
+package com.portfolio.oauth2.awt.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Refresh-ahead scheduler shared by many clients: a hashed timing wheel driven by one thread,
+ * so tens of thousands of pending refreshes cost one wheel slot each instead of a
+ * {@link java.util.concurrent.ScheduledExecutorService} heap entry and thread per client.
+ * <p>
+ * Each refresh is moved earlier by a jitter derived from its key's hash, up to
+ * {@code maxJitter} and never more than half the remaining delay. Tokens issued in the same
+ * instant, e.g. by every client at boot, thus come due spread over the jitter window rather than
+ * together, and a given key always gets the same offset.
+ * <p>
+ * Due refreshes run on {@code refreshExecutor}, at most {@code maxConcurrentRefreshes} at a
+ * time; the rest queue in due order until a permit frees up. The wheel thread only moves
+ * entries and never runs a refresh itself.
+ */
+public class RefreshScheduler implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(RefreshScheduler.class);
+
+    private static final Duration DEFAULT_TICK = Duration.ofMillis(100);
+    private static final int DEFAULT_WHEEL_SIZE = 512;
+    private static final Duration DEFAULT_MAX_JITTER = Duration.ofSeconds(30);
+
+    /** Registrations taken per tick, so a burst cannot stall the wheel. */
+    private static final int MAX_REGISTRATIONS_PER_TICK = 100_000;
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final long maxJitterNanos;
+    private final int maxConcurrentRefreshes;
+    private final Semaphore permits;
+    private final Executor refreshExecutor;
+    private final ExecutorService ownedExecutor;
+    private final Queue<Entry> registrations = new ConcurrentLinkedQueue<>();
+    private final Queue<Entry> ready = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final long startNanos;
+    private final Thread worker;
+    private volatile boolean closed;
+    private long tick;
+
+    /** 100 ms ticks, a 512-slot wheel, up to 30 s of jitter and its own refresh threads. */
+    public RefreshScheduler(int maxConcurrentRefreshes) {
+        this(DEFAULT_TICK, DEFAULT_WHEEL_SIZE, DEFAULT_MAX_JITTER, maxConcurrentRefreshes, null);
+    }
+
+    /**
+     * @param tick                   wheel resolution; refreshes fire up to one tick late
+     * @param wheelSize              slots per rotation, rounded up to a power of two
+     * @param maxJitter              largest amount a refresh is moved earlier
+     * @param maxConcurrentRefreshes refreshes running at once
+     * @param refreshExecutor        where refreshes run, or {@code null} for daemon threads owned
+     *                               (and shut down) by this scheduler
+     */
+    public RefreshScheduler(Duration tick, int wheelSize, Duration maxJitter, int maxConcurrentRefreshes,
+                            Executor refreshExecutor) {
+        if (tick.toNanos() <= 0 || wheelSize <= 0 || maxJitter.isNegative() || maxConcurrentRefreshes <= 0) {
+            throw new IllegalArgumentException("tick, wheelSize and maxConcurrentRefreshes must be positive, maxJitter not negative");
+        }
+        this.tickNanos = tick.toNanos();
+        this.wheel = new Bucket[Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = wheel.length - 1;
+        this.maxJitterNanos = maxJitter.toNanos();
+        this.maxConcurrentRefreshes = maxConcurrentRefreshes;
+        this.permits = new Semaphore(maxConcurrentRefreshes);
+        if (refreshExecutor == null) {
+            AtomicInteger threads = new AtomicInteger();
+            this.ownedExecutor = Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "oauth2-awt-refresh-" + threads.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+            this.refreshExecutor = ownedExecutor;
+        } else {
+            this.ownedExecutor = null;
+            this.refreshExecutor = refreshExecutor;
+        }
+        this.startNanos = System.nanoTime();
+        this.worker = new Thread(this::run, "oauth2-awt-refresh-wheel");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Runs {@code refresh} at {@code refreshAt}, moved earlier by the jitter of {@code jitterKey}.
+     *
+     * @param jitterKey anything with a stable {@code hashCode}, e.g. the client and token request
+     * @return a handle to cancel the refresh, e.g. when the token was renewed some other way
+     */
+    public Handle schedule(Object jitterKey, Instant refreshAt, Runnable refresh) {
+        long delayNanos = Math.max(0, Duration.between(Instant.now(), refreshAt).toNanos());
+        Entry entry = new Entry(System.nanoTime() - startNanos + delayNanos - jitterNanos(jitterKey, delayNanos), refresh);
+        if (closed) {
+            entry.cancel();
+            return entry;
+        }
+        pending.incrementAndGet();
+        registrations.add(entry);
+        return entry;
+    }
+
+    /** Runs {@code refresh} as soon as a permit is free, bypassing the wheel. */
+    public Handle submit(Runnable refresh) {
+        Entry entry = new Entry(0, refresh);
+        if (closed) {
+            entry.cancel();
+            return entry;
+        }
+        pending.incrementAndGet();
+        ready.add(entry);
+        dispatch();
+        return entry;
+    }
+
+    /** Refreshes scheduled or queued for a permit, not yet running; cancelled ones may still count until swept. */
+    public int pendingCount() {
+        return pending.get();
+    }
+
+    /** Refreshes running now. */
+    public int runningCount() {
+        return maxConcurrentRefreshes - permits.availablePermits();
+    }
+
+    /** Stops the wheel; scheduled refreshes are dropped and running ones are left to finish. */
+    @Override
+    public void close() {
+        closed = true;
+        worker.interrupt();
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    private void run() {
+        while (!closed) {
+            long tickDeadline = (tick + 1) * tickNanos;
+            long sleepNanos;
+            while ((sleepNanos = tickDeadline - (System.nanoTime() - startNanos)) > 0) {
+                LockSupport.parkNanos(this, sleepNanos);
+                if (closed) {
+                    return;
+                }
+            }
+            transferRegistrations();
+            expire(wheel[(int) (tick & mask)], tickDeadline);
+            tick++;
+            dispatch();
+        }
+    }
+
+    /** Places new entries in the slot of their deadline, with the full rotations still to wait. */
+    private void transferRegistrations() {
+        for (int i = 0; i < MAX_REGISTRATIONS_PER_TICK; i++) {
+            Entry entry = registrations.poll();
+            if (entry == null) {
+                return;
+            }
+            if (entry.isCancelled()) {
+                pending.decrementAndGet();
+                continue;
+            }
+            // Never place an entry in a slot already passed; overdue ones fire on this tick
+            long dueTick = Math.max(entry.deadlineNanos / tickNanos, tick);
+            entry.remainingRounds = (dueTick - tick) / wheel.length;
+            wheel[(int) (dueTick & mask)].add(entry);
+        }
+    }
+
+    private void expire(Bucket bucket, long tickDeadline) {
+        Entry entry = bucket.head;
+        while (entry != null) {
+            Entry next = entry.next;
+            if (entry.isCancelled()) {
+                bucket.remove(entry);
+                pending.decrementAndGet();
+            } else if (entry.remainingRounds <= 0 && entry.deadlineNanos <= tickDeadline) {
+                bucket.remove(entry);
+                ready.add(entry);
+            } else {
+                entry.remainingRounds--;
+            }
+            entry = next;
+        }
+    }
+
+    /** Starts queued refreshes while permits last; called by the wheel and by every finishing refresh. */
+    private void dispatch() {
+        while (!ready.isEmpty() && permits.tryAcquire()) {
+            Entry entry = ready.poll();
+            if (entry == null) {
+                permits.release();
+                return;
+            }
+            pending.decrementAndGet();
+            if (entry.isCancelled() || closed) {
+                permits.release();
+                continue;
+            }
+            try {
+                refreshExecutor.execute(() -> runRefresh(entry));
+            } catch (RejectedExecutionException ex) {
+                permits.release();
+                log.debug("Refresh executor rejected a refresh; the token will be refreshed on demand");
+            }
+        }
+    }
+
+    private void runRefresh(Entry entry) {
+        try {
+            entry.task.run();
+        } catch (RuntimeException ex) {
+            log.warn("Scheduled token refresh failed: {}", ex.getMessage());
+        } finally {
+            permits.release();
+            dispatch();
+        }
+    }
+
+    /** How much earlier than {@code delayNanos} the refresh for {@code jitterKey} fires. */
+    long jitterNanos(Object jitterKey, long delayNanos) {
+        return (long) (unitInterval(jitterKey) * Math.min(maxJitterNanos, delayNanos / 2));
+    }
+
+    /** Maps the key's hash to [0, 1), mixed so that neighbouring hash codes land far apart. */
+    private static double unitInterval(Object key) {
+        long z = (key == null ? 0 : key.hashCode()) + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        return (z >>> 11) * 0x1.0p-53;
+    }
+
+    /** A scheduled refresh. */
+    public interface Handle {
+        /** Drops the refresh if it has not started; a no-op otherwise. */
+        void cancel();
+    }
+
+    private static final class Entry implements Handle {
+        private final long deadlineNanos;
+        private final Runnable task;
+        private volatile boolean cancelled;
+        // Only touched by the wheel thread
+        private long remainingRounds;
+        private Entry prev;
+        private Entry next;
+
+        private Entry(long deadlineNanos, Runnable task) {
+            this.deadlineNanos = deadlineNanos;
+            this.task = task;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        private boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    /** Doubly linked so an entry is unlinked in O(1) while its slot is swept. */
+    private static final class Bucket {
+        private Entry head;
+
+        private void add(Entry entry) {
+            entry.prev = null;
+            entry.next = head;
+            if (head != null) {
+                head.prev = entry;
+            }
+            head = entry;
+        }
+
+        private void remove(Entry entry) {
+            if (entry.prev != null) {
+                entry.prev.next = entry.next;
+            } else {
+                head = entry.next;
+            }
+            if (entry.next != null) {
+                entry.next.prev = entry.prev;
+            }
+            entry.prev = null;
+            entry.next = null;
+        }
+    }
+}
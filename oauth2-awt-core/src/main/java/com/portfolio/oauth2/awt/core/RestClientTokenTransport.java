@@ -0,0 +1,51 @@
+package com.portfolio.oauth2.awt.core;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.io.IOException;
+
+/**
+ * {@link TokenTransport} over an application's Spring {@link RestClient}, for callers that want
+ * token requests to share its interceptors, proxy or observation setup. Timeouts are those of
+ * the {@code RestClient}'s request factory; {@link AssertionConfig#timeoutMs()} does not apply.
+ * Pass it to {@link AssertionTokenClient.Builder#transport} or
+ * {@link TokenEndpointClient#TokenEndpointClient(TokenTransport)}.
+ * <p>
+ * Spring is an optional dependency of this module: only this adapter needs it.
+ */
+public class RestClientTokenTransport implements TokenTransport {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final RestClient restClient;
+
+    public RestClientTokenTransport(RestClient restClient) {
+        this.restClient = restClient;
+    }
+
+    @Override
+    public Response postForm(String endpoint, String formBody) throws IOException {
+        try {
+            byte[] body = restClient.post()
+                    .uri(endpoint)
+                    .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                    .accept(MediaType.APPLICATION_JSON)
+                    .body(formBody)
+                    .retrieve()
+                    .body(byte[].class);
+            return new Response(200, null, body != null ? body : EMPTY);
+        } catch (RestClientResponseException ex) {
+            HttpHeaders headers = ex.getResponseHeaders();
+            return new Response(ex.getStatusCode().value(),
+                    headers != null ? headers.getFirst(HttpHeaders.RETRY_AFTER) : null,
+                    ex.getResponseBodyAsByteArray());
+        } catch (ResourceAccessException ex) {
+            // Connect/read timeout or I/O error: no response
+            throw ex.getCause() instanceof IOException io ? io : new IOException(ex.getMessage(), ex);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.portfolio.oauth2.awt.core;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+
+/**
+ * A Google service account key file, read once and parsed in a single pass.
+ * <p>
+ * {@code private_key} is decoded into {@link #privateKey()} here, and
+ * {@link #applyTo(AssertionConfig.Builder)} hands it on, so the PEM is converted to a key only
+ * once per client. {@code private_key_id} becomes the JWS {@code kid}, which lets Google pick
+ * the right public key without trying each one of the account.
+ *
+ * @param privateKeyId {@code null} if the file has no {@code private_key_id}
+ * @param tokenUri     {@code null} if the file has no {@code token_uri}
+ */
+public record ServiceAccountCredentials(
+        String clientEmail,
+        String privateKeyPem,
+        PrivateKey privateKey,
+        String privateKeyId,
+        String tokenUri
+) {
+    private static final byte[] CLIENT_EMAIL = JsonScanner.ascii("client_email");
+    private static final byte[] PRIVATE_KEY = JsonScanner.ascii("private_key");
+    private static final byte[] PRIVATE_KEY_ID = JsonScanner.ascii("private_key_id");
+    private static final byte[] TOKEN_URI = JsonScanner.ascii("token_uri");
+
+    /**
+     * @throws IllegalArgumentException if the file lacks {@code client_email} or {@code private_key},
+     *                                  or the key is not a PKCS#8 RSA key
+     * @throws IllegalStateException    if the file is not a JSON object
+     */
+    public static ServiceAccountCredentials load(Path file) throws IOException {
+        return parse(Files.readAllBytes(file));
+    }
+
+    /** {@link #load(Path)} for content already in memory. */
+    public static ServiceAccountCredentials parse(byte[] json) {
+        String[] fields = JsonScanner.readStrings(json, "service account JSON",
+                CLIENT_EMAIL, PRIVATE_KEY, PRIVATE_KEY_ID, TOKEN_URI);
+        String clientEmail = fields[0];
+        String pem = fields[1];
+        if (clientEmail == null) {
+            throw new IllegalArgumentException("No client_email field in service account JSON");
+        }
+        if (pem == null) {
+            throw new IllegalArgumentException("No private_key field in service account JSON");
+        }
+        PrivateKey key;
+        try {
+            key = JwtAssertionBuilder.parsePrivateKey(pem, SigningAlgorithm.RS256);
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid private_key for service account " + clientEmail, e);
+        }
+        return new ServiceAccountCredentials(clientEmail, pem, key, fields[2], fields[3]);
+    }
+
+    /** Sets the client id, key and key id of {@code builder}; the token endpoint is left to the caller. */
+    public AssertionConfig.Builder applyTo(AssertionConfig.Builder builder) {
+        return builder.clientId(clientEmail)
+                .privateKeyPem(privateKeyPem)
+                .privateKey(privateKey)
+                .keyId(privateKeyId)
+                .signingAlgorithm(SigningAlgorithm.RS256);
+    }
+
+    @Override
+    public String toString() {
+        return "ServiceAccountCredentials[clientEmail=" + clientEmail + ", privateKeyId=" + privateKeyId
+                + ", tokenUri=" + tokenUri + "]";
+    }
+}
@@ -0,0 +1,29 @@
+package com.portfolio.oauth2.awt.core;
+
+/**
+ * JWS algorithm used to sign assertions, with the PKCS#8 key type it expects.
+ * <ul>
+ *   <li>{@link #RS256} – RSA with SHA-256; the only algorithm Google service accounts accept</li>
+ *   <li>{@link #ES256} – ECDSA on P-256 with SHA-256; far cheaper to sign than RSA-2048 and a
+ *       64-byte signature instead of 256</li>
+ *   <li>{@link #EdDSA} – Ed25519; the cheapest to sign, also with a 64-byte signature</li>
+ * </ul>
+ * The token endpoint must have the matching public key or certificate registered.
+ */
+public enum SigningAlgorithm {
+
+    RS256("RSA"),
+    ES256("EC"),
+    EdDSA("Ed25519");
+
+    private final String keyAlgorithm;
+
+    SigningAlgorithm(String keyAlgorithm) {
+        this.keyAlgorithm = keyAlgorithm;
+    }
+
+    /** JCA {@link java.security.KeyFactory} algorithm of the private key. */
+    public String keyAlgorithm() {
+        return keyAlgorithm;
+    }
+}
@@ -0,0 +1,64 @@
+package com.portfolio.oauth2.awt.core;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+/**
+ * AES-GCM encryption shared by the persistent {@link TokenStore}s. The key is derived from
+ * caller-supplied key material (typically the client's private key), so rotating that key makes
+ * previously stored tokens unreadable rather than wrong. Ciphertexts are {@code IV || data || tag}.
+ */
+final class TokenCipher {
+
+    static final int IV_LENGTH = 12;
+    private static final int TAG_BITS = 128;
+
+    private final SecretKey key;
+    private final SecureRandom random = new SecureRandom();
+
+    TokenCipher(byte[] keyMaterial) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            sha256.update("oauth2-awt-token-store".getBytes(StandardCharsets.US_ASCII));
+            this.key = new SecretKeySpec(sha256.digest(keyMaterial), "AES");
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+
+    /** Encrypts {@code plain} under a fresh IV, authenticating {@code aad} alongside it. */
+    byte[] encrypt(byte[] plain, byte[] aad) throws GeneralSecurityException {
+        byte[] iv = new byte[IV_LENGTH];
+        random.nextBytes(iv);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+        cipher.updateAAD(aad);
+        byte[] out = new byte[IV_LENGTH + cipher.getOutputSize(plain.length)];
+        System.arraycopy(iv, 0, out, 0, IV_LENGTH);
+        cipher.doFinal(plain, 0, plain.length, out, IV_LENGTH);
+        return out;
+    }
+
+    /** Decrypts the remaining bytes of {@code ivAndCiphertext}; fails if the key or {@code aad} differ. */
+    ByteBuffer decrypt(ByteBuffer ivAndCiphertext, byte[] aad) throws GeneralSecurityException {
+        if (ivAndCiphertext.remaining() < IV_LENGTH) {
+            throw new GeneralSecurityException("Ciphertext too short");
+        }
+        byte[] iv = new byte[IV_LENGTH];
+        ivAndCiphertext.get(iv);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+        cipher.updateAAD(aad);
+        ByteBuffer plain = ByteBuffer.allocate(cipher.getOutputSize(ivAndCiphertext.remaining()));
+        cipher.doFinal(ivAndCiphertext, plain);
+        plain.flip();
+        return plain;
+    }
+}
@@ -2,13 +2,16 @@ package com.portfolio.oauth2.awt.core;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.http.*;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
-import org.springframework.web.client.RestClient;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
-import java.util.Map;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 
 /**
  * Posts a JWT assertion to a token endpoint and parses the access token.
@@ -17,36 +20,138 @@ public class TokenEndpointClient {
 
     private static final Logger log = LoggerFactory.getLogger(TokenEndpointClient.class);
     private static final String GRANT_TYPE = "urn:ietf:params:oauth:grant-type:jwt-bearer";
+    private static final long DEFAULT_EXPIRES_IN = 3600;
 
-    private final RestClient restClient;
+    private final TokenTransport transport;
+    private final TokenMetrics metrics;
 
-    public TokenEndpointClient(RestClient restClient) {
-        this.restClient = restClient;
+    public TokenEndpointClient(TokenTransport transport) {
+        this(transport, TokenMetrics.NOOP);
+    }
+
+    /** Records each call in {@code oauth2.awt.token.exchange}, tagged with the response status. */
+    public TokenEndpointClient(TokenTransport transport, TokenMetrics metrics) {
+        this.transport = transport;
+        this.metrics = metrics;
     }
 
-    @SuppressWarnings("unchecked")
     public TokenResponse exchangeAssertion(String tokenEndpoint, String assertion) {
-        MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
-        form.add("grant_type", GRANT_TYPE);
-        form.add("assertion", assertion);
+        return exchangeAssertion(tokenEndpoint, assertion, null);
+    }
+
+    /**
+     * Exchanges an assertion, sending {@code scope} as a form parameter when it is not
+     * {@code null} (Microsoft reads the scope from the request body, not the assertion).
+     */
+    public TokenResponse exchangeAssertion(String tokenEndpoint, String assertion, String scope) {
+        StringBuilder form = new StringBuilder(64 + assertion.length())
+                .append("grant_type=").append(encode(GRANT_TYPE))
+                .append("&assertion=").append(encode(assertion));
+        if (scope != null) {
+            form.append("&scope=").append(encode(scope));
+        }
 
         log.debug("Exchanging JWT assertion at {}", tokenEndpoint);
 
-        Map<String, Object> body = restClient.post()
-                .uri(tokenEndpoint)
-                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
-                .body(form)
-                .retrieve()
-                .body(Map.class);
+        TokenTransport.Response response;
+        long start = System.nanoTime();
+        try {
+            response = transport.postForm(tokenEndpoint, form.toString());
+        } catch (IOException ex) {
+            // No response: connect/request timeout or I/O error
+            metrics.exchanged(start, "io_error");
+            throw new UncheckedIOException("Token endpoint " + tokenEndpoint + " did not respond: " + ex.getMessage(), ex);
+        } catch (RuntimeException ex) {
+            metrics.exchanged(start, "io_error");
+            throw ex;
+        }
 
-        if (body == null || !body.containsKey("access_token")) {
+        metrics.exchanged(start, response.isSuccess() ? "2xx" : String.valueOf(response.statusCode()));
+        return readResponse(tokenEndpoint, response);
+    }
+
+    /**
+     * Turns a token endpoint reply into a token, or throws the error it carries. Public for
+     * clients of endpoints that answer in the same JSON, such as the token-vending sidecar.
+     *
+     * @throws OAuthErrorException     for an OAuth error body
+     * @throws TokenEndpointException  for any other non-2xx status
+     * @throws IllegalStateException   for a 2xx without a usable token
+     */
+    public static TokenResponse readResponse(String tokenEndpoint, TokenTransport.Response response) {
+        int status = response.statusCode();
+        byte[] body = response.body();
+        if (!response.isSuccess()) {
+            throw errorResponse(tokenEndpoint, status, parseRetryAfter(response.retryAfter()), body);
+        }
+
+        TokenResponseParser.Fields fields = TokenResponseParser.parse(body);
+        if (fields.accessToken() == null) {
+            if (fields.error() != null) {
+                throw oauthError(tokenEndpoint, status, null, fields);
+            }
             throw new IllegalStateException("No access_token in response from " + tokenEndpoint);
         }
+        if (fields.tokenType() != null && !"Bearer".equalsIgnoreCase(fields.tokenType())) {
+            throw new IllegalStateException("Unsupported token_type " + fields.tokenType() + " from " + tokenEndpoint);
+        }
+        if (fields.extExpiresIn() > fields.expiresIn()) {
+            log.debug("Token from {} has an extended lifetime of {}s", tokenEndpoint, fields.extExpiresIn());
+        }
+        Instant issuedAt = Instant.now();
+        long expiresIn = fields.expiresIn() >= 0 ? fields.expiresIn() : DEFAULT_EXPIRES_IN;
+        return new TokenResponse(fields.accessToken(), issuedAt, issuedAt.plusSeconds(expiresIn));
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
 
-        String accessToken = (String) body.get("access_token");
-        Number expiresIn = (Number) body.getOrDefault("expires_in", 3600);
-        Instant expiresAt = Instant.now().plusSeconds(expiresIn.longValue());
+    /** An {@link OAuthErrorException} when the body carries an OAuth error, else a bare status error. */
+    private static TokenEndpointException errorResponse(String tokenEndpoint, int status, Duration retryAfter,
+                                                        byte[] body) {
+        if (JsonScanner.looksLikeJson(body)) {
+            try {
+                TokenResponseParser.Fields fields = TokenResponseParser.parse(body);
+                if (fields.error() != null) {
+                    return oauthError(tokenEndpoint, status, retryAfter, fields);
+                }
+            } catch (IllegalStateException ex) {
+                log.debug("Ignoring unparseable error body from {}: {}", tokenEndpoint, ex.getMessage());
+            }
+        }
+        return new TokenEndpointException("Token endpoint " + tokenEndpoint + " returned " + status,
+                status, retryAfter, null);
+    }
 
-        return new TokenResponse(accessToken, expiresAt);
+    private static OAuthErrorException oauthError(String tokenEndpoint, int status, Duration retryAfter,
+                                                  TokenResponseParser.Fields fields) {
+        String message = "Token endpoint " + tokenEndpoint + " returned " + status + " " + fields.error()
+                + (fields.errorDescription() != null ? ": " + fields.errorDescription() : "");
+        return new OAuthErrorException(message, status, retryAfter, fields.error(), fields.errorDescription());
+    }
+
+    /**
+     * Parses a {@code Retry-After} header given either as delta-seconds or as an HTTP-date.
+     * Returns {@code null} when the header is absent or malformed.
+     */
+    static Duration parseRetryAfter(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String trimmed = value.trim();
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(trimmed)));
+        } catch (NumberFormatException ignored) {
+            // Not delta-seconds; try the HTTP-date form
+        }
+        try {
+            ZonedDateTime at = ZonedDateTime.parse(trimmed, DateTimeFormatter.RFC_1123_DATE_TIME);
+            Duration delay = Duration.between(Instant.now(), at.toInstant());
+            return delay.isNegative() ? Duration.ZERO : delay;
+        } catch (DateTimeParseException ex) {
+            log.debug("Ignoring malformed Retry-After header: {}", value);
+            return null;
+        }
     }
 }
@@ -0,0 +1,34 @@
+package com.portfolio.oauth2.awt.core;
+
+import java.time.Duration;
+
+/**
+ * The token endpoint answered with an error status. Carries the status code and the
+ * {@code Retry-After} delay, if any, so the failure policy can tell transient overload apart
+ * from a definitive rejection.
+ */
+public class TokenEndpointException extends RuntimeException {
+
+    private final int statusCode;
+    private final Duration retryAfter;
+
+    public TokenEndpointException(String message, int statusCode, Duration retryAfter, Throwable cause) {
+        super(message, cause);
+        this.statusCode = statusCode;
+        this.retryAfter = retryAfter;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /** Delay requested by the endpoint, or {@code null} when none was sent. */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    /** Timeouts, throttling (429) and server errors are transient; other 4xx are not. */
+    public boolean isRetryable() {
+        return statusCode == 408 || statusCode == 429 || statusCode >= 500;
+    }
+}
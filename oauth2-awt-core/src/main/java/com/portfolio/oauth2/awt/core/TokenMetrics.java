@@ -0,0 +1,50 @@
+package com.portfolio.oauth2.awt.core;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Meters for one {@link AssertionTokenClient}, tagged with {@code provider} and {@code client}.
+ * {@link #NOOP} records nothing, for clients built without a registry; with one
+ * ({@link AssertionTokenClient.Builder#meterRegistry}) they are recorded in Micrometer. This class
+ * does not reference Micrometer, which is an optional dependency of the core.
+ * <ul>
+ *   <li>{@code oauth2.awt.token.cache.gets} – counter, {@code result=hit|miss}</li>
+ *   <li>{@code oauth2.awt.token.refresh} – timer with percentile histogram, one sample per
+ *       refresh including retries, {@code outcome=success|failure}</li>
+ *   <li>{@code oauth2.awt.token.refresh.wait} – timer, time callers block on a refresh that
+ *       another caller started</li>
+ *   <li>{@code oauth2.awt.token.attempt.failures} – counter per failed exchange attempt,
+ *       {@code cause=http_<status>|circuit_open|<exception>}</li>
+ *   <li>{@code oauth2.awt.token.exchange} – timer per token endpoint call, {@code status}</li>
+ *   <li>{@code oauth2.awt.token.ttl} – gauge, seconds until the default token expires</li>
+ *   <li>{@code oauth2.awt.token.hedge.fired} / {@code oauth2.awt.token.hedge.wins} – counters,
+ *       hedged exchange requests sent, and those whose token was used</li>
+ *   <li>{@code oauth2.awt.token.hedge.delay} – gauge, seconds a request waits before it is hedged</li>
+ * </ul>
+ */
+public class TokenMetrics {
+
+    public static final TokenMetrics NOOP = new TokenMetrics();
+
+    TokenMetrics() {}
+
+    void cacheHit() {}
+
+    void cacheMiss() {}
+
+    void refreshed(long startNanos, boolean success) {}
+
+    void waited(long startNanos) {}
+
+    void attemptFailed(Throwable cause) {}
+
+    void exchanged(long startNanos, String status) {}
+
+    void hedgeFired() {}
+
+    void hedgeWon() {}
+
+    <T> void hedgeDelayGauge(T source, ToDoubleFunction<T> delaySeconds) {}
+
+    <T> void ttlGauge(T source, ToDoubleFunction<T> secondsRemaining) {}
+}
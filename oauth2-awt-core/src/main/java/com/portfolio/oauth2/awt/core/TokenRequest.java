@@ -0,0 +1,48 @@
+package com.portfolio.oauth2.awt.core;
+
+import java.util.List;
+
+/**
+ * Identifies one cached token of an {@link AssertionTokenClient}: the scope set, the subject
+ * ({@code sub}, e.g. a Google domain-wide-delegation user) and the audience ({@code aud}).
+ * <p>
+ * Scopes are treated as a set, so their order does not create distinct cache entries. A
+ * {@code null} subject or audience falls back to the client id and the token endpoint.
+ */
+public record TokenRequest(List<String> scopes, String subject, String audience) {
+
+    public TokenRequest {
+        scopes = scopes == null ? List.of() : scopes.stream().distinct().sorted().toList();
+    }
+
+    /** The request an {@link AssertionConfig} describes on its own. */
+    public static TokenRequest from(AssertionConfig config) {
+        return new TokenRequest(config.scopes(), config.clientId(), config.tokenEndpoint());
+    }
+
+    /** Fills a missing subject or audience from {@code config}. */
+    TokenRequest withDefaults(AssertionConfig config) {
+        if (subject != null && audience != null) {
+            return this;
+        }
+        return new TokenRequest(scopes,
+                subject != null ? subject : config.clientId(),
+                audience != null ? audience : config.tokenEndpoint());
+    }
+
+    public static Builder builder() { return new Builder(); }
+
+    public static class Builder {
+        private List<String> scopes;
+        private String subject;
+        private String audience;
+
+        public Builder scopes(List<String> s) { this.scopes = s; return this; }
+        public Builder subject(String s) { this.subject = s; return this; }
+        public Builder audience(String s) { this.audience = s; return this; }
+
+        public TokenRequest build() {
+            return new TokenRequest(scopes, subject, audience);
+        }
+    }
+}
@@ -1,9 +1,23 @@
 package com.portfolio.oauth2.awt.core;
 
+import java.time.Duration;
 import java.time.Instant;
 
-public record TokenResponse(String accessToken, Instant expiresAt) {
+public record TokenResponse(String accessToken, Instant issuedAt, Instant expiresAt) {
+
+    public TokenResponse(String accessToken, Instant expiresAt) {
+        this(accessToken, Instant.now(), expiresAt);
+    }
+
     public boolean isExpiredWithSkew(long skewSeconds) {
         return Instant.now().isAfter(expiresAt.minusSeconds(skewSeconds));
     }
+
+    /**
+     * Returns the instant at which {@code ratio} of this token's lifetime has elapsed.
+     */
+    public Instant refreshAt(double ratio) {
+        long lifetimeMillis = Duration.between(issuedAt, expiresAt).toMillis();
+        return issuedAt.plusMillis((long) (lifetimeMillis * ratio));
+    }
 }
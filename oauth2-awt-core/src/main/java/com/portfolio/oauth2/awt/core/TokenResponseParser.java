@@ -0,0 +1,61 @@
+package com.portfolio.oauth2.awt.core;
+
+/**
+ * Single-pass parser for token endpoint responses, reading them with a {@link JsonScanner}.
+ * <p>
+ * Only the top-level fields listed in {@link Fields} are decoded; every other value is skipped.
+ * Lifetimes may also arrive as numeric strings, as Azure AD v1 sends {@code expires_in}.
+ */
+final class TokenResponseParser {
+
+    private static final byte[] ACCESS_TOKEN = JsonScanner.ascii("access_token");
+    private static final byte[] EXPIRES_IN = JsonScanner.ascii("expires_in");
+    private static final byte[] TOKEN_TYPE = JsonScanner.ascii("token_type");
+    private static final byte[] EXT_EXPIRES_IN = JsonScanner.ascii("ext_expires_in");
+    private static final byte[] ERROR = JsonScanner.ascii("error");
+    private static final byte[] ERROR_DESCRIPTION = JsonScanner.ascii("error_description");
+
+    /**
+     * Fields of a successful response (RFC 6749 §5.1) or an error response (§5.2). Absent
+     * strings are {@code null} and absent lifetimes are -1.
+     */
+    record Fields(String accessToken, long expiresIn, String tokenType, long extExpiresIn,
+                  String error, String errorDescription) {
+    }
+
+    private TokenResponseParser() {
+    }
+
+    /**
+     * @throws IllegalStateException if {@code json} is not a JSON object
+     */
+    static Fields parse(byte[] json) {
+        String accessToken = null;
+        String tokenType = null;
+        String error = null;
+        String errorDescription = null;
+        long expiresIn = -1;
+        long extExpiresIn = -1;
+
+        JsonScanner scanner = new JsonScanner(json, "token response");
+        scanner.beginObject();
+        while (scanner.nextField()) {
+            if (scanner.keyIs(ACCESS_TOKEN)) {
+                accessToken = scanner.readStringOrNull();
+            } else if (scanner.keyIs(EXPIRES_IN)) {
+                expiresIn = scanner.readLong();
+            } else if (scanner.keyIs(TOKEN_TYPE)) {
+                tokenType = scanner.readStringOrNull();
+            } else if (scanner.keyIs(EXT_EXPIRES_IN)) {
+                extExpiresIn = scanner.readLong();
+            } else if (scanner.keyIs(ERROR)) {
+                error = scanner.readStringOrNull();
+            } else if (scanner.keyIs(ERROR_DESCRIPTION)) {
+                errorDescription = scanner.readStringOrNull();
+            } else {
+                scanner.skipValue();
+            }
+        }
+        return new Fields(accessToken, expiresIn, tokenType, extExpiresIn, error, errorDescription);
+    }
+}
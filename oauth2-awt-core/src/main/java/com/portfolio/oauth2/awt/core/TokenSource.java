@@ -0,0 +1,16 @@
+package com.portfolio.oauth2.awt.core;
+
+/**
+ * Hands out access tokens for one client: an {@link AssertionTokenClient} in this process, or a
+ * token-vending sidecar shared by all processes on the host.
+ */
+@FunctionalInterface
+public interface TokenSource {
+
+    /**
+     * A valid access token, cached or freshly fetched.
+     *
+     * @throws TokenUnavailableException if none can be obtained
+     */
+    String getAccessToken();
+}
@@ -0,0 +1,33 @@
+package com.portfolio.oauth2.awt.core;
+
+import java.util.Optional;
+
+/**
+ * Second-level store behind {@link CachedTokenProvider}'s in-memory cache. It is consulted on a
+ * cache miss before going to the token endpoint and updated after every successful fetch, so a
+ * token can outlive the process that obtained it. Implementations must be thread-safe.
+ * <p>
+ * A store shared by several processes can also elect the one that refreshes a token: a provider
+ * only calls the token endpoint while it holds the key's lease, and otherwise polls the store
+ * until the holder has saved the new token. Leases must expire on their own, sized to cover a
+ * fetch with its retries, so a crashed holder cannot stall the others for longer than that.
+ */
+public interface TokenStore {
+
+    /** Returns the stored token for {@code key}, if any; callers check its expiry themselves. */
+    Optional<TokenResponse> load(TokenRequest key);
+
+    void save(TokenRequest key, TokenResponse token);
+
+    /**
+     * Tries to take the refresh lease for {@code key}. A store that is not shared between
+     * processes has nothing to coordinate and always grants it.
+     */
+    default boolean tryAcquireLease(TokenRequest key) {
+        return true;
+    }
+
+    /** Releases a lease taken by {@link #tryAcquireLease}, whether or not the fetch succeeded. */
+    default void releaseLease(TokenRequest key) {
+    }
+}
@@ -0,0 +1,32 @@
+package com.portfolio.oauth2.awt.core;
+
+import java.io.IOException;
+
+/**
+ * HTTP client used by {@link TokenEndpointClient} to reach the token endpoint.
+ * <p>
+ * {@link HttpClientTokenTransport} is the default and only needs the JDK;
+ * {@link RestClientTokenTransport} adapts an application's Spring {@code RestClient}.
+ * Implementations must be thread-safe and should bound each call with a timeout, since a
+ * refresh in flight holds back every caller waiting for that token.
+ */
+public interface TokenTransport {
+
+    /**
+     * POSTs an {@code application/x-www-form-urlencoded} body and returns the response,
+     * whatever its status. An {@link IOException} means no response was received (connect
+     * or request timeout, I/O error) and is treated as a retryable failure.
+     */
+    Response postForm(String endpoint, String formBody) throws IOException;
+
+    /**
+     * @param retryAfter raw {@code Retry-After} header, or {@code null}
+     * @param body       response body, empty when there is none
+     */
+    record Response(int statusCode, String retryAfter, byte[] body) {
+
+        public boolean isSuccess() {
+            return statusCode >= 200 && statusCode < 300;
+        }
+    }
+}
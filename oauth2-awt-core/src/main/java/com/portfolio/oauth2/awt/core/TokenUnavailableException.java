@@ -0,0 +1,12 @@
+package com.portfolio.oauth2.awt.core;
+
+/**
+ * No access token could be obtained: retries were exhausted, the circuit breaker is open, or a
+ * fetch for the same request failed moments ago.
+ */
+public class TokenUnavailableException extends IllegalStateException {
+
+    public TokenUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,15 +1,31 @@
 package com.portfolio.oauth2.awt.core;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import java.lang.management.ManagementFactory;
 import java.security.KeyPairGenerator;
 import java.security.KeyPair;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 import static org.mockito.Mockito.*;
 
 class CachedTokenProviderTest {
@@ -72,4 +88,626 @@ class CachedTokenProviderTest {
         assertEquals("microsoft-fake-token", provider.getAccessToken());
         verify(mockClient, times(1)).exchangeAssertion(anyString(), anyString());
     }
+
+    @Test
+    void getAccessToken_refreshAhead_servesCachedTokenWhileRefreshingInBackground() throws Exception {
+        AssertionConfig config = AssertionConfig.builder()
+                .provider(AssertionConfig.Provider.GOOGLE)
+                .clientId("test@project.iam.gserviceaccount.com")
+                .tokenEndpoint("https://oauth2.googleapis.com/token")
+                .scopes(List.of("https://www.googleapis.com/auth/cloud-messaging"))
+                .privateKeyPem(pemKey)
+                .refreshAheadRatio(0.5)
+                .build();
+
+        // Issued 50 minutes ago with 10 minutes left: already past the refresh-ahead point
+        Instant now = Instant.now();
+        TokenResponse aging = new TokenResponse("aging-token", now.minusSeconds(3000), now.plusSeconds(600));
+        TokenResponse fresh = new TokenResponse("fresh-token", now.plusSeconds(3600));
+        CountDownLatch releaseRefresh = new CountDownLatch(1);
+
+        TokenEndpointClient mockClient = mock(TokenEndpointClient.class);
+        when(mockClient.exchangeAssertion(anyString(), anyString()))
+                .thenReturn(aging)
+                .thenAnswer(invocation -> {
+                    releaseRefresh.await();
+                    return fresh;
+                });
+
+        ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor();
+        try {
+            CachedTokenProvider provider =
+                    new CachedTokenProvider(config, new JwtAssertionBuilder(config), mockClient, refresher);
+
+            // Cold start blocks once, then the background refresh is held open by the latch
+            assertEquals("aging-token", provider.getAccessToken());
+            verify(mockClient, timeout(2000).times(2)).exchangeAssertion(anyString(), anyString());
+            assertEquals("aging-token", provider.getAccessToken());
+
+            releaseRefresh.countDown();
+            long deadline = System.currentTimeMillis() + 2000;
+            while (!"fresh-token".equals(provider.getAccessToken()) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals("fresh-token", provider.getAccessToken());
+            verify(mockClient, times(2)).exchangeAssertion(anyString(), anyString());
+        } finally {
+            refresher.shutdownNow();
+        }
+    }
+
+    @Test
+    void getAccessToken_sharedScheduler_failedScheduledRefreshIsRetriedOnNextCall() throws Exception {
+        AssertionConfig config = AssertionConfig.builder()
+                .provider(AssertionConfig.Provider.GOOGLE)
+                .clientId("test@project.iam.gserviceaccount.com")
+                .tokenEndpoint("https://oauth2.googleapis.com/token")
+                .scopes(List.of("https://www.googleapis.com/auth/cloud-messaging"))
+                .privateKeyPem(pemKey)
+                .refreshAheadRatio(0.5)
+                .maxRetries(0)
+                .build();
+
+        // Already past the refresh-ahead point, so the scheduled refresh comes due on the next tick
+        Instant now = Instant.now();
+        TokenResponse aging = new TokenResponse("aging-token", now.minusSeconds(3000), now.plusSeconds(600));
+        TokenResponse fresh = new TokenResponse("fresh-token", now.plusSeconds(3600));
+
+        TokenEndpointClient mockClient = mock(TokenEndpointClient.class);
+        when(mockClient.exchangeAssertion(anyString(), anyString()))
+                .thenReturn(aging)
+                .thenThrow(new TokenEndpointException("temporarily_unavailable", 503, null, null))
+                .thenReturn(fresh);
+
+        try (RefreshScheduler scheduler = new RefreshScheduler(Duration.ofMillis(10), 64, Duration.ZERO, 1, null)) {
+            CachedTokenProvider provider = new CachedTokenProvider(config, new JwtAssertionBuilder(config),
+                    mockClient, null, scheduler, null, TokenMetrics.NOOP);
+
+            assertEquals("aging-token", provider.getAccessToken());
+            verify(mockClient, timeout(2000).times(2)).exchangeAssertion(anyString(), anyString());
+
+            // Nothing is scheduled after the failure; the fast path must notice the token is still due
+            long deadline = System.currentTimeMillis() + 2000;
+            while (!"fresh-token".equals(provider.getAccessToken()) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals("fresh-token", provider.getAccessToken());
+            verify(mockClient, times(3)).exchangeAssertion(anyString(), anyString());
+            provider.close();
+        }
+    }
+
+    @Test
+    void getAccessToken_hedgedToAlternateEndpoint_signsEachAssertionForItsEndpoint() {
+        String primary = "https://login.microsoftonline.com/contoso/oauth2/v2.0/token";
+        String alternate = "https://login.microsoftonline.us/contoso/oauth2/v2.0/token";
+        AssertionConfig config = AssertionConfig.builder()
+                .provider(AssertionConfig.Provider.MICROSOFT)
+                .clientId("test-azure-client-id")
+                .tokenEndpoint(primary)
+                .scopes(List.of("https://graph.microsoft.com/.default"))
+                .privateKeyPem(pemKey)
+                .hedgePolicy(HedgePolicy.builder()
+                        .maxHedges(1).minDelayMs(20).maxDelayMs(20).alternateEndpoints(List.of(alternate)).build())
+                .build();
+        Map<String, String> audiences = new ConcurrentHashMap<>();
+        CountDownLatch hedged = new CountDownLatch(1);
+
+        TokenEndpointClient mockClient = mock(TokenEndpointClient.class);
+        when(mockClient.exchangeAssertion(anyString(), anyString())).thenAnswer(invocation -> {
+            String endpoint = invocation.getArgument(0);
+            String payload = new String(Base64.getUrlDecoder().decode(invocation.<String>getArgument(1).split("\\.")[1]));
+            audiences.put(endpoint, payload.replaceAll(".*\"aud\":\"([^\"]*)\".*", "$1"));
+            if (endpoint.equals(primary)) {
+                hedged.await(5, TimeUnit.SECONDS);
+            } else {
+                hedged.countDown();
+            }
+            return new TokenResponse(endpoint, Instant.now().plusSeconds(3600));
+        });
+
+        CachedTokenProvider provider = new CachedTokenProvider(config, new JwtAssertionBuilder(config), mockClient);
+
+        assertEquals(alternate, provider.getAccessToken());
+        assertEquals(Map.of(primary, primary, alternate, alternate), audiences);
+        provider.close();
+    }
+
+    @Test
+    void assertionConfig_rejectsRefreshAheadRatioOutOfRange() {
+        assertThrows(IllegalArgumentException.class,
+                () -> AssertionConfig.builder().refreshAheadRatio(1.0).build());
+    }
+
+    @Test
+    void getAccessToken_perRequest_cachesEachSubjectSeparately() throws Exception {
+        AssertionConfig config = googleConfig();
+        AtomicInteger issued = new AtomicInteger();
+        TokenEndpointClient mockClient = mock(TokenEndpointClient.class);
+        when(mockClient.exchangeAssertion(anyString(), anyString())).thenAnswer(invocation ->
+                new TokenResponse("token-" + issued.incrementAndGet(), Instant.now().plusSeconds(3600)));
+
+        CachedTokenProvider provider = new CachedTokenProvider(config, new JwtAssertionBuilder(config), mockClient);
+        TokenRequest alice = TokenRequest.builder().scopes(config.scopes()).subject("alice@example.com").build();
+        TokenRequest bob = TokenRequest.builder().scopes(config.scopes()).subject("bob@example.com").build();
+
+        String aliceToken = provider.getAccessToken(alice);
+        String bobToken = provider.getAccessToken(bob);
+
+        assertNotEquals(aliceToken, bobToken);
+        assertEquals(aliceToken, provider.getAccessToken(alice));
+        assertEquals(bobToken, provider.getAccessToken(bob));
+        verify(mockClient, times(2)).exchangeAssertion(anyString(), anyString());
+    }
+
+    @Test
+    void getAccessToken_perRequest_expiresEntryFromTokenLifetime() throws Exception {
+        AssertionConfig config = googleConfig();
+        TokenEndpointClient mockClient = mock(TokenEndpointClient.class);
+        // expires_in of 30s is already inside the 60s skew window
+        when(mockClient.exchangeAssertion(anyString(), anyString()))
+                .thenAnswer(invocation -> new TokenResponse("short-lived", Instant.now().plusSeconds(30)));
+
+        CachedTokenProvider provider = new CachedTokenProvider(config, new JwtAssertionBuilder(config), mockClient);
+
+        provider.getAccessToken();
+        provider.getAccessToken();
+        verify(mockClient, times(2)).exchangeAssertion(anyString(), anyString());
+    }
+
+    @Test
+    void getAccessToken_perRequest_slowRefreshDoesNotBlockOtherSubjects() throws Exception {
+        AssertionConfig config = googleConfig();
+        CountDownLatch firstFetchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstFetch = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        TokenEndpointClient mockClient = mock(TokenEndpointClient.class);
+        when(mockClient.exchangeAssertion(anyString(), anyString())).thenAnswer(invocation -> {
+            int call = calls.incrementAndGet();
+            if (call == 1) {
+                firstFetchStarted.countDown();
+                releaseFirstFetch.await();
+            }
+            return new TokenResponse("token-" + call, Instant.now().plusSeconds(3600));
+        });
+
+        CachedTokenProvider provider = new CachedTokenProvider(config, new JwtAssertionBuilder(config), mockClient);
+        TokenRequest slow = TokenRequest.builder().scopes(config.scopes()).subject("slow@example.com").build();
+        TokenRequest other = TokenRequest.builder().scopes(config.scopes()).subject("other@example.com").build();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> slowToken = executor.submit(() -> provider.getAccessToken(slow));
+            firstFetchStarted.await();
+
+            String otherToken = assertTimeoutPreemptively(Duration.ofSeconds(2), () -> provider.getAccessToken(other));
+            assertEquals("token-2", otherToken);
+
+            releaseFirstFetch.countDown();
+            assertEquals("token-1", slowToken.get());
+        } finally {
+            releaseFirstFetch.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void getAccessTokenAsync_concurrentWaitersShareOneInFlightRefresh() throws Exception {
+        AssertionConfig config = googleConfig();
+        CountDownLatch releaseFetch = new CountDownLatch(1);
+        TokenEndpointClient mockClient = mock(TokenEndpointClient.class);
+        when(mockClient.exchangeAssertion(anyString(), anyString())).thenAnswer(invocation -> {
+            releaseFetch.await();
+            return new TokenResponse("async-token", Instant.now().plusSeconds(3600));
+        });
+
+        CachedTokenProvider provider = new CachedTokenProvider(config, new JwtAssertionBuilder(config), mockClient);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            CompletableFuture<String> first = provider.getAccessTokenAsync(executor);
+            CompletableFuture<String> second = provider.getAccessTokenAsync(executor);
+            CompletableFuture<String> third = provider.getAccessTokenAsync(executor);
+
+            // Callers get a future back while the refresh is still running
+            assertFalse(first.isDone());
+
+            releaseFetch.countDown();
+            assertEquals("async-token", first.get());
+            assertEquals("async-token", second.get());
+            assertEquals("async-token", third.get());
+            assertTrue(provider.getAccessTokenAsync(executor).isDone());
+            verify(mockClient, times(1)).exchangeAssertion(anyString(), anyString());
+        } finally {
+            releaseFetch.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void getAccessTokenAsync_exhaustedRetries_completesExceptionally() {
+        AssertionConfig config = AssertionConfig.builder()
+                .provider(AssertionConfig.Provider.GOOGLE)
+                .clientId("test@project.iam.gserviceaccount.com")
+                .tokenEndpoint("https://oauth2.googleapis.com/token")
+                .scopes(List.of("https://www.googleapis.com/auth/cloud-messaging"))
+                .privateKeyPem(pemKey)
+                .maxRetries(1)
+                .build();
+        TokenEndpointClient mockClient = mock(TokenEndpointClient.class);
+        when(mockClient.exchangeAssertion(anyString(), anyString())).thenThrow(new IllegalStateException("down"));
+
+        CachedTokenProvider provider = new CachedTokenProvider(config, new JwtAssertionBuilder(config), mockClient);
+        CompletableFuture<String> future = provider.getAccessTokenAsync(Runnable::run);
+
+        assertTrue(future.isCompletedExceptionally());
+    }
+
+    @Test
+    void getAccessToken_afterFailure_sharesFailureWithinNegativeCacheWindow() {
+        AssertionConfig config = AssertionConfig.builder()
+                .provider(AssertionConfig.Provider.GOOGLE)
+                .clientId("test@project.iam.gserviceaccount.com")
+                .tokenEndpoint("https://oauth2.googleapis.com/token")
+                .scopes(List.of("https://www.googleapis.com/auth/cloud-messaging"))
+                .privateKeyPem(pemKey)
+                .maxRetries(2)
+                .failurePolicy(FailurePolicy.builder().initialBackoffMs(0).negativeCacheMs(60_000).build())
+                .build();
+        TokenEndpointClient mockClient = mock(TokenEndpointClient.class);
+        when(mockClient.exchangeAssertion(anyString(), anyString()))
+                .thenThrow(new TokenEndpointException("unavailable", 503, null, null));
+
+        CachedTokenProvider provider = new CachedTokenProvider(config, new JwtAssertionBuilder(config), mockClient);
+
+        assertThrows(TokenUnavailableException.class, provider::getAccessToken);
+        TokenUnavailableException shared = assertThrows(TokenUnavailableException.class, provider::getAccessToken);
+
+        assertInstanceOf(TokenUnavailableException.class, shared.getCause());
+        verify(mockClient, times(2)).exchangeAssertion(anyString(), anyString());
+    }
+
+    @Test
+    void getAccessToken_nonRetryableRejection_doesNotRetry() {
+        AssertionConfig config = AssertionConfig.builder()
+                .provider(AssertionConfig.Provider.GOOGLE)
+                .clientId("test@project.iam.gserviceaccount.com")
+                .tokenEndpoint("https://oauth2.googleapis.com/token")
+                .scopes(List.of("https://www.googleapis.com/auth/cloud-messaging"))
+                .privateKeyPem(pemKey)
+                .maxRetries(3)
+                .failurePolicy(FailurePolicy.builder().initialBackoffMs(0).build())
+                .build();
+        TokenEndpointClient mockClient = mock(TokenEndpointClient.class);
+        when(mockClient.exchangeAssertion(anyString(), anyString()))
+                .thenThrow(new TokenEndpointException("invalid_grant", 400, null, null));
+
+        CachedTokenProvider provider = new CachedTokenProvider(config, new JwtAssertionBuilder(config), mockClient);
+
+        assertThrows(TokenUnavailableException.class, provider::getAccessToken);
+        verify(mockClient, times(1)).exchangeAssertion(anyString(), anyString());
+        assertEquals(CircuitBreaker.State.CLOSED, provider.circuitBreakerState());
+    }
+
+    @Test
+    void getAccessToken_circuitOpen_failsFastWithoutCallingEndpoint() {
+        AssertionConfig config = AssertionConfig.builder()
+                .provider(AssertionConfig.Provider.GOOGLE)
+                .clientId("test@project.iam.gserviceaccount.com")
+                .tokenEndpoint("https://oauth2.googleapis.com/token")
+                .scopes(List.of("https://www.googleapis.com/auth/cloud-messaging"))
+                .privateKeyPem(pemKey)
+                .maxRetries(1)
+                .failurePolicy(FailurePolicy.builder()
+                        .initialBackoffMs(0)
+                        .circuitBreakerThreshold(1)
+                        .circuitBreakerOpenMs(60_000)
+                        .negativeCacheMs(0)
+                        .build())
+                .build();
+        TokenEndpointClient mockClient = mock(TokenEndpointClient.class);
+        when(mockClient.exchangeAssertion(anyString(), anyString()))
+                .thenThrow(new TokenEndpointException("unavailable", 503, null, null));
+
+        CachedTokenProvider provider = new CachedTokenProvider(config, new JwtAssertionBuilder(config), mockClient);
+        assertThrows(TokenUnavailableException.class, provider::getAccessToken);
+        assertEquals(CircuitBreaker.State.OPEN, provider.circuitBreakerState());
+
+        TokenRequest otherSubject = TokenRequest.builder().scopes(config.scopes()).subject("other@example.com").build();
+        assertThrows(TokenUnavailableException.class, () -> provider.getAccessToken(otherSubject));
+        verify(mockClient, times(1)).exchangeAssertion(anyString(), anyString());
+    }
+
+    @Test
+    void getAccessToken_validTokenInStore_skipsTokenEndpoint() {
+        AssertionConfig config = googleConfig();
+        TokenEndpointClient mockClient = mock(TokenEndpointClient.class);
+        TokenStore store = mock(TokenStore.class);
+        when(store.load(TokenRequest.from(config)))
+                .thenReturn(Optional.of(new TokenResponse("persisted-token", Instant.now().plusSeconds(3600))));
+
+        CachedTokenProvider provider = new CachedTokenProvider(config, new JwtAssertionBuilder(config), mockClient,
+                null, store);
+
+        assertEquals("persisted-token", provider.getAccessToken());
+        verifyNoInteractions(mockClient);
+    }
+
+    @Test
+    void getAccessToken_expiredTokenInStore_fetchesAndSavesFreshToken() {
+        AssertionConfig config = googleConfig();
+        TokenEndpointClient mockClient = mock(TokenEndpointClient.class);
+        TokenResponse fresh = new TokenResponse("fresh-token", Instant.now().plusSeconds(3600));
+        when(mockClient.exchangeAssertion(anyString(), anyString())).thenReturn(fresh);
+        TokenStore store = mock(TokenStore.class);
+        when(store.load(any())).thenReturn(Optional.of(new TokenResponse("stale-token", Instant.now().plusSeconds(10))));
+        when(store.tryAcquireLease(any())).thenReturn(true);
+
+        CachedTokenProvider provider = new CachedTokenProvider(config, new JwtAssertionBuilder(config), mockClient,
+                null, store);
+
+        assertEquals("fresh-token", provider.getAccessToken());
+        verify(store).save(TokenRequest.from(config), fresh);
+    }
+
+    @Test
+    void getAccessToken_replicasSharingStore_callTokenEndpointOnce() throws Exception {
+        AssertionConfig config = googleConfig();
+        TokenEndpointClient mockClient = mock(TokenEndpointClient.class);
+        when(mockClient.exchangeAssertion(anyString(), anyString())).thenAnswer(inv -> {
+            Thread.sleep(300);
+            return new TokenResponse("shared-token", Instant.now().plusSeconds(3600));
+        });
+        SharedTokens shared = new SharedTokens();
+
+        int replicas = 4;
+        ExecutorService pool = Executors.newFixedThreadPool(replicas);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < replicas; i++) {
+                CachedTokenProvider replica = new CachedTokenProvider(config, new JwtAssertionBuilder(config),
+                        mockClient, null, shared.replica());
+                results.add(pool.submit(() -> replica.getAccessToken()));
+            }
+            for (Future<String> result : results) {
+                assertEquals("shared-token", result.get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        verify(mockClient, times(1)).exchangeAssertion(anyString(), anyString());
+    }
+
+    @Test
+    void getAccessTokenAsync_leaseHeldElsewhere_waitsForSharedToken() throws Exception {
+        AssertionConfig config = googleConfig();
+        TokenEndpointClient mockClient = mock(TokenEndpointClient.class);
+        SharedTokens shared = new SharedTokens();
+        TokenStore leader = shared.replica();
+        TokenRequest key = TokenRequest.from(config);
+        assertTrue(leader.tryAcquireLease(key));
+
+        CachedTokenProvider follower = new CachedTokenProvider(config, new JwtAssertionBuilder(config),
+                mockClient, null, shared.replica());
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            CompletableFuture<String> token = follower.getAccessTokenAsync(pool);
+            Thread.sleep(250);
+            assertFalse(token.isDone());
+
+            leader.save(key, new TokenResponse("leader-token", Instant.now().plusSeconds(3600)));
+            leader.releaseLease(key);
+            assertEquals("leader-token", token.get(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+        verifyNoInteractions(mockClient);
+    }
+
+    @Test
+    void getAccessToken_withMetrics_recordsCacheGetsRefreshAndTtl() {
+        AssertionConfig config = googleConfig();
+        TokenEndpointClient mockClient = mock(TokenEndpointClient.class);
+        when(mockClient.exchangeAssertion(anyString(), anyString()))
+                .thenReturn(new TokenResponse("token", Instant.now().plusSeconds(3600)));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CachedTokenProvider provider = new CachedTokenProvider(config, new JwtAssertionBuilder(config), mockClient,
+                null, null, new MicrometerTokenMetrics(registry, config.provider(), "google"));
+
+        assertEquals(0.0, registry.find("oauth2.awt.token.ttl").gauge().value(), 0.0);
+        provider.getAccessToken();
+        provider.getAccessToken();
+        provider.getAccessToken();
+
+        assertEquals(1.0, registry.find("oauth2.awt.token.cache.gets").tag("result", "miss").counter().count(), 0.0);
+        assertEquals(2.0, registry.find("oauth2.awt.token.cache.gets").tag("result", "hit").counter().count(), 0.0);
+        assertEquals(1, registry.find("oauth2.awt.token.refresh")
+                .tags("outcome", "success", "provider", "GOOGLE", "client", "google").timer().count());
+        assertEquals(3600.0, registry.find("oauth2.awt.token.ttl").gauge().value(), 5.0);
+    }
+
+    @Test
+    void getAccessToken_withMetrics_countsFailedAttemptsByCause() {
+        AssertionConfig config = AssertionConfig.builder()
+                .provider(AssertionConfig.Provider.GOOGLE)
+                .clientId("test@project.iam.gserviceaccount.com")
+                .tokenEndpoint("https://oauth2.googleapis.com/token")
+                .scopes(List.of("https://www.googleapis.com/auth/cloud-messaging"))
+                .privateKeyPem(pemKey)
+                .maxRetries(2)
+                .failurePolicy(FailurePolicy.builder().initialBackoffMs(0).negativeCacheMs(0).build())
+                .build();
+        TokenEndpointClient mockClient = mock(TokenEndpointClient.class);
+        when(mockClient.exchangeAssertion(anyString(), anyString()))
+                .thenThrow(new TokenEndpointException("unavailable", 503, null, null));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CachedTokenProvider provider = new CachedTokenProvider(config, new JwtAssertionBuilder(config), mockClient,
+                null, null, new MicrometerTokenMetrics(registry, config.provider(), "google"));
+
+        assertThrows(TokenUnavailableException.class, provider::getAccessToken);
+
+        assertEquals(2.0, registry.find("oauth2.awt.token.attempt.failures").tag("cause", "http_503").counter().count(), 0.0);
+        assertEquals(1, registry.find("oauth2.awt.token.refresh").tag("outcome", "failure").timer().count());
+    }
+
+    @Test
+    void getAccessToken_defaultAndExplicitRequest_shareOneToken() {
+        AssertionConfig config = googleConfig();
+        TokenEndpointClient mockClient = mock(TokenEndpointClient.class);
+        when(mockClient.exchangeAssertion(anyString(), anyString()))
+                .thenReturn(new TokenResponse("token", Instant.now().plusSeconds(3600)));
+        CachedTokenProvider provider = new CachedTokenProvider(config, new JwtAssertionBuilder(config), mockClient);
+
+        // Fetched through the cache, then served from the fast path
+        assertEquals("token", provider.getAccessToken(TokenRequest.from(config)));
+        assertEquals("token", provider.getAccessToken());
+        assertEquals("token", provider.getAccessTokenAsync(Runnable::run).join());
+        verify(mockClient, times(1)).exchangeAssertion(anyString(), anyString());
+    }
+
+    @Test
+    void getAccessToken_cachedDefaultToken_allocatesNothing() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+
+        AssertionConfig config = googleConfig();
+        TokenEndpointClient mockClient = mock(TokenEndpointClient.class);
+        when(mockClient.exchangeAssertion(anyString(), anyString()))
+                .thenReturn(new TokenResponse("token", Instant.now().plusSeconds(3600)));
+        CachedTokenProvider provider = new CachedTokenProvider(config, new JwtAssertionBuilder(config), mockClient);
+        provider.getAccessToken();
+
+        int iterations = 100_000;
+        long tid = Thread.currentThread().getId();
+        long bytesBefore = threads.getThreadAllocatedBytes(tid);
+        for (int i = 0; i < iterations; i++) {
+            provider.getAccessToken();
+        }
+        long allocated = threads.getThreadAllocatedBytes(tid) - bytesBefore;
+
+        // Allow for the measurement itself; one Instant per call alone would be 2.4 MB
+        assertTrue(allocated < 64 * 1024, "hot path allocated " + allocated + " bytes");
+    }
+
+    @Test
+    void replaceAssertionBuilder_verified_servesTokenFromNewKeyAndSignsWithIt() {
+        AssertionConfig config = googleConfig();
+        JwtAssertionBuilder oldKey = mock(JwtAssertionBuilder.class);
+        JwtAssertionBuilder newKey = mock(JwtAssertionBuilder.class);
+        when(oldKey.buildAssertion(any(TokenRequest.class))).thenReturn("old-assertion");
+        when(newKey.buildAssertion(any(TokenRequest.class))).thenReturn("new-assertion");
+        TokenEndpointClient mockClient = mock(TokenEndpointClient.class);
+        when(mockClient.exchangeAssertion(anyString(), eq("old-assertion")))
+                .thenReturn(new TokenResponse("old-token", Instant.now().plusSeconds(3600)));
+        when(mockClient.exchangeAssertion(anyString(), eq("new-assertion")))
+                .thenAnswer(invocation -> new TokenResponse("new-token", Instant.now().plusSeconds(3600)));
+        CachedTokenProvider provider = new CachedTokenProvider(config, oldKey, mockClient);
+        assertEquals("old-token", provider.getAccessToken());
+
+        provider.replaceAssertionBuilder(newKey, true);
+
+        assertEquals("new-token", provider.getAccessToken());
+        assertEquals("new-token", provider.getAccessToken(
+                TokenRequest.builder().scopes(config.scopes()).subject("alice@example.com").build()));
+        verify(mockClient, times(2)).exchangeAssertion(anyString(), eq("new-assertion"));
+    }
+
+    @Test
+    void replaceAssertionBuilder_rejectedByEndpoint_keepsCurrentKey() {
+        AssertionConfig config = googleConfig();
+        JwtAssertionBuilder oldKey = mock(JwtAssertionBuilder.class);
+        JwtAssertionBuilder newKey = mock(JwtAssertionBuilder.class);
+        when(oldKey.buildAssertion(any(TokenRequest.class))).thenReturn("old-assertion");
+        when(newKey.buildAssertion(any(TokenRequest.class))).thenReturn("new-assertion");
+        TokenEndpointClient mockClient = mock(TokenEndpointClient.class);
+        when(mockClient.exchangeAssertion(anyString(), eq("old-assertion")))
+                .thenAnswer(invocation -> new TokenResponse("old-token", Instant.now().plusSeconds(3600)));
+        when(mockClient.exchangeAssertion(anyString(), eq("new-assertion")))
+                .thenThrow(new OAuthErrorException("rejected", 400, null, "invalid_client", "Unknown key"));
+        CachedTokenProvider provider = new CachedTokenProvider(config, oldKey, mockClient);
+
+        assertThrows(OAuthErrorException.class, () -> provider.replaceAssertionBuilder(newKey, true));
+
+        assertEquals("old-token", provider.getAccessToken());
+        verify(mockClient, times(1)).exchangeAssertion(anyString(), eq("new-assertion"));
+    }
+
+    @Test
+    void replaceAssertionBuilder_circuitOpen_failsFastAndKeepsCurrentKey() {
+        AssertionConfig config = AssertionConfig.builder()
+                .provider(AssertionConfig.Provider.GOOGLE)
+                .clientId("test@project.iam.gserviceaccount.com")
+                .tokenEndpoint("https://oauth2.googleapis.com/token")
+                .scopes(List.of("https://www.googleapis.com/auth/cloud-messaging"))
+                .privateKeyPem(pemKey)
+                .maxRetries(1)
+                .failurePolicy(FailurePolicy.builder()
+                        .initialBackoffMs(0)
+                        .circuitBreakerThreshold(1)
+                        .circuitBreakerOpenMs(60_000)
+                        .negativeCacheMs(0)
+                        .build())
+                .build();
+        JwtAssertionBuilder oldKey = mock(JwtAssertionBuilder.class);
+        JwtAssertionBuilder newKey = mock(JwtAssertionBuilder.class);
+        when(oldKey.buildAssertion(any(TokenRequest.class))).thenReturn("old-assertion");
+        when(newKey.buildAssertion(any(TokenRequest.class))).thenReturn("new-assertion");
+        TokenEndpointClient mockClient = mock(TokenEndpointClient.class);
+        when(mockClient.exchangeAssertion(anyString(), anyString()))
+                .thenThrow(new TokenEndpointException("unavailable", 503, null, null));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CachedTokenProvider provider = new CachedTokenProvider(config, oldKey, mockClient,
+                null, null, new MicrometerTokenMetrics(registry, config.provider(), "google"));
+        assertThrows(TokenUnavailableException.class, provider::getAccessToken);
+        assertEquals(CircuitBreaker.State.OPEN, provider.circuitBreakerState());
+
+        assertThrows(TokenUnavailableException.class, () -> provider.replaceAssertionBuilder(newKey, true));
+
+        verify(mockClient, never()).exchangeAssertion(anyString(), eq("new-assertion"));
+        assertEquals(1.0, registry.find("oauth2.awt.token.attempt.failures").tag("cause", "circuit_open").counter().count(), 0.0);
+        assertEquals(2, registry.find("oauth2.awt.token.refresh").tag("outcome", "failure").timer().count());
+        assertEquals(CircuitBreaker.State.OPEN, provider.circuitBreakerState());
+    }
+
+    private static AssertionConfig googleConfig() {
+        return AssertionConfig.builder()
+                .provider(AssertionConfig.Provider.GOOGLE)
+                .clientId("test@project.iam.gserviceaccount.com")
+                .tokenEndpoint("https://oauth2.googleapis.com/token")
+                .scopes(List.of("https://www.googleapis.com/auth/cloud-messaging"))
+                .privateKeyPem(pemKey)
+                .build();
+    }
+
+    /** In-memory stand-in for a store shared by replicas; each replica holds leases under its own identity. */
+    private static final class SharedTokens {
+        private final Map<TokenRequest, TokenResponse> tokens = new ConcurrentHashMap<>();
+        private final Map<TokenRequest, Object> leases = new ConcurrentHashMap<>();
+
+        TokenStore replica() {
+            Object owner = new Object();
+            return new TokenStore() {
+                @Override
+                public Optional<TokenResponse> load(TokenRequest key) {
+                    return Optional.ofNullable(tokens.get(key));
+                }
+
+                @Override
+                public void save(TokenRequest key, TokenResponse token) {
+                    tokens.put(key, token);
+                }
+
+                @Override
+                public boolean tryAcquireLease(TokenRequest key) {
+                    return leases.putIfAbsent(key, owner) == null || leases.get(key) == owner;
+                }
+
+                @Override
+                public void releaseLease(TokenRequest key) {
+                    leases.remove(key, owner);
+                }
+            };
+        }
+    }
 }
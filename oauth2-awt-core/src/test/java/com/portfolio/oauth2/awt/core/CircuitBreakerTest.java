@@ -0,0 +1,71 @@
+package com.portfolio.oauth2.awt.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    @Test
+    void opensAfterConsecutiveFailures_andRejectsWhileOpen() {
+        CircuitBreaker breaker = new CircuitBreaker(3, Duration.ofMinutes(1));
+
+        breaker.recordFailure(null);
+        breaker.recordFailure(null);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertTrue(breaker.tryAcquire());
+
+        breaker.recordFailure(null);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void successResetsFailureCount() {
+        CircuitBreaker breaker = new CircuitBreaker(2, Duration.ofMinutes(1));
+
+        breaker.recordFailure(null);
+        breaker.recordSuccess();
+        breaker.recordFailure(null);
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void afterOpenDuration_letsOneProbeThrough_andClosesOnSuccess() {
+        CircuitBreaker breaker = new CircuitBreaker(1, Duration.ZERO);
+        breaker.recordFailure(null);
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire(), "only one probe while half-open");
+
+        breaker.recordSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void failedProbe_reopens() {
+        CircuitBreaker breaker = new CircuitBreaker(1, Duration.ZERO);
+        breaker.recordFailure(null);
+        assertTrue(breaker.tryAcquire());
+
+        breaker.recordFailure(Duration.ofMinutes(1));
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void retryAfter_opensImmediatelyForThatLong() {
+        CircuitBreaker breaker = new CircuitBreaker(5, Duration.ofSeconds(1));
+
+        breaker.recordFailure(Duration.ofSeconds(120));
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertTrue(breaker.remainingOpen().compareTo(Duration.ofSeconds(100)) > 0);
+    }
+}
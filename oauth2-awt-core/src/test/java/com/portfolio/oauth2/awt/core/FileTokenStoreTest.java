@@ -0,0 +1,85 @@
+package com.portfolio.oauth2.awt.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileTokenStoreTest {
+
+    private static final byte[] KEY = "key-material".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void save_thenReopen_loadsTokenFromDisk() {
+        Path file = dir.resolve("google.tokens");
+        TokenRequest request = new TokenRequest(List.of("b", "a"), "sub@example.com", "https://aud");
+        TokenResponse token = new TokenResponse("persisted",
+                Instant.now().truncatedTo(ChronoUnit.MILLIS),
+                Instant.now().plusSeconds(3600).truncatedTo(ChronoUnit.MILLIS));
+
+        new FileTokenStore(file, KEY).save(request, token);
+
+        FileTokenStore reopened = new FileTokenStore(file, KEY);
+        TokenRequest sameScopesOtherOrder = new TokenRequest(List.of("a", "b"), "sub@example.com", "https://aud");
+        assertEquals(token, reopened.load(sameScopesOtherOrder).orElseThrow());
+    }
+
+    @Test
+    void save_doesNotWriteTokenInPlaintext() throws Exception {
+        Path file = dir.resolve("google.tokens");
+        new FileTokenStore(file, KEY).save(new TokenRequest(List.of(), "sub", "aud"),
+                new TokenResponse("secret-access-token", Instant.now().plusSeconds(3600)));
+
+        String raw = new String(Files.readAllBytes(file), StandardCharsets.ISO_8859_1);
+        assertFalse(raw.contains("secret-access-token"));
+    }
+
+    @Test
+    void reopen_withDifferentKeyMaterial_startsEmpty() {
+        Path file = dir.resolve("google.tokens");
+        TokenRequest request = new TokenRequest(List.of(), "sub", "aud");
+        new FileTokenStore(file, KEY).save(request, new TokenResponse("persisted", Instant.now().plusSeconds(3600)));
+
+        FileTokenStore rotated = new FileTokenStore(file, "rotated-key".getBytes(StandardCharsets.UTF_8));
+        assertTrue(rotated.load(request).isEmpty());
+    }
+
+    @Test
+    void reopen_dropsExpiredTokens() {
+        Path file = dir.resolve("google.tokens");
+        TokenRequest expired = new TokenRequest(List.of(), "expired", "aud");
+        TokenRequest valid = new TokenRequest(List.of(), "valid", "aud");
+        FileTokenStore store = new FileTokenStore(file, KEY);
+        store.save(valid, new TokenResponse("valid-token", Instant.now().plusSeconds(3600)));
+        store.save(expired, new TokenResponse("expired-token", Instant.now().plusMillis(50)));
+
+        Instant deadline = Instant.now().plusMillis(100);
+        while (Instant.now().isBefore(deadline)) {
+            Thread.onSpinWait();
+        }
+
+        FileTokenStore reopened = new FileTokenStore(file, KEY);
+        assertTrue(reopened.load(expired).isEmpty());
+        assertEquals("valid-token", reopened.load(valid).orElseThrow().accessToken());
+    }
+
+    @Test
+    void missingOrCorruptFile_startsEmpty() throws Exception {
+        Path file = dir.resolve("google.tokens");
+        TokenRequest request = new TokenRequest(List.of(), "sub", "aud");
+        assertTrue(new FileTokenStore(file, KEY).load(request).isEmpty());
+
+        Files.write(file, "not a token store at all".getBytes(StandardCharsets.UTF_8));
+        assertTrue(new FileTokenStore(file, KEY).load(request).isEmpty());
+    }
+}
@@ -0,0 +1,226 @@
+package com.portfolio.oauth2.awt.core;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HedgedExchangeTest {
+
+    private static final String PRIMARY = "https://login.microsoftonline.com/contoso/oauth2/v2.0/token";
+    private static final String ALTERNATE = "https://login.microsoftonline.us/contoso/oauth2/v2.0/token";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final TokenMetrics metrics = new MicrometerTokenMetrics(registry, AssertionConfig.Provider.MICROSOFT, "graph");
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final Queue<String> called = new ConcurrentLinkedQueue<>();
+    private HedgedExchange hedged;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        hedged.close();
+    }
+
+    @Test
+    void fastExchange_isNotHedged() {
+        hedged = new HedgedExchange(policy(1, 200), metrics);
+
+        TokenResponse token = hedged.exchange(PRIMARY, endpoint -> token(endpoint));
+
+        assertEquals(PRIMARY, token.accessToken());
+        assertEquals(List.of(PRIMARY), List.copyOf(called));
+        assertNull(registry.find("oauth2.awt.token.hedge.fired").counter());
+    }
+
+    @Test
+    void slowExchange_isHedgedToAlternateAndHedgeWins() {
+        hedged = new HedgedExchange(policy(1, 50), metrics);
+
+        TokenResponse token = hedged.exchange(PRIMARY, endpoint -> {
+            if (endpoint.equals(PRIMARY)) {
+                await(release);
+            }
+            return token(endpoint);
+        });
+
+        assertEquals(ALTERNATE, token.accessToken());
+        assertEquals(1.0, registry.find("oauth2.awt.token.hedge.fired").tag("client", "graph").counter().count(), 0.0);
+        assertEquals(1.0, registry.find("oauth2.awt.token.hedge.wins").counter().count(), 0.0);
+    }
+
+    @Test
+    void originalAnsweringFirst_winsOverHedge() throws Exception {
+        hedged = new HedgedExchange(policy(1, 20), metrics);
+        CountDownLatch hedgeSent = new CountDownLatch(1);
+
+        TokenResponse token = hedged.exchange(PRIMARY, endpoint -> {
+            if (endpoint.equals(PRIMARY)) {
+                await(hedgeSent);
+            } else {
+                hedgeSent.countDown();
+                await(release);
+            }
+            return token(endpoint);
+        });
+
+        assertEquals(PRIMARY, token.accessToken());
+        assertEquals(1.0, registry.find("oauth2.awt.token.hedge.fired").counter().count(), 0.0);
+        assertNull(registry.find("oauth2.awt.token.hedge.wins").counter());
+    }
+
+    @Test
+    void retryableFailure_waitsForHedgeInFlight() {
+        hedged = new HedgedExchange(policy(1, 20), metrics);
+        CountDownLatch hedgeSent = new CountDownLatch(1);
+
+        TokenResponse token = hedged.exchange(PRIMARY, endpoint -> {
+            if (endpoint.equals(PRIMARY)) {
+                await(hedgeSent);
+                throw new TokenEndpointException("Service unavailable", 503, null, null);
+            }
+            hedgeSent.countDown();
+            sleep(50);
+            return token(endpoint);
+        });
+
+        assertEquals(ALTERNATE, token.accessToken());
+    }
+
+    @Test
+    void definitiveRejection_waitsForHedgeInFlight() {
+        hedged = new HedgedExchange(policy(1, 20), metrics);
+        CountDownLatch hedgeSent = new CountDownLatch(1);
+
+        TokenResponse token = hedged.exchange(PRIMARY, endpoint -> {
+            if (endpoint.equals(PRIMARY)) {
+                await(hedgeSent);
+                throw invalidClient();
+            }
+            hedgeSent.countDown();
+            sleep(50);
+            return token(endpoint);
+        });
+
+        assertEquals(ALTERNATE, token.accessToken());
+    }
+
+    @Test
+    void slowPrimarySucceeding_winsOverRejectedHedge() {
+        hedged = new HedgedExchange(policy(1, 20), metrics);
+        CountDownLatch hedgeRejected = new CountDownLatch(1);
+
+        TokenResponse token = hedged.exchange(PRIMARY, endpoint -> {
+            if (endpoint.equals(PRIMARY)) {
+                await(hedgeRejected);
+                sleep(20);
+                return token(endpoint);
+            }
+            hedgeRejected.countDown();
+            throw invalidClient();
+        });
+
+        assertEquals(PRIMARY, token.accessToken());
+        assertNull(registry.find("oauth2.awt.token.hedge.wins").counter());
+    }
+
+    @Test
+    void definitiveRejection_stopsHedgingAndIsThrownOverRetryableFailure() {
+        hedged = new HedgedExchange(policy(2, 50), metrics);
+        CountDownLatch hedgeSent = new CountDownLatch(1);
+        OAuthErrorException rejected = invalidClient();
+
+        OAuthErrorException ex = assertThrows(OAuthErrorException.class, () -> hedged.exchange(PRIMARY, endpoint -> {
+            called.add(endpoint);
+            if (endpoint.equals(PRIMARY)) {
+                await(hedgeSent);
+                throw rejected;
+            }
+            hedgeSent.countDown();
+            sleep(150);
+            throw new TokenEndpointException("Service unavailable", 503, null, null);
+        }));
+
+        assertSame(rejected, ex);
+        // The primary and the hedge sent before it was rejected; no second hedge after
+        assertEquals(2, called.size());
+    }
+
+    @Test
+    void allRequestsFailing_throwsFirstFailure() {
+        hedged = new HedgedExchange(policy(2, 10), metrics);
+
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> hedged.exchange(PRIMARY, endpoint -> {
+            sleep(40);
+            called.add(endpoint);
+            throw new IllegalStateException("failed at " + endpoint);
+        }));
+
+        assertEquals(3, called.size());
+        assertTrue(ex.getMessage().startsWith("failed at "));
+    }
+
+    @Test
+    void hedgeDelay_followsLatencyPercentileWithinBounds() {
+        hedged = new HedgedExchange(HedgePolicy.builder()
+                .maxHedges(1).delayPercentile(0.9).minDelayMs(5).maxDelayMs(500).build(), metrics);
+
+        // Not enough samples yet: the maximum
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), hedged.hedgeDelayNanos());
+
+        for (int i = 1; i <= 100; i++) {
+            hedged.recordLatency(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(90), hedged.hedgeDelayNanos());
+        assertEquals(0.09, registry.find("oauth2.awt.token.hedge.delay").gauge().value(), 1e-9);
+
+        for (int i = 0; i < 128; i++) {
+            hedged.recordLatency(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(5), hedged.hedgeDelayNanos());
+    }
+
+    private HedgePolicy policy(int maxHedges, long delayMs) {
+        return HedgePolicy.builder()
+                .maxHedges(maxHedges)
+                .minDelayMs(delayMs)
+                .maxDelayMs(delayMs)
+                .alternateEndpoints(List.of(ALTERNATE))
+                .build();
+    }
+
+    private static OAuthErrorException invalidClient() {
+        return new OAuthErrorException("invalid_client", 401, null,
+                "invalid_client", "AADSTS700027: Client assertion contains an invalid signature.");
+    }
+
+    /** A token named after the endpoint that issued it. */
+    private TokenResponse token(String endpoint) {
+        called.add(endpoint);
+        return new TokenResponse(endpoint, Instant.now().plusSeconds(3600));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
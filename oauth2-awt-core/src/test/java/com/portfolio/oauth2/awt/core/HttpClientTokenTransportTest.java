@@ -0,0 +1,84 @@
+package com.portfolio.oauth2.awt.core;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.UncheckedIOException;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpClientTokenTransportTest {
+
+    private WireMockServer server;
+
+    @BeforeEach
+    void setUp() {
+        server = new WireMockServer(options().dynamicPort());
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    void exchangeAssertion_postsEncodedFormAndParsesToken() {
+        server.stubFor(post(urlEqualTo("/token")).willReturn(okJson(
+                "{\"access_token\":\"ya29.token\",\"expires_in\":1800,\"token_type\":\"Bearer\"}")));
+        TokenEndpointClient client = new TokenEndpointClient(new HttpClientTokenTransport(Duration.ofSeconds(5)));
+
+        TokenResponse token = client.exchangeAssertion(server.baseUrl() + "/token", "a.b.c", "api://x/.default");
+
+        assertEquals("ya29.token", token.accessToken());
+        assertEquals(Duration.ofSeconds(1800), Duration.between(token.issuedAt(), token.expiresAt()));
+        server.verify(postRequestedFor(urlEqualTo("/token"))
+                .withHeader("Content-Type", equalTo("application/x-www-form-urlencoded"))
+                .withHeader("Accept", equalTo("application/json"))
+                .withRequestBody(equalTo("grant_type=urn%3Aietf%3Aparams%3Aoauth%3Agrant-type%3Ajwt-bearer"
+                        + "&assertion=a.b.c&scope=api%3A%2F%2Fx%2F.default")));
+    }
+
+    @Test
+    void postForm_errorStatus_returnsStatusRetryAfterAndBody() throws Exception {
+        server.stubFor(post(urlEqualTo("/token")).willReturn(aResponse()
+                .withStatus(503)
+                .withHeader("Retry-After", "3")
+                .withBody("busy")));
+
+        TokenTransport.Response response = new HttpClientTokenTransport(Duration.ofSeconds(5))
+                .postForm(server.baseUrl() + "/token", "grant_type=x");
+
+        assertEquals(503, response.statusCode());
+        assertEquals("3", response.retryAfter());
+        assertEquals("busy", new String(response.body(), StandardCharsets.UTF_8));
+        assertFalse(response.isSuccess());
+    }
+
+    @Test
+    void exchangeAssertion_hungEndpoint_failsAfterRequestTimeout() {
+        server.stubFor(post(urlEqualTo("/token")).willReturn(okJson("{\"access_token\":\"late\"}")
+                .withFixedDelay(5_000)));
+        TokenEndpointClient client = new TokenEndpointClient(new HttpClientTokenTransport(Duration.ofMillis(200)));
+
+        long start = System.nanoTime();
+        UncheckedIOException ex = assertThrows(UncheckedIOException.class,
+                () -> client.exchangeAssertion(server.baseUrl() + "/token", "assertion"));
+
+        assertInstanceOf(HttpTimeoutException.class, ex.getCause());
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(3)) < 0);
+        assertTrue(FailurePolicy.isRetryable(ex));
+    }
+
+    @Test
+    void constructor_rejectsNonPositiveTimeout() {
+        assertThrows(IllegalArgumentException.class, () -> new HttpClientTokenTransport(Duration.ZERO));
+    }
+}
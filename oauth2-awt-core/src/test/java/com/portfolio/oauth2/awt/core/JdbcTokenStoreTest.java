@@ -0,0 +1,127 @@
+package com.portfolio.oauth2.awt.core;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JdbcTokenStoreTest {
+
+    private static final byte[] KEY = "key-material".getBytes(StandardCharsets.UTF_8);
+    private static final TokenRequest REQUEST = new TokenRequest(List.of("scope"), "sub", "aud");
+
+    private JdbcDataSource dataSource;
+
+    @BeforeEach
+    void createTable() throws Exception {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1");
+        try (Connection conn = dataSource.getConnection(); Statement st = conn.createStatement()) {
+            // Same DDL as the app's V3__create_oauth2_token_cache.sql
+            st.execute("""
+                    CREATE TABLE oauth2_token_cache (
+                        cache_key    VARCHAR(64)  NOT NULL,
+                        access_token TEXT         NULL,
+                        issued_at    BIGINT       NULL,
+                        expires_at   BIGINT       NULL,
+                        lease_owner  VARCHAR(36)  NULL,
+                        lease_until  BIGINT       NOT NULL DEFAULT 0,
+                        PRIMARY KEY (cache_key)
+                    )""");
+        }
+    }
+
+    @Test
+    void save_isVisibleToOtherReplica() {
+        JdbcTokenStore replicaA = newStore(Duration.ofSeconds(30));
+        JdbcTokenStore replicaB = newStore(Duration.ofSeconds(30));
+        TokenResponse token = new TokenResponse("shared-token",
+                Instant.now().truncatedTo(ChronoUnit.MILLIS),
+                Instant.now().plusSeconds(3600).truncatedTo(ChronoUnit.MILLIS));
+
+        replicaA.save(REQUEST, token);
+
+        assertEquals(token, replicaB.load(REQUEST).orElseThrow());
+        assertTrue(replicaB.load(new TokenRequest(List.of("other"), "sub", "aud")).isEmpty());
+    }
+
+    @Test
+    void save_overwritesPreviousToken_andStoresItEncrypted() throws Exception {
+        JdbcTokenStore store = newStore(Duration.ofSeconds(30));
+        store.save(REQUEST, new TokenResponse("first-token", Instant.now().plusSeconds(3600)));
+        store.save(REQUEST, new TokenResponse("second-token", Instant.now().plusSeconds(3600)));
+
+        assertEquals("second-token", store.load(REQUEST).orElseThrow().accessToken());
+        try (Connection conn = dataSource.getConnection(); Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT access_token FROM oauth2_token_cache")) {
+            assertTrue(rs.next());
+            assertFalse(rs.getString(1).contains("second-token"));
+            assertFalse(rs.next(), "one row per request");
+        }
+    }
+
+    @Test
+    void load_withDifferentKeyMaterial_returnsEmpty() {
+        newStore(Duration.ofSeconds(30)).save(REQUEST, new TokenResponse("shared-token", Instant.now().plusSeconds(3600)));
+
+        JdbcTokenStore rotated = new JdbcTokenStore(dataSource, "google",
+                "rotated-key".getBytes(StandardCharsets.UTF_8), Duration.ofSeconds(30));
+        assertTrue(rotated.load(REQUEST).isEmpty());
+    }
+
+    @Test
+    void tryAcquireLease_isExclusiveUntilReleased() {
+        JdbcTokenStore replicaA = newStore(Duration.ofSeconds(30));
+        JdbcTokenStore replicaB = newStore(Duration.ofSeconds(30));
+
+        assertTrue(replicaA.tryAcquireLease(REQUEST));
+        assertFalse(replicaB.tryAcquireLease(REQUEST));
+        assertTrue(replicaA.tryAcquireLease(REQUEST), "holder may renew its own lease");
+
+        replicaB.releaseLease(REQUEST);
+        assertFalse(replicaB.tryAcquireLease(REQUEST), "only the holder can release");
+
+        replicaA.releaseLease(REQUEST);
+        assertTrue(replicaB.tryAcquireLease(REQUEST));
+    }
+
+    @Test
+    void tryAcquireLease_afterLeaseRunsOut_succeedsForOtherReplica() throws Exception {
+        JdbcTokenStore crashed = newStore(Duration.ofMillis(50));
+        JdbcTokenStore survivor = newStore(Duration.ofSeconds(30));
+
+        assertTrue(crashed.tryAcquireLease(REQUEST));
+        assertFalse(survivor.tryAcquireLease(REQUEST));
+
+        Thread.sleep(100);
+        assertTrue(survivor.tryAcquireLease(REQUEST));
+    }
+
+    @Test
+    void save_keepsLeaseOfRowCreatedByLease() {
+        JdbcTokenStore replicaA = newStore(Duration.ofSeconds(30));
+        JdbcTokenStore replicaB = newStore(Duration.ofSeconds(30));
+
+        assertTrue(replicaA.tryAcquireLease(REQUEST));
+        assertTrue(replicaA.load(REQUEST).isEmpty());
+        replicaA.save(REQUEST, new TokenResponse("shared-token", Instant.now().plusSeconds(3600)));
+
+        assertFalse(replicaB.tryAcquireLease(REQUEST));
+        assertEquals("shared-token", replicaB.load(REQUEST).orElseThrow().accessToken());
+    }
+
+    private JdbcTokenStore newStore(Duration leaseDuration) {
+        return new JdbcTokenStore(dataSource, "google", KEY, leaseDuration);
+    }
+}
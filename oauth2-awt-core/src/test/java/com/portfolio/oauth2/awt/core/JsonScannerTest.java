@@ -0,0 +1,44 @@
+package com.portfolio.oauth2.awt.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonScannerTest {
+
+    @Test
+    void readStrings_returnsValuesInKeyOrderAndSkipsOthers() {
+        String[] values = JsonScanner.readStrings(bytes("""
+                {
+                  "type": "service_account",
+                  "nested": {"client_email": "not-this-one", "list": [1, "]"]},
+                  "private_key": "line1\\nline2",
+                  "token_uri": null,
+                  "client_email": "sa@project.iam.gserviceaccount.com"
+                }"""), "test JSON",
+                JsonScanner.ascii("client_email"), JsonScanner.ascii("private_key"),
+                JsonScanner.ascii("token_uri"), JsonScanner.ascii("private_key_id"));
+
+        assertArrayEquals(new String[]{"sa@project.iam.gserviceaccount.com", "line1\nline2", null, null}, values);
+    }
+
+    @Test
+    void readStrings_malformed_namesSubject() {
+        IllegalStateException ex = assertThrows(IllegalStateException.class,
+                () -> JsonScanner.readStrings(bytes("{\"a\":\"x\" \"b\":\"y\"}"), "test JSON", JsonScanner.ascii("a")));
+        assertTrue(ex.getMessage().startsWith("Malformed test JSON"), ex.getMessage());
+    }
+
+    @Test
+    void looksLikeJson_checksFirstNonBlankByte() {
+        assertTrue(JsonScanner.looksLikeJson(bytes("  {\"error\":\"x\"}")));
+        assertFalse(JsonScanner.looksLikeJson(bytes("<html>")));
+        assertFalse(JsonScanner.looksLikeJson(new byte[0]));
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,128 @@
+package com.portfolio.oauth2.awt.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RefreshSchedulerTest {
+
+    @Test
+    void schedule_runsRefreshNoEarlierThanJitterAllows() throws Exception {
+        try (RefreshScheduler scheduler = new RefreshScheduler(Duration.ofMillis(10), 64, Duration.ZERO, 1, null)) {
+            CountDownLatch ran = new CountDownLatch(1);
+            long start = System.nanoTime();
+
+            scheduler.schedule("key", Instant.now().plusMillis(200), ran::countDown);
+
+            assertTrue(ran.await(2, TimeUnit.SECONDS));
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(190));
+        }
+    }
+
+    @Test
+    void schedule_beyondOneRotation_waitsForItsRound() throws Exception {
+        // 8 slots of 10 ms: a 250 ms deadline lies three rotations out
+        try (RefreshScheduler scheduler = new RefreshScheduler(Duration.ofMillis(10), 8, Duration.ZERO, 1, null)) {
+            CountDownLatch ran = new CountDownLatch(1);
+            long start = System.nanoTime();
+
+            scheduler.schedule("key", Instant.now().plusMillis(250), ran::countDown);
+
+            assertTrue(ran.await(2, TimeUnit.SECONDS));
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(240));
+        }
+    }
+
+    @Test
+    void cancel_dropsScheduledRefresh() throws Exception {
+        try (RefreshScheduler scheduler = new RefreshScheduler(Duration.ofMillis(10), 64, Duration.ZERO, 1, null)) {
+            AtomicBoolean ran = new AtomicBoolean();
+            CountDownLatch later = new CountDownLatch(1);
+
+            scheduler.schedule("a", Instant.now().plusMillis(50), () -> ran.set(true)).cancel();
+            scheduler.schedule("b", Instant.now().plusMillis(100), later::countDown);
+
+            assertTrue(later.await(2, TimeUnit.SECONDS));
+            assertFalse(ran.get());
+            assertEquals(0, scheduler.pendingCount());
+        }
+    }
+
+    @Test
+    void dueRefreshes_neverExceedPermits() throws Exception {
+        int permits = 3;
+        try (RefreshScheduler scheduler = new RefreshScheduler(Duration.ofMillis(10), 64, Duration.ZERO, permits, null)) {
+            AtomicInteger running = new AtomicInteger();
+            AtomicInteger maxRunning = new AtomicInteger();
+            CountDownLatch done = new CountDownLatch(30);
+            Instant due = Instant.now().plusMillis(50);
+
+            for (int i = 0; i < 30; i++) {
+                scheduler.schedule(i, due, () -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    sleep(20);
+                    running.decrementAndGet();
+                    done.countDown();
+                });
+            }
+
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertEquals(permits, maxRunning.get());
+        }
+    }
+
+    @Test
+    void jitter_isDeterministicPerKeyAndSpreadsKeysAcrossTheWindow() {
+        try (RefreshScheduler scheduler = new RefreshScheduler(Duration.ofMillis(100), 64, Duration.ofSeconds(30), 1, null)) {
+            long delay = TimeUnit.MINUTES.toNanos(45);
+            long window = TimeUnit.SECONDS.toNanos(30);
+            int[] buckets = new int[10];
+
+            for (int i = 0; i < 10_000; i++) {
+                Object key = List.of("https://oauth2.googleapis.com/token", "client-" + i);
+                long jitter = scheduler.jitterNanos(key, delay);
+                assertEquals(jitter, scheduler.jitterNanos(List.of("https://oauth2.googleapis.com/token", "client-" + i), delay));
+                assertTrue(jitter >= 0 && jitter < window);
+                buckets[(int) (jitter * 10 / window)]++;
+            }
+
+            for (int count : buckets) {
+                assertTrue(count > 800 && count < 1200, "uneven jitter spread: " + count);
+            }
+            // Never moves a refresh more than halfway to now
+            assertTrue(scheduler.jitterNanos("key", TimeUnit.SECONDS.toNanos(10)) <= TimeUnit.SECONDS.toNanos(5));
+        }
+    }
+
+    @Test
+    void singleWheelThread_handlesTensOfThousandsOfRefreshes() throws Exception {
+        int count = 50_000;
+        try (RefreshScheduler scheduler = new RefreshScheduler(Duration.ofMillis(10), 512, Duration.ofMillis(200), 8, null)) {
+            CountDownLatch done = new CountDownLatch(count);
+            Instant due = Instant.now().plusMillis(500);
+
+            for (int i = 0; i < count; i++) {
+                scheduler.schedule(i, due, done::countDown);
+            }
+
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            assertEquals(0, scheduler.pendingCount());
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.portfolio.oauth2.awt.core;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestClient;
+
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenEndpointClientTest {
+
+    private WireMockServer server;
+    private TokenEndpointClient client;
+
+    @BeforeEach
+    void setUp() {
+        server = new WireMockServer(options().dynamicPort());
+        server.start();
+        client = new TokenEndpointClient(new RestClientTokenTransport(RestClient.create()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    void exchangeAssertion_success_parsesTokenAndExpiry() {
+        server.stubFor(post(urlEqualTo("/token")).willReturn(okJson(
+                "{\"access_token\":\"ya29.token\",\"expires_in\":1800,\"token_type\":\"Bearer\"}")));
+
+        TokenResponse token = client.exchangeAssertion(server.baseUrl() + "/token", "assertion");
+
+        assertEquals("ya29.token", token.accessToken());
+        assertEquals(Duration.ofSeconds(1800), Duration.between(token.issuedAt(), token.expiresAt()));
+    }
+
+    @Test
+    void exchangeAssertion_expiresInAsString_parsesExpiry() {
+        // Azure AD v1 endpoints send expires_in as a string
+        server.stubFor(post(urlEqualTo("/token")).willReturn(okJson(
+                "{\"token_type\": \"Bearer\", \"expires_in\": \"3599\", \"access_token\": \"eyJ0.token\"}")));
+
+        TokenResponse token = client.exchangeAssertion(server.baseUrl() + "/token", "assertion");
+
+        assertEquals("eyJ0.token", token.accessToken());
+        assertEquals(Duration.ofSeconds(3599), Duration.between(token.issuedAt(), token.expiresAt()));
+    }
+
+    @Test
+    void exchangeAssertion_429WithRetryAfterSeconds_exposesRetryAfter() {
+        server.stubFor(post(urlEqualTo("/token")).willReturn(aResponse()
+                .withStatus(429)
+                .withHeader("Retry-After", "7")));
+
+        TokenEndpointException ex = assertThrows(TokenEndpointException.class,
+                () -> client.exchangeAssertion(server.baseUrl() + "/token", "assertion"));
+
+        assertEquals(429, ex.getStatusCode());
+        assertEquals(Duration.ofSeconds(7), ex.getRetryAfter());
+        assertTrue(ex.isRetryable());
+    }
+
+    @Test
+    void exchangeAssertion_400_isNotRetryable() {
+        server.stubFor(post(urlEqualTo("/token")).willReturn(aResponse()
+                .withStatus(400)
+                .withHeader("Content-Type", "application/json")
+                .withBody("{\"error\":\"invalid_grant\"}")));
+
+        TokenEndpointException ex = assertThrows(TokenEndpointException.class,
+                () -> client.exchangeAssertion(server.baseUrl() + "/token", "assertion"));
+
+        assertEquals(400, ex.getStatusCode());
+        assertNull(ex.getRetryAfter());
+        assertFalse(ex.isRetryable());
+    }
+
+    @Test
+    void exchangeAssertion_oauthErrorBody_throwsTypedException() {
+        server.stubFor(post(urlEqualTo("/token")).willReturn(aResponse()
+                .withStatus(400)
+                .withHeader("Content-Type", "application/json")
+                .withBody("{\"error\":\"invalid_grant\",\"error_description\":\"Invalid JWT Signature.\"}")));
+
+        OAuthErrorException ex = assertThrows(OAuthErrorException.class,
+                () -> client.exchangeAssertion(server.baseUrl() + "/token", "assertion"));
+
+        assertEquals("invalid_grant", ex.getError());
+        assertEquals("Invalid JWT Signature.", ex.getErrorDescription());
+        assertFalse(FailurePolicy.isRetryable(ex));
+    }
+
+    @Test
+    void exchangeAssertion_temporarilyUnavailable_isRetryableEvenAs400() {
+        server.stubFor(post(urlEqualTo("/token")).willReturn(aResponse()
+                .withStatus(400)
+                .withHeader("Content-Type", "application/json")
+                .withBody("{\"error\":\"temporarily_unavailable\",\"error_codes\":[50196]}")));
+
+        OAuthErrorException ex = assertThrows(OAuthErrorException.class,
+                () -> client.exchangeAssertion(server.baseUrl() + "/token", "assertion"));
+
+        assertTrue(FailurePolicy.isRetryable(ex));
+    }
+
+    @Test
+    void exchangeAssertion_htmlErrorPage_throwsStatusOnlyException() {
+        server.stubFor(post(urlEqualTo("/token")).willReturn(aResponse()
+                .withStatus(502)
+                .withBody("<html>Bad Gateway</html>")));
+
+        TokenEndpointException ex = assertThrows(TokenEndpointException.class,
+                () -> client.exchangeAssertion(server.baseUrl() + "/token", "assertion"));
+
+        assertFalse(ex instanceof OAuthErrorException);
+        assertTrue(ex.isRetryable());
+    }
+
+    @Test
+    void parseRetryAfter_acceptsHttpDate() {
+        String inTwoMinutes = DateTimeFormatter.RFC_1123_DATE_TIME
+                .format(ZonedDateTime.now(ZoneOffset.UTC).plusMinutes(2));
+
+        Duration retryAfter = TokenEndpointClient.parseRetryAfter(inTwoMinutes);
+
+        assertTrue(retryAfter.compareTo(Duration.ofSeconds(100)) > 0);
+        assertTrue(retryAfter.compareTo(Duration.ofSeconds(121)) < 0);
+    }
+
+    @Test
+    void parseRetryAfter_malformed_returnsNull() {
+        assertNull(TokenEndpointClient.parseRetryAfter("soon"));
+        assertNull(TokenEndpointClient.parseRetryAfter(null));
+    }
+
+    @Test
+    void exchangeAssertion_recordsExchangeTimerTaggedWithStatus() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        TokenEndpointClient instrumented = new TokenEndpointClient(new RestClientTokenTransport(RestClient.create()),
+                new MicrometerTokenMetrics(registry, AssertionConfig.Provider.GOOGLE, "google"));
+        server.stubFor(post(urlEqualTo("/token")).willReturn(okJson("{\"access_token\":\"ya29.token\"}")));
+        server.stubFor(post(urlEqualTo("/limited")).willReturn(aResponse().withStatus(429)));
+
+        instrumented.exchangeAssertion(server.baseUrl() + "/token", "assertion");
+        assertThrows(TokenEndpointException.class,
+                () -> instrumented.exchangeAssertion(server.baseUrl() + "/limited", "assertion"));
+
+        assertEquals(1, registry.find("oauth2.awt.token.exchange").tags("status", "2xx", "client", "google").timer().count());
+        assertEquals(1, registry.find("oauth2.awt.token.exchange").tag("status", "429").timer().count());
+    }
+}
@@ -0,0 +1,87 @@
+package com.portfolio.oauth2.awt.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenResponseParserTest {
+
+    @Test
+    void parse_googleResponse_readsTokenFields() {
+        TokenResponseParser.Fields fields = parse(
+                "{\"access_token\":\"ya29.c.b0Aa\",\"expires_in\":3599,\"token_type\":\"Bearer\"}");
+
+        assertEquals("ya29.c.b0Aa", fields.accessToken());
+        assertEquals(3599, fields.expiresIn());
+        assertEquals("Bearer", fields.tokenType());
+        assertEquals(-1, fields.extExpiresIn());
+        assertNull(fields.error());
+    }
+
+    @Test
+    void parse_microsoftResponse_readsExtExpiresInAndSkipsOtherFields() {
+        TokenResponseParser.Fields fields = parse("""
+                {
+                  "token_type": "Bearer",
+                  "expires_in": "3599",
+                  "ext_expires_in": 7199,
+                  "scope": "https://graph.microsoft.com/.default",
+                  "claims": {"nested": ["a", {"access_token": "not-this-one"}], "x": "}]"},
+                  "not_before": 1.7e9,
+                  "refreshable": true,
+                  "id_token": null,
+                  "access_token": "eyJ0eXAi.payload.sig"
+                }""");
+
+        assertEquals("eyJ0eXAi.payload.sig", fields.accessToken());
+        assertEquals(3599, fields.expiresIn());
+        assertEquals(7199, fields.extExpiresIn());
+    }
+
+    @Test
+    void parse_errorBody_readsErrorAndUnescapedDescription() {
+        TokenResponseParser.Fields fields = parse("{\"error\":\"invalid_grant\","
+                + "\"error_description\":\"AADSTS700027: \\\"kid\\\" \\u00e9\\nline\",\"error_codes\":[700027],"
+                + "\"trace_id\":\"5f1c\"}");
+
+        assertNull(fields.accessToken());
+        assertEquals("invalid_grant", fields.error());
+        assertEquals("AADSTS700027: \"kid\" é\nline", fields.errorDescription());
+    }
+
+    @Test
+    void parse_keepsNonAsciiTokenBytes() {
+        assertEquals("töken", parse("{\"access_token\":\"töken\"}").accessToken());
+    }
+
+    @Test
+    void parse_notAnObject_throws() {
+        assertThrows(IllegalStateException.class, () -> parse("<html>502 Bad Gateway</html>"));
+        assertThrows(IllegalStateException.class, () -> parse("{\"access_token\":\"unterminated"));
+        assertThrows(IllegalStateException.class, () -> parse("{\"expires_in\":\"soon\"}"));
+    }
+
+    @Test
+    void parse_invalidUnicodeEscape_throwsMalformed() {
+        IllegalStateException ex = assertThrows(IllegalStateException.class,
+                () -> parse("{\"error\":\"invalid_client\",\"error_description\":\"bad \\u00zz escape\"}"));
+        assertTrue(ex.getMessage().contains("invalid \\u escape"), ex.getMessage());
+        assertThrows(IllegalStateException.class, () -> parse("{\"error\":\"\\u+041\"}"));
+    }
+
+    @Test
+    void parse_quotedNumberWithTrailingCharacters_throws() {
+        assertThrows(IllegalStateException.class, () -> parse("{\"expires_in\":\"3600abc\"}"));
+        assertThrows(IllegalStateException.class, () -> parse("{\"ext_expires_in\":\"3600 \"}"));
+    }
+
+    private static TokenResponseParser.Fields parse(String json) {
+        return TokenResponseParser.parse(bytes(json));
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,138 @@
+package com.portfolio.oauth2.awt.sidecar;
+
+import com.portfolio.oauth2.awt.core.AssertionConfig;
+import com.portfolio.oauth2.awt.core.ServiceAccountCredentials;
+import com.portfolio.oauth2.awt.core.SigningAlgorithm;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+
+/**
+ * Sidecar settings from a properties file, with the client keys named like the starter's
+ * {@code oauth2.awt.clients.<name>.*}:
+ * <pre>
+ * listen.socket=/run/oauth2-awt/token.sock
+ * # optional, loopback only
+ * listen.port=8977
+ * refresh.max-concurrent=4
+ * clients.fcm.provider=google
+ * clients.fcm.service-account-key-path=/secrets/fcm.json
+ * clients.fcm.scopes=https://www.googleapis.com/auth/cloud-messaging
+ * clients.graph.provider=microsoft
+ * clients.graph.client-id=...
+ * clients.graph.tenant-id=...
+ * clients.graph.private-key-pem-path=/secrets/graph.pem
+ * clients.graph.key-id=...
+ * clients.graph.scopes=https://graph.microsoft.com/.default
+ * </pre>
+ * Per client, {@code token-endpoint}, {@code signing-algorithm} (Microsoft) and
+ * {@code refresh-ahead-ratio} (default 0.75) are optional.
+ *
+ * @param socket  Unix domain socket to listen on, or {@code null}
+ * @param port    loopback TCP port to listen on, or 0 for none
+ * @param clients assertion configs by client name, keys already loaded
+ */
+public record SidecarConfig(
+        Path socket,
+        int port,
+        int maxConcurrentRefreshes,
+        Map<String, AssertionConfig> clients
+) {
+    private static final String GOOGLE_TOKEN_ENDPOINT = "https://oauth2.googleapis.com/token";
+    private static final String MICROSOFT_TOKEN_ENDPOINT = "https://login.microsoftonline.com/{tenant}/oauth2/v2.0/token";
+
+    public static SidecarConfig load(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            properties.load(reader);
+        }
+        return from(properties);
+    }
+
+    /**
+     * @throws IllegalArgumentException for a missing or unknown setting
+     * @throws IOException              if a key file cannot be read
+     */
+    public static SidecarConfig from(Properties properties) throws IOException {
+        String socket = trimmed(properties, "listen.socket");
+        int port = Integer.parseInt(properties.getProperty("listen.port", "0").trim());
+        if (socket == null && port == 0) {
+            throw new IllegalArgumentException("Set listen.socket, listen.port or both");
+        }
+        int maxConcurrent = Integer.parseInt(properties.getProperty("refresh.max-concurrent", "4").trim());
+
+        TreeSet<String> names = new TreeSet<>();
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith("clients.") && key.indexOf('.', "clients.".length()) > 0) {
+                names.add(key.substring("clients.".length(), key.indexOf('.', "clients.".length())));
+            }
+        }
+        if (names.isEmpty()) {
+            throw new IllegalArgumentException("No clients.<name>.* configured");
+        }
+        Map<String, AssertionConfig> clients = new LinkedHashMap<>();
+        for (String name : names) {
+            clients.put(name, client(properties, name));
+        }
+        return new SidecarConfig(socket != null ? Paths.get(socket) : null, port, maxConcurrent, clients);
+    }
+
+    private static AssertionConfig client(Properties properties, String name) throws IOException {
+        String prefix = "clients." + name + ".";
+        String provider = required(properties, prefix + "provider");
+        String tokenEndpoint = trimmed(properties, prefix + "token-endpoint");
+        AssertionConfig.Builder builder = AssertionConfig.builder()
+                .scopes(scopes(properties, prefix + "scopes"))
+                .refreshAheadRatio(Double.parseDouble(properties.getProperty(prefix + "refresh-ahead-ratio", "0.75").trim()));
+
+        switch (provider.toLowerCase()) {
+            case "google" -> {
+                ServiceAccountCredentials credentials = ServiceAccountCredentials.load(
+                        Paths.get(required(properties, prefix + "service-account-key-path")));
+                credentials.applyTo(builder)
+                        .provider(AssertionConfig.Provider.GOOGLE)
+                        .tokenEndpoint(tokenEndpoint != null ? tokenEndpoint
+                                : credentials.tokenUri() != null ? credentials.tokenUri() : GOOGLE_TOKEN_ENDPOINT);
+            }
+            case "microsoft" -> {
+                String endpoint = tokenEndpoint != null ? tokenEndpoint : MICROSOFT_TOKEN_ENDPOINT;
+                String algorithm = trimmed(properties, prefix + "signing-algorithm");
+                builder.provider(AssertionConfig.Provider.MICROSOFT)
+                        .clientId(required(properties, prefix + "client-id"))
+                        .tokenEndpoint(endpoint.replace("{tenant}", required(properties, prefix + "tenant-id")))
+                        .privateKeyPem(Files.readString(Paths.get(required(properties, prefix + "private-key-pem-path"))))
+                        .keyId(trimmed(properties, prefix + "key-id"))
+                        .signingAlgorithm(algorithm != null ? SigningAlgorithm.valueOf(algorithm) : SigningAlgorithm.RS256);
+            }
+            default -> throw new IllegalArgumentException(prefix + "provider must be google or microsoft, was " + provider);
+        }
+        return builder.build();
+    }
+
+    private static List<String> scopes(Properties properties, String key) {
+        String value = required(properties, key);
+        return Arrays.stream(value.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+    }
+
+    private static String required(Properties properties, String key) {
+        String value = trimmed(properties, key);
+        if (value == null) {
+            throw new IllegalArgumentException(key + " is required");
+        }
+        return value;
+    }
+
+    private static String trimmed(Properties properties, String key) {
+        String value = properties.getProperty(key);
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+}
@@ -0,0 +1,158 @@
+package com.portfolio.oauth2.awt.sidecar;
+
+import com.portfolio.oauth2.awt.core.TokenEndpointClient;
+import com.portfolio.oauth2.awt.core.TokenEndpointException;
+import com.portfolio.oauth2.awt.core.TokenResponse;
+import com.portfolio.oauth2.awt.core.TokenSource;
+import com.portfolio.oauth2.awt.core.TokenTransport;
+import com.portfolio.oauth2.awt.core.TokenUnavailableException;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
+
+/**
+ * {@link TokenSource} backed by a {@link TokenVendingServer} on this host's Unix domain socket.
+ * <p>
+ * Keeps one connection open and reconnects once when it has gone away, e.g. after a sidecar
+ * restart. The last token is reused until {@code skew} before it expires, so most calls never
+ * leave the process; the sidecar's own refresh-ahead keeps what it returns well clear of expiry.
+ * Sidecar errors surface as the same exceptions {@code AssertionTokenClient} throws.
+ */
+public class SidecarTokenSource implements TokenSource, AutoCloseable {
+
+    private static final Duration DEFAULT_SKEW = Duration.ofSeconds(30);
+
+    private final Path socket;
+    private final String endpoint;
+    private final byte[] request;
+    private final Duration skew;
+    private SocketChannel channel;
+    private InputStream in;
+    private OutputStream out;
+    private TokenResponse cached;
+
+    public SidecarTokenSource(Path socket, String client) {
+        this(socket, client, DEFAULT_SKEW);
+    }
+
+    /** @param skew how long before expiry a locally cached token is fetched again */
+    public SidecarTokenSource(Path socket, String client, Duration skew) {
+        this.socket = socket;
+        this.endpoint = "unix:" + socket + "/v1/clients/" + client + "/token";
+        this.request = ("GET /v1/clients/" + client + "/token HTTP/1.1\r\n"
+                + "Host: localhost\r\n"
+                + TokenVendingServer.FLAVOR_HEADER + ": " + TokenVendingServer.FLAVOR + "\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII);
+        this.skew = skew;
+    }
+
+    @Override
+    public String getAccessToken() {
+        return getToken().accessToken();
+    }
+
+    /**
+     * @throws TokenUnavailableException if the sidecar cannot be reached
+     * @throws TokenEndpointException    if the sidecar answered with an error
+     */
+    public synchronized TokenResponse getToken() {
+        if (cached != null && Instant.now().isBefore(cached.expiresAt().minus(skew))) {
+            return cached;
+        }
+        TokenTransport.Response response;
+        try {
+            response = exchange();
+        } catch (IOException first) {
+            disconnect();
+            try {
+                response = exchange();
+            } catch (IOException ex) {
+                disconnect();
+                ex.addSuppressed(first);
+                throw new TokenUnavailableException("Token sidecar at " + socket + " unreachable", ex);
+            }
+        }
+        cached = TokenEndpointClient.readResponse(endpoint, response);
+        return cached;
+    }
+
+    @Override
+    public synchronized void close() {
+        disconnect();
+    }
+
+    private TokenTransport.Response exchange() throws IOException {
+        if (channel == null) {
+            channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+            channel.connect(UnixDomainSocketAddress.of(socket));
+            in = new BufferedInputStream(Channels.newInputStream(channel));
+            out = Channels.newOutputStream(channel);
+        }
+        out.write(request);
+        out.flush();
+
+        String statusLine = readLine(in);
+        String[] parts = statusLine.split(" ", 3);
+        if (parts.length < 2) {
+            throw new IOException("Malformed status line from sidecar: " + statusLine);
+        }
+        int status = Integer.parseInt(parts[1]);
+        String retryAfter = null;
+        int contentLength = -1;
+        String line;
+        while (!(line = readLine(in)).isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            String name = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+            if (name.equals("content-length")) {
+                contentLength = Integer.parseInt(value);
+            } else if (name.equals("retry-after")) {
+                retryAfter = value;
+            }
+        }
+        if (contentLength < 0) {
+            throw new IOException("Sidecar response without Content-Length");
+        }
+        return new TokenTransport.Response(status, retryAfter, in.readNBytes(contentLength));
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b == -1) {
+                throw new IOException("Sidecar closed the connection");
+            }
+            line.append((char) b);
+        }
+        int end = line.length();
+        return end > 0 && line.charAt(end - 1) == '\r' ? line.substring(0, end - 1) : line.toString();
+    }
+
+    private void disconnect() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Nothing left to release
+            }
+        }
+        channel = null;
+        in = null;
+        out = null;
+    }
+}
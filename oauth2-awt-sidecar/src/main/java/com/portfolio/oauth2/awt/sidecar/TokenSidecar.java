@@ -0,0 +1,59 @@
+package com.portfolio.oauth2.awt.sidecar;
+
+import com.portfolio.oauth2.awt.core.AssertionConfig;
+import com.portfolio.oauth2.awt.core.AssertionTokenClient;
+import com.portfolio.oauth2.awt.core.RefreshScheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Runs a {@link TokenVendingServer} for the clients in a {@link SidecarConfig} file:
+ * <pre>
+ * java -jar oauth2-awt-sidecar.jar /etc/oauth2-awt/sidecar.properties
+ * </pre>
+ * The clients share one {@link RefreshScheduler}, so the host renews every token ahead of expiry
+ * on one schedule. Stops on SIGTERM, removing the socket file.
+ */
+public final class TokenSidecar {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenSidecar.class);
+
+    private TokenSidecar() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1) {
+            System.err.println("Usage: TokenSidecar <sidecar.properties>");
+            System.exit(2);
+        }
+        SidecarConfig config = SidecarConfig.load(Paths.get(args[0]));
+        RefreshScheduler scheduler = new RefreshScheduler(config.maxConcurrentRefreshes());
+        Map<String, AssertionTokenClient> clients = new LinkedHashMap<>();
+        for (Map.Entry<String, AssertionConfig> entry : config.clients().entrySet()) {
+            clients.put(entry.getKey(), AssertionTokenClient.builder(entry.getValue())
+                    .refreshScheduler(scheduler)
+                    .name(entry.getKey())
+                    .build());
+        }
+        TokenVendingServer server = new TokenVendingServer(clients, config.socket(), config.port());
+
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch (IOException ex) {
+                log.warn("Failed to close token sidecar: {}", ex.getMessage());
+            }
+            clients.values().forEach(AssertionTokenClient::close);
+            scheduler.close();
+            stopped.countDown();
+        }, "oauth2-awt-sidecar-shutdown"));
+        stopped.await();
+    }
+}
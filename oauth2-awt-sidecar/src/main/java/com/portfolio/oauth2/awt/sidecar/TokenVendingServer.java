@@ -0,0 +1,287 @@
+package com.portfolio.oauth2.awt.sidecar;
+
+import com.portfolio.oauth2.awt.core.AssertionTokenClient;
+import com.portfolio.oauth2.awt.core.OAuthErrorException;
+import com.portfolio.oauth2.awt.core.TokenResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves the tokens of a set of {@link AssertionTokenClient}s to other processes on the host,
+ * like a cloud metadata server:
+ * <pre>
+ * GET /v1/clients/{name}/token
+ * Metadata-Flavor: oauth2-awt
+ *
+ * 200 {"access_token":"...","expires_in":2841,"token_type":"Bearer"}
+ * </pre>
+ * {@code expires_in} is what is left of the cached token's lifetime. Every process on the host
+ * thus shares one cache, one refresh-ahead schedule and one set of token endpoint calls. A cache
+ * hit costs one local round trip; errors come back as OAuth error bodies.
+ * <p>
+ * Listens on a Unix domain socket (mode 0660, so access follows the socket's group), on a
+ * loopback TCP port, or both. The {@code Metadata-Flavor} header is required so that a browser
+ * or a server-side request forgery cannot fetch tokens through the TCP port. Connections are
+ * kept alive and each is served by its own thread; clients are local and few.
+ */
+public class TokenVendingServer implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenVendingServer.class);
+
+    static final String FLAVOR_HEADER = "Metadata-Flavor";
+    static final String FLAVOR = "oauth2-awt";
+    private static final String TOKEN_PATH_PREFIX = "/v1/clients/";
+    private static final String TOKEN_PATH_SUFFIX = "/token";
+    private static final int MAX_HEAD_BYTES = 8192;
+
+    private final Map<String, AssertionTokenClient> clients;
+    private final List<ServerSocketChannel> listeners = new ArrayList<>();
+    private final ExecutorService threads;
+    private final Path socket;
+    private volatile boolean closed;
+
+    /**
+     * Starts listening right away.
+     *
+     * @param socket Unix domain socket path, or {@code null}; a stale file there is replaced
+     * @param port   loopback TCP port, 0 for none
+     */
+    public TokenVendingServer(Map<String, AssertionTokenClient> clients, Path socket, int port) throws IOException {
+        this.clients = Map.copyOf(clients);
+        this.socket = socket;
+        AtomicInteger count = new AtomicInteger();
+        this.threads = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "oauth2-awt-sidecar-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            if (socket != null) {
+                Files.deleteIfExists(socket);
+                ServerSocketChannel unix = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+                unix.bind(UnixDomainSocketAddress.of(socket));
+                Files.setPosixFilePermissions(socket, PosixFilePermissions.fromString("rw-rw----"));
+                listen(unix);
+                log.info("Vending tokens for {} on {}", this.clients.keySet(), socket);
+            }
+            if (port > 0) {
+                ServerSocketChannel tcp = ServerSocketChannel.open();
+                tcp.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+                listen(tcp);
+                log.info("Vending tokens for {} on {}", this.clients.keySet(), tcp.getLocalAddress());
+            }
+        } catch (IOException | RuntimeException ex) {
+            close();
+            throw ex;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        for (ServerSocketChannel listener : listeners) {
+            listener.close();
+        }
+        threads.shutdownNow();
+        if (socket != null) {
+            Files.deleteIfExists(socket);
+        }
+    }
+
+    private void listen(ServerSocketChannel listener) {
+        listeners.add(listener);
+        threads.execute(() -> {
+            while (!closed) {
+                try {
+                    SocketChannel connection = listener.accept();
+                    threads.execute(() -> serve(connection));
+                } catch (AsynchronousCloseException ex) {
+                    return;
+                } catch (IOException ex) {
+                    log.warn("Accept failed: {}", ex.getMessage());
+                }
+            }
+        });
+    }
+
+    private void serve(SocketChannel connection) {
+        try (connection) {
+            InputStream in = new BufferedInputStream(Channels.newInputStream(connection));
+            OutputStream out = Channels.newOutputStream(connection);
+            while (!closed) {
+                Request request = Request.read(in);
+                if (request == null) {
+                    return;
+                }
+                respond(out, request);
+                if (!request.keepAlive()) {
+                    return;
+                }
+            }
+        } catch (IOException ex) {
+            log.debug("Connection closed: {}", ex.getMessage());
+        }
+    }
+
+    private void respond(OutputStream out, Request request) throws IOException {
+        if (!"GET".equals(request.method())) {
+            write(out, 405, error("invalid_request", "Only GET is supported"));
+        } else if ("/healthz".equals(request.path())) {
+            write(out, 200, "{\"status\":\"UP\"}");
+        } else if (!FLAVOR.equals(request.flavor())) {
+            write(out, 403, error("invalid_request", "Missing header " + FLAVOR_HEADER + ": " + FLAVOR));
+        } else if (request.path().startsWith(TOKEN_PATH_PREFIX) && request.path().endsWith(TOKEN_PATH_SUFFIX)) {
+            String name = request.path().substring(TOKEN_PATH_PREFIX.length(),
+                    request.path().length() - TOKEN_PATH_SUFFIX.length());
+            AssertionTokenClient client = clients.get(name);
+            if (client == null) {
+                write(out, 404, error("invalid_client", "No client named " + name));
+            } else {
+                vend(out, client);
+            }
+        } else {
+            write(out, 404, error("invalid_request", "Unknown path " + request.path()));
+        }
+    }
+
+    private static void vend(OutputStream out, AssertionTokenClient client) throws IOException {
+        TokenResponse token;
+        try {
+            token = client.getToken();
+        } catch (OAuthErrorException ex) {
+            // Definitive errors (a rejected key) pass through; transient ones ask the caller to come back
+            write(out, ex.isRetryable() ? 503 : 502, error(ex.getError(), ex.getErrorDescription()));
+            return;
+        } catch (RuntimeException ex) {
+            write(out, 503, error("temporarily_unavailable", ex.getMessage()));
+            return;
+        }
+        long expiresIn = Math.max(0, Duration.between(Instant.now(), token.expiresAt()).getSeconds());
+        write(out, 200, "{\"access_token\":\"" + escape(token.accessToken()) + "\",\"expires_in\":" + expiresIn
+                + ",\"token_type\":\"Bearer\"}");
+    }
+
+    private static void write(OutputStream out, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        String head = "HTTP/1.1 " + status + " " + reason(status) + "\r\n"
+                + "Content-Type: application/json\r\n"
+                + "Cache-Control: no-store\r\n"
+                + "Content-Length: " + body.length + "\r\n\r\n";
+        out.write(head.getBytes(StandardCharsets.US_ASCII));
+        out.write(body);
+        out.flush();
+    }
+
+    private static String error(String error, String description) {
+        return "{\"error\":\"" + escape(error) + "\""
+                + (description != null ? ",\"error_description\":\"" + escape(description) + "\"" : "") + "}";
+    }
+
+    private static String escape(String value) {
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String reason(int status) {
+        return switch (status) {
+            case 200 -> "OK";
+            case 403 -> "Forbidden";
+            case 404 -> "Not Found";
+            case 405 -> "Method Not Allowed";
+            case 502 -> "Bad Gateway";
+            default -> "Service Unavailable";
+        };
+    }
+
+    /** The parts of an HTTP/1.1 request head the server looks at; any body is skipped. */
+    private record Request(String method, String path, String flavor, boolean keepAlive) {
+
+        /** Returns {@code null} once the client has closed the connection between requests. */
+        static Request read(InputStream in) throws IOException {
+            String requestLine = readLine(in);
+            if (requestLine == null) {
+                return null;
+            }
+            String[] parts = requestLine.split(" ");
+            if (parts.length != 3) {
+                throw new IOException("Malformed request line: " + requestLine);
+            }
+            String flavor = null;
+            boolean keepAlive = !"HTTP/1.0".equals(parts[2]);
+            long contentLength = 0;
+            String line;
+            while ((line = readLine(in)) != null && !line.isEmpty()) {
+                int colon = line.indexOf(':');
+                if (colon <= 0) {
+                    continue;
+                }
+                String name = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+                String value = line.substring(colon + 1).trim();
+                switch (name) {
+                    case "metadata-flavor" -> flavor = value;
+                    case "connection" -> keepAlive = !"close".equalsIgnoreCase(value);
+                    case "content-length" -> contentLength = Long.parseLong(value);
+                    default -> { }
+                }
+            }
+            in.skipNBytes(contentLength);
+            int query = parts[1].indexOf('?');
+            return new Request(parts[0], query >= 0 ? parts[1].substring(0, query) : parts[1], flavor, keepAlive);
+        }
+
+        private static String readLine(InputStream in) throws IOException {
+            StringBuilder line = new StringBuilder();
+            int b;
+            while ((b = in.read()) != -1) {
+                if (b == '\n') {
+                    int end = line.length();
+                    return end > 0 && line.charAt(end - 1) == '\r' ? line.substring(0, end - 1) : line.toString();
+                }
+                if (line.length() >= MAX_HEAD_BYTES) {
+                    throw new IOException("Request head too large");
+                }
+                line.append((char) b);
+            }
+            if (line.length() > 0) {
+                throw new IOException("Connection closed mid-request");
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.portfolio.oauth2.awt.starter;
+
+import com.portfolio.oauth2.awt.core.AssertionTokenClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Named {@link AssertionTokenClient}s from {@code oauth2.awt.clients.<name>.*} (plus the
+ * {@code google} and {@code microsoft} shorthands).
+ * <p>
+ * A client is built on its first {@link #get(String)}: key files of clients that are never used
+ * are not read or parsed at startup. A failed build is not remembered, so the next call retries
+ * it, e.g. once a missing key file has been mounted.
+ */
+public class AssertionTokenClientRegistry implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(AssertionTokenClientRegistry.class);
+
+    private final Map<String, ClientFactory> factories;
+    private final ConcurrentMap<String, AssertionTokenClient> clients = new ConcurrentHashMap<>();
+
+    public AssertionTokenClientRegistry(Map<String, ClientFactory> factories) {
+        this.factories = new LinkedHashMap<>(factories);
+    }
+
+    /**
+     * Returns the client called {@code name}, building it first if needed. Concurrent first calls
+     * build it once.
+     *
+     * @throws IllegalArgumentException if no client has that name
+     * @throws IllegalStateException    if the client cannot be built, e.g. its key file is unreadable
+     */
+    public AssertionTokenClient get(String name) {
+        AssertionTokenClient client = clients.get(name);
+        if (client != null) {
+            return client;
+        }
+        ClientFactory factory = factories.get(name);
+        if (factory == null) {
+            throw new IllegalArgumentException("No oauth2.awt client named '" + name + "', configured: " + names());
+        }
+        return clients.computeIfAbsent(name, n -> create(n, factory));
+    }
+
+    /** Names of all configured clients, built or not, in configuration order. */
+    public Set<String> names() {
+        return factories.keySet();
+    }
+
+    /** Whether {@code name} has been built by an earlier {@link #get(String)}. */
+    public boolean isInitialized(String name) {
+        return clients.containsKey(name);
+    }
+
+    /** Closes the clients built so far. */
+    @Override
+    public void close() {
+        clients.values().forEach(AssertionTokenClient::close);
+    }
+
+    private static AssertionTokenClient create(String name, ClientFactory factory) {
+        try {
+            AssertionTokenClient client = factory.create();
+            log.info("Initialized oauth2.awt client '{}'", name);
+            return client;
+        } catch (Exception ex) {
+            throw new IllegalStateException("Failed to initialize oauth2.awt client '" + name + "'", ex);
+        }
+    }
+
+    /** Builds one client; may read key files. */
+    @FunctionalInterface
+    public interface ClientFactory {
+        AssertionTokenClient create() throws Exception;
+    }
+}
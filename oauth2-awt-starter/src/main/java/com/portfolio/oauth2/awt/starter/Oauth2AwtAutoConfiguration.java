@@ -2,93 +2,247 @@ package com.portfolio.oauth2.awt.starter;
 
 import com.portfolio.oauth2.awt.core.AssertionConfig;
 import com.portfolio.oauth2.awt.core.AssertionTokenClient;
+import com.portfolio.oauth2.awt.core.FileTokenStore;
+import com.portfolio.oauth2.awt.core.HedgePolicy;
+import com.portfolio.oauth2.awt.core.JdbcTokenStore;
+import com.portfolio.oauth2.awt.core.RefreshScheduler;
+import com.portfolio.oauth2.awt.core.ServiceAccountCredentials;
+import com.portfolio.oauth2.awt.core.SigningAlgorithm;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
 
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
-@AutoConfiguration
+@AutoConfiguration(afterName = "org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration")
 @EnableConfigurationProperties(Oauth2AwtProperties.class)
 public class Oauth2AwtAutoConfiguration {
 
     private static final Logger log = LoggerFactory.getLogger(Oauth2AwtAutoConfiguration.class);
 
-    @Bean(name = "googleAssertionTokenClient")
-    @ConditionalOnExpression("'${oauth2.awt.google.service-account-key-path:}' != ''")
-    public AssertionTokenClient googleAssertionTokenClient(Oauth2AwtProperties props) throws Exception {
+    /**
+     * All configured clients: {@code oauth2.awt.clients.*} plus {@code google} and
+     * {@code microsoft} when their shorthand properties are set. Each is built on first use.
+     */
+    @Bean
+    public AssertionTokenClientRegistry assertionTokenClientRegistry(Oauth2AwtProperties props,
+                                                                     RefreshScheduler refreshScheduler,
+                                                                     ObjectProvider<DataSource> dataSource,
+                                                                     ObjectProvider<MeterRegistry> meterRegistry,
+                                                                     ObjectProvider<SigningKeyWatcher> keyWatcher) {
+        Map<String, Oauth2AwtProperties.Client> definitions = new LinkedHashMap<>();
         Oauth2AwtProperties.Google google = props.google();
-        String pemContent = readServiceAccountKeyAsPem(google.serviceAccountKeyPath());
-
-        AssertionConfig config = AssertionConfig.builder()
-                .provider(AssertionConfig.Provider.GOOGLE)
-                .clientId(extractClientEmail(google.serviceAccountKeyPath()))
-                .tokenEndpoint(google.tokenEndpoint())
-                .scopes(google.scopes())
-                .privateKeyPem(pemContent)
-                .clockSkewSeconds(60)
-                .tokenExpirySeconds(3600)
-                .maxRetries(3)
-                .timeoutMs(10_000)
-                .build();
-
-        log.info("Configured Google AssertionTokenClient for scopes: {}", google.scopes());
-        return new AssertionTokenClient(config);
+        if (google != null && hasText(google.serviceAccountKeyPath())) {
+            definitions.put("google", new Oauth2AwtProperties.Client(AssertionConfig.Provider.GOOGLE,
+                    google.serviceAccountKeyPath(), null, null, null, null, SigningAlgorithm.RS256,
+                    google.tokenEndpoint(), google.scopes(), google.tuning()));
+        }
+        Oauth2AwtProperties.Microsoft ms = props.microsoft();
+        if (ms != null && hasText(ms.clientId())) {
+            definitions.put("microsoft", new Oauth2AwtProperties.Client(AssertionConfig.Provider.MICROSOFT,
+                    null, ms.clientId(), ms.tenantId(), ms.privateKeyPemPath(), ms.keyId(), ms.signingAlgorithm(),
+                    ms.tokenEndpoint(), ms.scopes(), ms.tuning()));
+        }
+        if (props.clients() != null) {
+            props.clients().forEach((name, client) -> {
+                if (definitions.putIfAbsent(name, client) != null) {
+                    throw new IllegalStateException("oauth2.awt.clients." + name + " clashes with oauth2.awt." + name);
+                }
+            });
+        }
+
+        Map<String, AssertionTokenClientRegistry.ClientFactory> factories = new LinkedHashMap<>();
+        definitions.forEach((name, client) -> factories.put(name,
+                () -> newClient(name, client, props, refreshScheduler, dataSource, meterRegistry, keyWatcher)));
+        log.info("Registered oauth2.awt clients: {}", factories.keySet());
+        return new AssertionTokenClientRegistry(factories);
+    }
+
+    @Bean(name = "oauth2AwtRefreshScheduler")
+    public RefreshScheduler oauth2AwtRefreshScheduler(Oauth2AwtProperties props) {
+        Oauth2AwtProperties.Refresh refresh = props.refresh();
+        return new RefreshScheduler(Duration.ofMillis(100), 512, refresh.maxJitter(), refresh.maxConcurrent(), null);
     }
 
-    @Bean(name = "microsoftAssertionTokenClient")
+    // The registry owns the client and closes it; destroyMethod = "" keeps Spring from closing it twice
+
+    @Bean(name = "googleAssertionTokenClient", destroyMethod = "")
+    @ConditionalOnExpression("'${oauth2.awt.google.service-account-key-path:}' != ''")
+    public AssertionTokenClient googleAssertionTokenClient(AssertionTokenClientRegistry registry) {
+        return registry.get("google");
+    }
+
+    @Bean(name = "microsoftAssertionTokenClient", destroyMethod = "")
     @ConditionalOnExpression("'${oauth2.awt.microsoft.client-id:}' != ''")
-    public AssertionTokenClient microsoftAssertionTokenClient(Oauth2AwtProperties props) throws Exception {
-        Oauth2AwtProperties.Microsoft ms = props.microsoft();
-        String pemContent = new String(Files.readAllBytes(Paths.get(ms.privateKeyPemPath())));
-        String endpoint = ms.tokenEndpoint().replace("{tenant}", ms.tenantId());
-
-        AssertionConfig config = AssertionConfig.builder()
-                .provider(AssertionConfig.Provider.MICROSOFT)
-                .clientId(ms.clientId())
-                .tokenEndpoint(endpoint)
-                .scopes(ms.scopes())
-                .privateKeyPem(pemContent)
-                .keyId(ms.keyId())
-                .clockSkewSeconds(60)
-                .tokenExpirySeconds(3600)
-                .maxRetries(3)
-                .timeoutMs(10_000)
-                .build();
-
-        log.info("Configured Microsoft AssertionTokenClient for clientId: {}", ms.clientId());
-        return new AssertionTokenClient(config);
+    public AssertionTokenClient microsoftAssertionTokenClient(AssertionTokenClientRegistry registry) {
+        return registry.get("microsoft");
+    }
+
+    @Bean(name = "oauth2AwtTokenPrewarmer")
+    @ConditionalOnProperty(prefix = "oauth2.awt.prewarm", name = "enabled", havingValue = "true")
+    public TokenPrewarmer oauth2AwtTokenPrewarmer(AssertionTokenClientRegistry registry, Oauth2AwtProperties props) {
+        return new TokenPrewarmer(registry, props.prewarm().parallelism(), props.prewarm().retryInterval());
+    }
+
+    /** Only with Actuator on the classpath; keyed on the property since nested classes are processed first. */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "org.springframework.boot.actuate.health.HealthIndicator")
+    @ConditionalOnProperty(prefix = "oauth2.awt.prewarm", name = "enabled", havingValue = "true")
+    static class PrewarmHealthConfiguration {
+
+        @Bean(name = "oauth2AwtTokensHealthIndicator")
+        public TokenPrewarmHealthIndicator oauth2AwtTokensHealthIndicator(TokenPrewarmer prewarmer) {
+            return new TokenPrewarmHealthIndicator(prewarmer);
+        }
+    }
+
+    @Bean(name = "oauth2AwtSigningKeyWatcher")
+    @ConditionalOnProperty(prefix = "oauth2.awt.key-reload", name = "enabled", havingValue = "true")
+    public SigningKeyWatcher oauth2AwtSigningKeyWatcher(Oauth2AwtProperties props) throws IOException {
+        return new SigningKeyWatcher(props.keyReload().debounce());
+    }
+
+    private AssertionTokenClient newClient(String name, Oauth2AwtProperties.Client client, Oauth2AwtProperties props,
+                                           RefreshScheduler refreshScheduler,
+                                           ObjectProvider<DataSource> dataSource,
+                                           ObjectProvider<MeterRegistry> meterRegistry,
+                                           ObjectProvider<SigningKeyWatcher> keyWatcher) throws Exception {
+        Oauth2AwtProperties.Tuning tuning = client.tuning();
+        AssertionConfig.Builder builder = AssertionConfig.builder()
+                .provider(client.provider())
+                .scopes(client.scopes())
+                .signingAlgorithm(client.signingAlgorithm())
+                .clockSkewSeconds(tuning.clockSkew().toSeconds())
+                .tokenExpirySeconds(tuning.tokenExpiry().toSeconds())
+                .maxRetries(tuning.maxRetries())
+                .timeoutMs(tuning.timeout().toMillis())
+                .refreshAheadRatio(tuning.refreshAheadRatio())
+                .maxCachedTokens(tuning.maxCachedTokens());
+        Oauth2AwtProperties.Hedge hedge = tuning.hedge();
+        List<String> alternateEndpoints = hedge.alternateEndpoints() == null ? List.of()
+                : hedge.alternateEndpoints().stream()
+                        .map(endpoint -> client.tenantId() == null ? endpoint
+                                : endpoint.replace("{tenant}", client.tenantId()))
+                        .toList();
+        builder.hedgePolicy(HedgePolicy.builder()
+                .maxHedges(hedge.maxHedges())
+                .delayPercentile(hedge.delayPercentile())
+                .minDelayMs(hedge.minDelay().toMillis())
+                .maxDelayMs(hedge.maxDelay().toMillis())
+                .alternateEndpoints(alternateEndpoints)
+                .build());
+
+        String keyPath;
+        KeyReader keyReader;
+        if (client.provider() == AssertionConfig.Provider.GOOGLE) {
+            keyPath = client.serviceAccountKeyPath();
+            ServiceAccountCredentials credentials = ServiceAccountCredentials.load(Paths.get(keyPath));
+            credentials.applyTo(builder)
+                    .tokenEndpoint(hasText(client.tokenEndpoint()) ? client.tokenEndpoint()
+                            : hasText(credentials.tokenUri()) ? credentials.tokenUri()
+                            : Oauth2AwtProperties.GOOGLE_TOKEN_ENDPOINT);
+            keyReader = file -> {
+                ServiceAccountCredentials changed = ServiceAccountCredentials.load(file);
+                if (!changed.clientEmail().equals(credentials.clientEmail())) {
+                    throw new IllegalStateException("client_email changed to " + changed.clientEmail() + "; a new service account needs a restart");
+                }
+                return new SigningKey(changed.privateKeyPem(), changed.privateKeyId());
+            };
+        } else {
+            keyPath = client.privateKeyPemPath();
+            String endpoint = hasText(client.tokenEndpoint()) ? client.tokenEndpoint()
+                    : Oauth2AwtProperties.MICROSOFT_TOKEN_ENDPOINT;
+            builder.clientId(client.clientId())
+                    .tokenEndpoint(endpoint.replace("{tenant}", client.tenantId()))
+                    .privateKeyPem(new String(Files.readAllBytes(Paths.get(keyPath))))
+                    .keyId(client.keyId());
+            keyReader = file -> new SigningKey(new String(Files.readAllBytes(file)), client.keyId());
+        }
+
+        AssertionConfig config = builder.build();
+        log.info("Configured {} AssertionTokenClient '{}' for clientId: {}", client.provider(), name, config.clientId());
+        AssertionTokenClient tokenClient = buildClient(config, props, refreshScheduler, dataSource, meterRegistry, name);
+        watchKeyFile(keyWatcher, props, keyPath, tokenClient, keyReader);
+        return tokenClient;
+    }
+
+    private static boolean hasText(String s) {
+        return s != null && !s.isBlank();
     }
 
     /**
-     * Reads the private_key field from Google service account JSON and extracts PEM.
+     * With {@code oauth2.awt.key-reload.enabled}, rotates {@code client}'s signing key whenever
+     * {@code keyPath} changes. The key is read and validated on the watcher thread, and
+     * optionally proven against the token endpoint, before it replaces the current one.
      */
-    private String readServiceAccountKeyAsPem(String keyPath) throws Exception {
-        String json = new String(Files.readAllBytes(Paths.get(keyPath)));
-        // Extract private_key value from JSON (simple string extraction — no JSON parser dependency)
-        int start = json.indexOf("\"private_key\"");
-        if (start == -1) throw new IllegalArgumentException("No private_key field in service account JSON");
-        int colon = json.indexOf(':', start);
-        int quote1 = json.indexOf('"', colon + 1);
-        int quote2 = json.indexOf("\",", quote1 + 1);
-        if (quote2 == -1) quote2 = json.lastIndexOf('"');
-        return json.substring(quote1 + 1, quote2).replace("\\n", "\n");
+    private void watchKeyFile(ObjectProvider<SigningKeyWatcher> keyWatcher, Oauth2AwtProperties props,
+                              String keyPath, AssertionTokenClient client, KeyReader keyReader) throws IOException {
+        SigningKeyWatcher watcher = keyWatcher.getIfAvailable();
+        if (watcher == null) {
+            return;
+        }
+        boolean prefetch = props.keyReload().prefetch();
+        watcher.watch(Paths.get(keyPath), file -> {
+            SigningKey key = keyReader.read(file);
+            client.rotateSigningKey(key.pem(), key.keyId(), prefetch);
+            log.info("Rotated signing key from {}", file);
+        });
     }
 
+    @FunctionalInterface
+    private interface KeyReader {
+        SigningKey read(Path file) throws Exception;
+    }
+
+    private record SigningKey(String pem, String keyId) {}
+
     /**
-     * Extracts client_email from Google service account JSON.
+     * Tags the client's metrics with {@code name} when a {@link MeterRegistry} is available, and adds
+     * a token store when {@code oauth2.awt.persistence} asks for one: the shared JDBC store
+     * ({@code jdbc.enabled}) or the on-disk store ({@code directory}). Either is encrypted with a
+     * key derived from the client's private key. Refresh-ahead goes through the shared
+     * {@code refreshScheduler}.
      */
-    private String extractClientEmail(String keyPath) throws Exception {
-        String json = new String(Files.readAllBytes(Paths.get(keyPath)));
-        int start = json.indexOf("\"client_email\"");
-        if (start == -1) throw new IllegalArgumentException("No client_email field in service account JSON");
-        int colon = json.indexOf(':', start);
-        int quote1 = json.indexOf('"', colon + 1);
-        int quote2 = json.indexOf('"', quote1 + 1);
-        return json.substring(quote1 + 1, quote2);
+    private AssertionTokenClient buildClient(AssertionConfig config, Oauth2AwtProperties props,
+                                             RefreshScheduler refreshScheduler,
+                                             ObjectProvider<DataSource> dataSource,
+                                             ObjectProvider<MeterRegistry> meterRegistry, String name) {
+        AssertionTokenClient.Builder builder = AssertionTokenClient.builder(config)
+                .name(name)
+                .refreshScheduler(refreshScheduler)
+                .meterRegistry(meterRegistry.getIfAvailable());
+        Oauth2AwtProperties.Persistence persistence = props.persistence();
+        byte[] keyMaterial = config.privateKeyPem().getBytes(StandardCharsets.UTF_8);
+        if (persistence != null && persistence.jdbc() != null && persistence.jdbc().enabled()) {
+            DataSource ds = dataSource.getIfAvailable();
+            if (ds == null) {
+                throw new IllegalStateException("oauth2.awt.persistence.jdbc.enabled requires a DataSource bean");
+            }
+            builder.tokenStore(new JdbcTokenStore(ds, name + ":" + config.clientId(), keyMaterial,
+                    persistence.jdbc().leaseDuration()));
+            log.info("Sharing {} access tokens through oauth2_token_cache", name);
+        } else if (persistence != null && persistence.directory() != null && !persistence.directory().isBlank()) {
+            Path file = Paths.get(persistence.directory(), name + ".tokens");
+            builder.tokenStore(new FileTokenStore(file, keyMaterial));
+            log.info("Persisting {} access tokens to {}", name, file);
+        }
+        return builder.build();
     }
 }
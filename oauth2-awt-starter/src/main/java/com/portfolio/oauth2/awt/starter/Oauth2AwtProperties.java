@@ -1,19 +1,72 @@
 package com.portfolio.oauth2.awt.starter;
 
+import com.portfolio.oauth2.awt.core.AssertionConfig;
+import com.portfolio.oauth2.awt.core.SigningAlgorithm;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.bind.DefaultValue;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 
 @ConfigurationProperties(prefix = "oauth2.awt")
 public record Oauth2AwtProperties(
         Google google,
-        Microsoft microsoft
+        Microsoft microsoft,
+        Persistence persistence,
+        KeyReload keyReload,
+        Map<String, Client> clients,
+        Prewarm prewarm,
+        @DefaultValue Refresh refresh
 ) {
+    public static final String GOOGLE_TOKEN_ENDPOINT = "https://oauth2.googleapis.com/token";
+    public static final String MICROSOFT_TOKEN_ENDPOINT = "https://login.microsoftonline.com/{tenant}/oauth2/v2.0/token";
+
+    /**
+     * Fails binding, and so startup, on a client that could never be built, rather than on its
+     * first use: every entry of {@code clients} needs a {@code provider}, and a Microsoft client,
+     * named or the {@code microsoft} shorthand, its {@code clientId}, {@code tenantId} and
+     * {@code privateKeyPemPath}.
+     */
+    public Oauth2AwtProperties {
+        if (microsoft != null && hasText(microsoft.clientId())) {
+            requireText("oauth2.awt.microsoft.tenant-id", microsoft.tenantId());
+            requireText("oauth2.awt.microsoft.private-key-pem-path", microsoft.privateKeyPemPath());
+        }
+        if (clients != null) {
+            clients.forEach(Oauth2AwtProperties::validate);
+        }
+    }
+
+    private static void validate(String name, Client client) {
+        String prefix = "oauth2.awt.clients." + name + ".";
+        if (client.provider() == null) {
+            throw new IllegalArgumentException(prefix + "provider is required");
+        }
+        if (client.provider() == AssertionConfig.Provider.GOOGLE) {
+            requireText(prefix + "service-account-key-path", client.serviceAccountKeyPath());
+        } else {
+            requireText(prefix + "client-id", client.clientId());
+            requireText(prefix + "tenant-id", client.tenantId());
+            requireText(prefix + "private-key-pem-path", client.privateKeyPemPath());
+        }
+    }
+
+    private static void requireText(String property, String value) {
+        if (!hasText(value)) {
+            throw new IllegalArgumentException(property + " is required");
+        }
+    }
+
+    private static boolean hasText(String s) {
+        return s != null && !s.isBlank();
+    }
+
     public record Google(
             String serviceAccountKeyPath,
-            @DefaultValue("https://oauth2.googleapis.com/token") String tokenEndpoint,
-            List<String> scopes
+            String tokenEndpoint,
+            List<String> scopes,
+            @DefaultValue Tuning tuning
     ) {}
 
     public record Microsoft(
@@ -21,7 +74,112 @@ public record Oauth2AwtProperties(
             String tenantId,
             String privateKeyPemPath,
             String keyId,
-            @DefaultValue("https://login.microsoftonline.com/{tenant}/oauth2/v2.0/token") String tokenEndpoint,
-            List<String> scopes
+            @DefaultValue("RS256") SigningAlgorithm signingAlgorithm,
+            @DefaultValue(MICROSOFT_TOKEN_ENDPOINT) String tokenEndpoint,
+            List<String> scopes,
+            @DefaultValue Tuning tuning
+    ) {}
+
+    /**
+     * One entry of {@code oauth2.awt.clients}, keyed by the client name used for the registry
+     * lookup, the metrics tag and the token store. A {@code GOOGLE} client reads its client id
+     * and key from {@code serviceAccountKeyPath}; a {@code MICROSOFT} client needs
+     * {@code clientId}, {@code tenantId} and {@code privateKeyPemPath}. {@code tokenEndpoint}
+     * defaults to the service account's {@code token_uri}, then to the provider's endpoint.
+     */
+    public record Client(
+            AssertionConfig.Provider provider,
+            String serviceAccountKeyPath,
+            String clientId,
+            String tenantId,
+            String privateKeyPemPath,
+            String keyId,
+            @DefaultValue("RS256") SigningAlgorithm signingAlgorithm,
+            String tokenEndpoint,
+            List<String> scopes,
+            @DefaultValue Tuning tuning
+    ) {}
+
+    /**
+     * Per-client token lifecycle. {@code clockSkew} is how long before expiry a token counts as
+     * expired, {@code tokenExpiry} the lifetime requested in the assertion, and
+     * {@code refreshAheadRatio} the share of a token's lifetime after which it is renewed in the
+     * background (0 disables it).
+     */
+    public record Tuning(
+            @DefaultValue("60s") Duration clockSkew,
+            @DefaultValue("1h") Duration tokenExpiry,
+            @DefaultValue("3") int maxRetries,
+            @DefaultValue("10s") Duration timeout,
+            @DefaultValue("0.75") double refreshAheadRatio,
+            @DefaultValue("10000") long maxCachedTokens,
+            @DefaultValue Hedge hedge
+    ) {}
+
+    /**
+     * Hedged token requests, off while {@code maxHedges} is 0. A request outstanding for the
+     * {@code delayPercentile} of recent exchange latencies, kept within
+     * [{@code minDelay}, {@code maxDelay}], gets up to {@code maxHedges} companions sent to
+     * {@code alternateEndpoints} in turn ({@code {tenant}} is filled in for Microsoft), or to the
+     * token endpoint again.
+     */
+    public record Hedge(
+            @DefaultValue("0") int maxHedges,
+            @DefaultValue("0.95") double delayPercentile,
+            @DefaultValue("50ms") Duration minDelay,
+            @DefaultValue("2s") Duration maxDelay,
+            List<String> alternateEndpoints
+    ) {}
+
+    /**
+     * Where tokens outlive the in-memory cache: {@code directory} for an encrypted on-disk cache
+     * (one file per client), or {@code jdbc} to share tokens between replicas through the
+     * application database. Both empty/disabled by default; {@code jdbc} wins if both are set.
+     */
+    public record Persistence(
+            String directory,
+            Jdbc jdbc
+    ) {}
+
+    /**
+     * Shared token cache in the {@code oauth2_token_cache} table. {@code leaseDuration} bounds how
+     * long a replica that crashed mid-refresh blocks the others.
+     */
+    public record Jdbc(
+            boolean enabled,
+            @DefaultValue("60s") Duration leaseDuration
+    ) {}
+
+    /**
+     * Reloads a client's key file when it changes, without a restart. With {@code prefetch}, a
+     * token is fetched with the new key before it replaces the current one, so a key the
+     * endpoint does not accept yet is never switched to. {@code debounce} is how long the
+     * files must stay unchanged before they are read.
+     */
+    public record KeyReload(
+            boolean enabled,
+            @DefaultValue("true") boolean prefetch,
+            @DefaultValue("2s") Duration debounce
+    ) {}
+
+    /**
+     * Fetches a token for every client once the application is ready, {@code parallelism} at a
+     * time, retrying failures every {@code retryInterval}. Also registers the
+     * {@code oauth2AwtTokens} health indicator, which is out of service until all are cached.
+     */
+    public record Prewarm(
+            boolean enabled,
+            @DefaultValue("4") int parallelism,
+            @DefaultValue("5s") Duration retryInterval
+    ) {}
+
+    /**
+     * One refresh-ahead scheduler shared by all clients: at most {@code maxConcurrent} token
+     * refreshes run at once, and each is moved earlier by up to {@code maxJitter} (a fixed offset
+     * per token), so tokens issued together are not renewed together.
+     */
+    public record Refresh(
+            @DefaultValue("4") int maxConcurrent,
+            @DefaultValue("30s") Duration maxJitter
     ) {}
 }
@@ -0,0 +1,141 @@
+package com.portfolio.oauth2.awt.starter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches key files and runs a reload callback when their content changes, on one daemon
+ * thread shared by every registered file.
+ * <p>
+ * Directories are watched rather than files, and a change is detected by comparing a SHA-256
+ * of the file content, so both in-place writes and Kubernetes-style secret updates (a symlink
+ * swapped under the mount) are picked up, and touching a file without changing it is not.
+ * Events are debounced so a file written in several steps is read once, complete.
+ */
+public class SigningKeyWatcher implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SigningKeyWatcher.class);
+
+    private final WatchService watchService;
+    private final Duration debounce;
+    private final Map<WatchKey, List<Registration>> registrations = new ConcurrentHashMap<>();
+    private final Thread thread;
+
+    public SigningKeyWatcher(Duration debounce) throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.debounce = debounce;
+        this.thread = new Thread(this::run, "oauth2-awt-key-watcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Calls {@code onChange} with the file after each change of its content. The callback runs
+     * on the watcher thread; an exception from it is logged and the file stays watched.
+     */
+    public void watch(Path file, KeyReloader onChange) throws IOException {
+        Path absolute = file.toAbsolutePath().normalize();
+        WatchKey key = absolute.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        registrations.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>())
+                .add(new Registration(absolute, onChange, digest(absolute)));
+        log.info("Watching {} for signing key rotation", absolute);
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        thread.interrupt();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                Set<WatchKey> signalled = new HashSet<>();
+                WatchKey key = watchService.take();
+                // Let a multi-step write settle, then handle everything that fired meanwhile
+                while (key != null) {
+                    key.pollEvents();
+                    key.reset();
+                    signalled.add(key);
+                    key = watchService.poll(debounce.toMillis(), TimeUnit.MILLISECONDS);
+                }
+                for (WatchKey changed : signalled) {
+                    for (Registration registration : registrations.getOrDefault(changed, List.of())) {
+                        reloadIfChanged(registration);
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ex) {
+            log.debug("Signing key watcher stopped");
+        }
+    }
+
+    private static void reloadIfChanged(Registration registration) {
+        byte[] current;
+        try {
+            current = digest(registration.file);
+        } catch (IOException ex) {
+            // Deleted or mid-replacement; the create event that follows triggers another check
+            log.debug("Cannot read {} yet: {}", registration.file, ex.getMessage());
+            return;
+        }
+        if (Arrays.equals(current, registration.digest)) {
+            return;
+        }
+        try {
+            registration.onChange.reload(registration.file);
+            registration.digest = current;
+        } catch (Exception ex) {
+            // Not remembered as seen, so the next change of any file in the directory retries it
+            log.error("Signing key reload from {} failed, keeping the current key: {}",
+                    registration.file, ex.getMessage());
+        }
+    }
+
+    private static byte[] digest(Path file) throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(file));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+
+    /** Reloads the key held in {@code file}. */
+    @FunctionalInterface
+    public interface KeyReloader {
+        void reload(Path file) throws Exception;
+    }
+
+    private static final class Registration {
+        private final Path file;
+        private final KeyReloader onChange;
+        private volatile byte[] digest;
+
+        private Registration(Path file, KeyReloader onChange, byte[] digest) {
+            this.file = file;
+            this.onChange = onChange;
+            this.digest = digest;
+        }
+    }
+}
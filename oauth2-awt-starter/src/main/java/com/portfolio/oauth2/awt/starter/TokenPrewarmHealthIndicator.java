@@ -0,0 +1,41 @@
+package com.portfolio.oauth2.awt.starter;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@code OUT_OF_SERVICE} until {@link TokenPrewarmer} has cached a token for every client, then
+ * {@code UP} for good: later token endpoint outages are absorbed by the cached tokens and the
+ * client's own retries, and must not take a running instance out of rotation.
+ * <p>
+ * Add it to the readiness group ({@code management.endpoint.health.group.readiness.include})
+ * as {@code oauth2AwtTokens}.
+ */
+public class TokenPrewarmHealthIndicator implements HealthIndicator {
+
+    private final TokenPrewarmer prewarmer;
+
+    public TokenPrewarmHealthIndicator(TokenPrewarmer prewarmer) {
+        this.prewarmer = prewarmer;
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder builder = prewarmer.isWarm() ? Health.up() : Health.outOfService();
+        prewarmer.statuses().forEach((name, status) -> {
+            Map<String, Object> detail = new LinkedHashMap<>();
+            detail.put("state", status.state());
+            if (status.took() != null) {
+                detail.put("tookMs", status.took().toMillis());
+            }
+            if (status.error() != null) {
+                detail.put("error", status.error());
+            }
+            builder.withDetail(name, detail);
+        });
+        return builder.build();
+    }
+}
@@ -0,0 +1,103 @@
+package com.portfolio.oauth2.awt.starter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fetches a token for every client of the {@link AssertionTokenClientRegistry} once the
+ * application is ready, so the first real request finds key parsing, signing and the token
+ * endpoint round trip already done.
+ * <p>
+ * Clients are warmed in parallel on up to {@code parallelism} daemon threads. A client whose
+ * token cannot be fetched is retried every {@code retryInterval} until it succeeds; until then
+ * {@link #isWarm()} stays false, which keeps the readiness health indicator out of service.
+ */
+public class TokenPrewarmer implements ApplicationListener<ApplicationReadyEvent>, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenPrewarmer.class);
+
+    private final AssertionTokenClientRegistry registry;
+    private final Duration retryInterval;
+    private final ScheduledExecutorService executor;
+    private final Map<String, Status> statuses = new ConcurrentHashMap<>();
+
+    public TokenPrewarmer(AssertionTokenClientRegistry registry, int parallelism, Duration retryInterval) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive, was " + parallelism);
+        }
+        this.registry = registry;
+        this.retryInterval = retryInterval;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newScheduledThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "oauth2-awt-prewarm-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        registry.names().forEach(name -> statuses.put(name, Status.PENDING));
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        prewarm();
+    }
+
+    /** Starts warming every client; returns immediately. */
+    public void prewarm() {
+        log.info("Pre-warming tokens for {}", registry.names());
+        registry.names().forEach(name -> executor.execute(() -> warm(name)));
+    }
+
+    /** Whether every client has fetched a token at least once. */
+    public boolean isWarm() {
+        return statuses.values().stream().allMatch(status -> status.state() == State.READY);
+    }
+
+    /** Per-client progress, in configuration order. */
+    public Map<String, Status> statuses() {
+        Map<String, Status> ordered = new LinkedHashMap<>();
+        registry.names().forEach(name -> ordered.put(name, statuses.get(name)));
+        return ordered;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void warm(String name) {
+        long start = System.nanoTime();
+        try {
+            registry.get(name).getAccessToken();
+            Duration took = Duration.ofNanos(System.nanoTime() - start);
+            statuses.put(name, new Status(State.READY, took, null));
+            log.info("Pre-warmed token for '{}' in {} ms", name, took.toMillis());
+        } catch (RuntimeException ex) {
+            statuses.put(name, new Status(State.FAILED, null, ex.getMessage()));
+            log.warn("Token pre-warm for '{}' failed, retrying in {}: {}", name, retryInterval, ex.getMessage());
+            if (!executor.isShutdown()) {
+                executor.schedule(() -> warm(name), retryInterval.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    public enum State { PENDING, READY, FAILED }
+
+    /**
+     * @param took  time to the first token, once {@code READY}
+     * @param error message of the last failure, while {@code FAILED}
+     */
+    public record Status(State state, Duration took, String error) {
+        static final Status PENDING = new Status(State.PENDING, null, null);
+    }
+}